@@ -3,6 +3,7 @@ package org.example;
 import javax.swing.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class AssignmentHandler {
@@ -12,7 +13,28 @@ public class AssignmentHandler {
     // [a-zA-Z0-9_]*   -> I successivi possono essere lettere, numeri o underscore
     private static final Pattern ASSIGN_PATTERN = Pattern.compile("^([a-zA-Z_][a-zA-Z0-9_]*)\\s*=$");
 
+    // [U, S, V] = svd(A) e [U, S, V] = svd(A, k): i fattori diventano variabili
+    private static final Pattern SVD_PATTERN = Pattern.compile(
+            "^\\[\\s*([a-zA-Z_]\\w*)\\s*,\\s*([a-zA-Z_]\\w*)\\s*,\\s*([a-zA-Z_]\\w*)\\s*\\]\\s*=\\s*svd\\s*\\((.+?)(?:,\\s*(\\d+))?\\s*\\)$");
+
+    // x = cg(A, b), x = bicgstab(A, b, ilu), x = gmres(A, b, jacobi): A e b sono variabili
+    private static final Pattern ITERATIVE_PATTERN = Pattern.compile(
+            "^([a-zA-Z_]\\w*)\\s*=\\s*(cg|bicgstab|gmres)\\s*\\(\\s*([a-zA-Z_]\\w*)\\s*,\\s*([a-zA-Z_]\\w*)\\s*(?:,\\s*(none|jacobi|ilu)\\s*)?\\)$");
+
+    // Valori del residuo mostrati dopo un metodo iterativo
+    private static final int HISTORY_POINTS = 8;
+
     public static String tryHandleAssignment(String rawInput, JFrame parentFrame) {
+        Matcher svd = SVD_PATTERN.matcher(rawInput);
+        if (svd.matches()) {
+            return handleSvd(svd);
+        }
+
+        Matcher iterative = ITERATIVE_PATTERN.matcher(rawInput);
+        if (iterative.matches()) {
+            return handleIterative(iterative);
+        }
+
         Matcher matcher = ASSIGN_PATTERN.matcher(rawInput);
 
         if (matcher.matches()) {
@@ -23,7 +45,8 @@ public class AssignmentHandler {
             dialog.setVisible(true);
 
             if (dialog.isConfirmed()) {
-                MatrixData data = dialog.getMatrixData();
+                // Le matrici grandi e quasi tutte zeri passano in forma sparsa
+                MatrixData data = dialog.getMatrixData().optimizeStorage();
 
                 // Salviamo in memoria con la chiave originale "alfa"
                 VariableManager.save(varName, data);
@@ -36,6 +59,95 @@ public class AssignmentHandler {
         return null;
     }
 
+    /**
+     * Con k la SVD è troncata ai primi k valori singolari (randomizzata: adatta alle matrici enormi).
+     */
+    private static String handleSvd(Matcher matcher) {
+        DenseMatrix A = MathEvaluator.compile(matcher.group(4)).evaluateNumeric();
+        if (A == null) {
+            throw new IllegalArgumentException("La funzione svd richiede una matrice numerica.");
+        }
+        SingularValueDecomposition svd = matcher.group(5) == null
+                ? SingularValueDecomposition.of(A)
+                : SingularValueDecomposition.truncated(A, Integer.parseInt(matcher.group(5)));
+
+        DenseMatrix[] factors = {svd.getU(), svd.getS(), svd.getV()};
+        Map<String, MatrixData> assigned = new LinkedHashMap<>();
+        StringBuilder latex = new StringBuilder();
+        for (int i = 0; i < factors.length; i++) {
+            String varName = matcher.group(i + 1);
+            MatrixData data = MatrixData.fromDense(factors[i]);
+            assigned.put(varName, data);
+            if (i > 0) latex.append(", \\quad ");
+            latex.append(SmartMathParser.convertVarToLatex(varName)).append(" = ").append(data.toLatex());
+        }
+        VariableManager.saveAll(assigned);
+        return latex.toString();
+    }
+
+    /**
+     * Senza precondizionatore indicato: Jacobi per CG, ILU(0) per gli altri.
+     * Oltre alla soluzione mostra iterazioni e residuo finale.
+     */
+    private static String handleIterative(Matcher matcher) {
+        // A e b dalla stessa fotografia: un save concorrente non può accoppiare una A vecchia con una b nuova
+        VariableManager.Snapshot vars = VariableManager.snapshot();
+        MatrixData A = requireVariable(vars, matcher.group(3));
+        DenseMatrix b = requireVariable(vars, matcher.group(4)).getDenseValues();
+        if (b == null) {
+            throw new IllegalArgumentException("Il termine noto deve essere numerico.");
+        }
+        // Come per il precondizionatore: niente toUpperCase, che dipende dal locale (es. "ı" in turco)
+        IterativeSolver.Method method = switch (matcher.group(2)) {
+            case "cg" -> IterativeSolver.Method.CG;
+            case "bicgstab" -> IterativeSolver.Method.BICGSTAB;
+            default -> IterativeSolver.Method.GMRES;
+        };
+        String option = matcher.group(5);
+        IterativeSolver.Preconditioner preconditioner;
+        if (option == null) {
+            preconditioner = method == IterativeSolver.Method.CG
+                    ? IterativeSolver.Preconditioner.JACOBI : IterativeSolver.Preconditioner.ILU0;
+        } else {
+            preconditioner = switch (option) {
+                case "jacobi" -> IterativeSolver.Preconditioner.JACOBI;
+                case "ilu" -> IterativeSolver.Preconditioner.ILU0;
+                default -> IterativeSolver.Preconditioner.NONE;
+            };
+        }
+
+        IterativeSolver.Result result = new IterativeSolver(method).preconditioner(preconditioner).solve(A, b);
+        String varName = matcher.group(1);
+        MatrixData data = MatrixData.fromDense(result.x());
+        VariableManager.save(varName, data);
+        return SmartMathParser.convertVarToLatex(varName) + " = " + data.toLatex()
+                + " \\quad \\text{(" + result.iterations() + " iterazioni, residuo "
+                + String.format("%.2e", result.residual())
+                + (result.converged() ? "" : ", non converge") + ")}"
+                + historyLatex(result.history());
+    }
+
+    // Andamento del residuo: al massimo HISTORY_POINTS valori, presi a intervalli regolari
+    private static String historyLatex(double[] history) {
+        if (history.length == 0) return "";
+        int points = Math.min(history.length, HISTORY_POINTS);
+        StringBuilder latex = new StringBuilder(" \\quad \\text{residui: }");
+        for (int k = 0; k < points; k++) {
+            int i = points == 1 ? 0 : (int) Math.round((double) k * (history.length - 1) / (points - 1));
+            if (k > 0) latex.append(" \\to ");
+            latex.append("\\text{").append(String.format("%.1e", history[i])).append("}");
+        }
+        return latex.toString();
+    }
+
+    private static MatrixData requireVariable(VariableManager.Snapshot vars, String name) {
+        MatrixData data = vars.get(name);
+        if (data == null) {
+            throw new RuntimeException("Variabile non definita: " + name);
+        }
+        return data;
+    }
+
     /**
      * Recupera il valore numerico (double[][]) se disponibile, altrimenti null.
      */
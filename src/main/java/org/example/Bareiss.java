@@ -0,0 +1,266 @@
+package org.example;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Eliminazione "fraction-free" di Bareiss per matrici simboliche e razionali.
+ *
+ * Al passo k ogni elemento diventa (p_k * a_ij - a_ik * a_kj) / p_(k-1), dove p è il pivot:
+ * la divisione è sempre esatta (il risultato è un minore della matrice di partenza), quindi
+ * con interi restano interi e con polinomi restano polinomi, senza la crescita incontrollata
+ * di frazioni annidate dell'eliminazione di Gauss classica.
+ *
+ * Se tutte le celle sono numeri si lavora su BigInteger, senza passare da SymExpr: le righe
+ * con frazioni vengono prima moltiplicate per il mcm dei denominatori.
+ */
+final class Bareiss {
+
+    /**
+     * Le operazioni che servono all'algoritmo, per SymExpr e per BigInteger.
+     */
+    private interface Arithmetic<T> {
+        T zero();
+        T one();
+        boolean isZero(T a);
+        T subtract(T a, T b);
+        T multiply(T a, T b);
+        T negate(T a);
+        // Divisione esatta del passo di Bareiss
+        T divideExact(T a, T b);
+    }
+
+    private static final Arithmetic<SymExpr> SYMBOLIC = new Arithmetic<>() {
+        public SymExpr zero() { return SymExpr.ZERO; }
+        public SymExpr one() { return SymExpr.ONE; }
+        public boolean isZero(SymExpr a) { return a.isZero(); }
+        public SymExpr subtract(SymExpr a, SymExpr b) { return SymExpr.subtract(a, b); }
+        public SymExpr multiply(SymExpr a, SymExpr b) { return SymExpr.multiply(a, b); }
+        public SymExpr negate(SymExpr a) { return SymExpr.negate(a); }
+        public SymExpr divideExact(SymExpr a, SymExpr b) { return SymExpr.divideExact(a, b); }
+    };
+
+    private static final Arithmetic<BigInteger> INTEGER = new Arithmetic<>() {
+        public BigInteger zero() { return BigInteger.ZERO; }
+        public BigInteger one() { return BigInteger.ONE; }
+        public boolean isZero(BigInteger a) { return a.signum() == 0; }
+        public BigInteger subtract(BigInteger a, BigInteger b) { return a.subtract(b); }
+        public BigInteger multiply(BigInteger a, BigInteger b) { return a.multiply(b); }
+        public BigInteger negate(BigInteger a) { return a.negate(); }
+        public BigInteger divideExact(BigInteger a, BigInteger b) { return a.divide(b); }
+    };
+
+    private Bareiss() {}
+
+    // =============================================================
+    // INGRESSO (SymExpr[][])
+    // =============================================================
+
+    static SymExpr determinant(SymExpr[][] matrix) {
+        checkSquare(matrix, "Il determinante");
+        BigInteger[] scale = new BigInteger[matrix.length];
+        BigInteger[][] integers = toIntegers(matrix, scale);
+        if (integers != null) {
+            // det(D A) = det(D) det(A), D = diag(scale)
+            BigInteger d = BigInteger.ONE;
+            for (BigInteger f : scale) d = d.multiply(f);
+            return SymExpr.number(Rational.of(determinant(integers, INTEGER), d));
+        }
+        return determinant(copy(matrix, SymExpr[][]::new), SYMBOLIC);
+    }
+
+    static SymExpr[][] inverse(SymExpr[][] matrix) {
+        checkSquare(matrix, "L'inversa");
+        int n = matrix.length;
+        SymExpr[][] identity = new SymExpr[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) identity[i][j] = i == j ? SymExpr.ONE : SymExpr.ZERO;
+        }
+        return solve(matrix, identity);
+    }
+
+    /**
+     * Soluzione di A X = B con Gauss-Jordan fraction-free su [A | B].
+     */
+    static SymExpr[][] solve(SymExpr[][] A, SymExpr[][] B) {
+        checkSquare(A, "Il sistema");
+        int n = A.length, m = B[0].length;
+        if (B.length != n) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + n + "x" + n + ") vs ("
+                    + B.length + "x" + m + ")");
+        }
+        SymExpr[][] augmented = new SymExpr[n][];
+        for (int i = 0; i < n; i++) {
+            augmented[i] = Arrays.copyOf(A[i], n + m);
+            System.arraycopy(B[i], 0, augmented[i], n, m);
+        }
+
+        SymExpr[][] result = new SymExpr[n][m];
+        // Le righe scalate per il mcm dei denominatori hanno la stessa soluzione
+        BigInteger[][] integers = toIntegers(augmented, new BigInteger[n]);
+        if (integers != null) {
+            BigInteger p = gaussJordan(integers, n, INTEGER);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++) result[i][j] = SymExpr.number(Rational.of(integers[i][n + j], p));
+            }
+            return result;
+        }
+        SymExpr p = gaussJordan(augmented, n, SYMBOLIC);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) result[i][j] = SymExpr.divideExact(augmented[i][n + j], p);
+        }
+        return result;
+    }
+
+    /**
+     * Minimi quadrati esatti (A non quadrata) con le equazioni normali: in aritmetica esatta
+     * non c'è il problema di condizionamento che hanno in virgola mobile.
+     * Più righe che colonne: (A^T A) X = A^T B; più colonne: X = A^T (A A^T)^-1 B (norma minima).
+     */
+    static SymExpr[][] leastSquares(SymExpr[][] A, SymExpr[][] B) {
+        if (A.length != B.length) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + A.length + "x" + A[0].length
+                    + ") vs (" + B.length + "x" + B[0].length + ")");
+        }
+        SymExpr[][] At = MatrixUtils.transposeSymbolic(A);
+        if (A.length > A[0].length) {
+            return solve(MatrixUtils.multiplySymbolic(At, A), MatrixUtils.multiplySymbolic(At, B));
+        }
+        return MatrixUtils.multiplySymbolic(At, solve(MatrixUtils.multiplySymbolic(A, At), B));
+    }
+
+    static int rank(SymExpr[][] matrix) {
+        BigInteger[][] integers = toIntegers(matrix, new BigInteger[matrix.length]);
+        if (integers != null) return rank(integers, INTEGER);
+        return rank(copy(matrix, SymExpr[][]::new), SYMBOLIC);
+    }
+
+    /**
+     * Righe intere: ogni riga viene moltiplicata per il mcm dei suoi denominatori (in scale).
+     * null se almeno una cella non è un numero.
+     */
+    private static BigInteger[][] toIntegers(SymExpr[][] matrix, BigInteger[] scale) {
+        BigInteger[][] result = new BigInteger[matrix.length][matrix[0].length];
+        for (int i = 0; i < matrix.length; i++) {
+            BigInteger lcm = BigInteger.ONE;
+            for (SymExpr cell : matrix[i]) {
+                if (!cell.isNumber()) return null;
+                BigInteger d = cell.numericValue().denominator();
+                lcm = lcm.divide(lcm.gcd(d)).multiply(d);
+            }
+            scale[i] = lcm;
+            for (int j = 0; j < matrix[i].length; j++) {
+                Rational value = matrix[i][j].numericValue();
+                result[i][j] = value.numerator().multiply(lcm.divide(value.denominator()));
+            }
+        }
+        return result;
+    }
+
+    private static void checkSquare(SymExpr[][] matrix, String what) {
+        if (matrix.length != matrix[0].length) {
+            throw new IllegalArgumentException(what + " richiede una matrice quadrata, non "
+                    + matrix.length + "x" + matrix[0].length);
+        }
+    }
+
+    private static <T> T[][] copy(T[][] matrix, IntFunction<T[][]> factory) {
+        T[][] result = factory.apply(matrix.length);
+        for (int i = 0; i < matrix.length; i++) result[i] = matrix[i].clone();
+        return result;
+    }
+
+    // =============================================================
+    // ALGORITMI (lavorano sul posto)
+    // =============================================================
+
+    private static <T> T determinant(T[][] m, Arithmetic<T> ops) {
+        int n = m.length;
+        boolean negative = false;
+        T previous = ops.one();
+        for (int k = 0; k < n - 1; k++) {
+            if (ops.isZero(m[k][k])) {
+                int p = findPivot(m, k, k, ops);
+                if (p < 0) return ops.zero(); // colonna nulla: matrice singolare
+                swap(m, k, p);
+                negative = !negative;
+            }
+            for (int i = k + 1; i < n; i++) {
+                for (int j = k + 1; j < n; j++) {
+                    m[i][j] = step(m, k, k, i, j, previous, ops);
+                }
+            }
+            previous = m[k][k];
+        }
+        T det = m[n - 1][n - 1];
+        return negative ? ops.negate(det) : det;
+    }
+
+    /**
+     * Gauss-Jordan fraction-free su [A | B] (A n x n): alla fine la parte sinistra è p * I
+     * (p = ±det) e la destra è p * A^-1 B, quindi basta un'unica divisione per elemento alla fine.
+     * Restituisce p.
+     */
+    private static <T> T gaussJordan(T[][] m, int n, Arithmetic<T> ops) {
+        int width = m[0].length;
+        T previous = ops.one();
+        for (int k = 0; k < n; k++) {
+            if (ops.isZero(m[k][k])) {
+                int p = findPivot(m, k, k, ops);
+                if (p < 0) throw new ArithmeticException("Matrice singolare: non è invertibile");
+                swap(m, k, p);
+            }
+            for (int i = 0; i < n; i++) {
+                if (i == k) continue;
+                for (int j = 0; j < width; j++) {
+                    if (j != k) m[i][j] = step(m, k, k, i, j, previous, ops);
+                }
+                m[i][k] = ops.zero();
+            }
+            previous = m[k][k];
+        }
+        return previous;
+    }
+
+    // Forma a scalini fraction-free: il rango è il numero di pivot trovati
+    private static <T> int rank(T[][] m, Arithmetic<T> ops) {
+        int rows = m.length, cols = m[0].length;
+        int r = 0;
+        T previous = ops.one();
+        for (int c = 0; c < cols && r < rows; c++) {
+            int p = findPivot(m, r, c, ops);
+            if (p < 0) continue;
+            swap(m, r, p);
+            for (int i = r + 1; i < rows; i++) {
+                for (int j = c + 1; j < cols; j++) {
+                    m[i][j] = step(m, r, c, i, j, previous, ops);
+                }
+                m[i][c] = ops.zero();
+            }
+            previous = m[r][c];
+            r++;
+        }
+        return r;
+    }
+
+    // (pivot * a_ij - a_ic * a_rj) / pivot precedente
+    private static <T> T step(T[][] m, int r, int c, int i, int j, T previous, Arithmetic<T> ops) {
+        T value = ops.subtract(ops.multiply(m[r][c], m[i][j]), ops.multiply(m[i][c], m[r][j]));
+        return ops.divideExact(value, previous);
+    }
+
+    // Prima riga da 'from' in giù con un elemento non nullo nella colonna c, -1 se non c'è
+    private static <T> int findPivot(T[][] m, int from, int c, Arithmetic<T> ops) {
+        for (int i = from; i < m.length; i++) {
+            if (!ops.isZero(m[i][c])) return i;
+        }
+        return -1;
+    }
+
+    private static <T> void swap(T[][] m, int a, int b) {
+        T[] tmp = m[a];
+        m[a] = m[b];
+        m[b] = tmp;
+    }
+}
@@ -6,13 +6,13 @@ import org.example.VariableManager;
 class Colorer {
 
     public static String colorize(String varName) {
-        // Se la variabile non esiste nel DB, nessun colore (nero default)
-        if (!VariableManager.exists(varName)) {
+        // Se la variabile non esiste nel DB, nessun colore (nero default).
+        // Una sola lettura: fra exists e get un altro thread potrebbe sostituirla
+        MatrixData data = VariableManager.get(varName);
+        if (data == null) {
             return varName;
         }
 
-        MatrixData data = VariableManager.get(varName);
-
         if (data.isMatrix()) {
             // Matrice (nxm) -> Rosso
             return "\\textcolor{red}{" + varName + "}";
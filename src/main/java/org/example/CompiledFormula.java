@@ -0,0 +1,55 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Formula numerica compilata in bytecode da FormulaCompiler per dimensioni fisse delle variabili.
+ *
+ * Pensata per i cicli stretti, es. ricalcolare A*x + b al variare di x:
+ * <pre>
+ *   CompiledFormula f = MathEvaluator.compile("A*x + b").compileNumeric();
+ *   for (...) result = f.apply(A, DenseMatrix.scalar(x), b);
+ * </pre>
+ * I valori vanno passati nell'ordine di getVariables() e con le stesse dimensioni
+ * usate per la compilazione.
+ */
+public final class CompiledFormula {
+    private final FormulaCompiler.Kernel kernel;
+    private final List<String> variables;
+    private final int[] shapes;
+
+    CompiledFormula(FormulaCompiler.Kernel kernel, List<String> variables, int[] shapes) {
+        this.kernel = kernel;
+        this.variables = variables;
+        this.shapes = shapes;
+    }
+
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    public DenseMatrix apply(DenseMatrix... values) {
+        if (!matches(values)) {
+            throw new IllegalArgumentException("Valori non compatibili con la formula compilata: attese le variabili "
+                    + variables + " con dimensioni " + describeShapes());
+        }
+        return kernel.apply(values);
+    }
+
+    boolean matches(DenseMatrix[] values) {
+        if (values.length * 2 != shapes.length) return false;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].rows != shapes[2 * i] || values[i].cols != shapes[2 * i + 1]) return false;
+        }
+        return true;
+    }
+
+    private String describeShapes() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < shapes.length; i += 2) {
+            if (i > 0) sb.append(", ");
+            sb.append(shapes[i]).append('x').append(shapes[i + 1]);
+        }
+        return sb.toString();
+    }
+}
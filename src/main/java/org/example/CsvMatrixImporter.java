@@ -0,0 +1,410 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Importa matrici numeriche da file CSV / TSV (anche molto più grandi dello heap).
+ *
+ * Il file viene mappato in memoria e diviso in blocchi di byte allineati a inizio riga.
+ * L'importazione avviene in due passate, entrambe parallele sui blocchi:
+ * 1. ogni blocco conta le proprie righe non vuote (così si conosce la riga di partenza di ciascuno);
+ * 2. ogni blocco fa il parsing delle proprie righe e le scrive direttamente nella matrice
+ *    risultato (una OffHeapMatrix), alla posizione giusta.
+ * La memoria usata è quindi solo quella del risultato più un buffer di una riga per thread.
+ *
+ * Separatori riconosciuti: ',', ';', tab, oppure spazi. Con separatore diverso dalla virgola
+ * la virgola viene accettata come separatore decimale ("3,5"). Una prima riga non numerica
+ * viene trattata come intestazione e saltata; i campi vuoti valgono 0.
+ */
+public final class CsvMatrixImporter {
+
+    // Dimensione nominale di un blocco di parsing
+    static final long CHUNK_BYTES = 8L << 20;
+
+    // Separatore "speciale": una o più sequenze di spazi/tab
+    private static final byte WHITESPACE = 0;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CsvMatrixImporter() {}
+
+    public static boolean isSupported(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".txt");
+    }
+
+    /**
+     * Importa il file come variabile pronta per VariableManager. La matrice viene rilasciata
+     * dal GC quando la variabile non è più raggiungibile (vedi OffHeapMatrix.allocateAuto).
+     */
+    public static MatrixData importVariable(Path path) throws IOException {
+        return MatrixData.fromNumeric(importFile(path, true));
+    }
+
+    public static OffHeapMatrix importFile(Path path) throws IOException {
+        return importFile(path, false);
+    }
+
+    private static OffHeapMatrix importFile(Path path, boolean auto) throws IOException {
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) throw new IOException("File vuoto: " + path);
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            return parse(file, auto);
+        }
+    }
+
+    static OffHeapMatrix parse(MemorySegment file, boolean auto) {
+        long size = file.byteSize();
+
+        // Prima riga non vuota: separatore, numero di colonne, eventuale intestazione
+        long first = skipBlankLines(file, 0, size);
+        if (first >= size) throw new IllegalArgumentException("Il file non contiene dati");
+        long firstEnd = lineEnd(file, first, size);
+        byte delimiter = detectDelimiter(file, first, firstEnd);
+        boolean decimalComma = delimiter != ',';
+
+        long dataStart = first;
+        LineParser probe = new LineParser(file, delimiter, decimalComma);
+        int cols = probe.countFields(first, firstEnd);
+        if (!probe.isNumericLine(first, firstEnd, cols)) {
+            dataStart = skipBlankLines(file, nextLine(file, firstEnd, size), size);
+            if (dataStart >= size) throw new IllegalArgumentException("Il file contiene solo l'intestazione");
+            long end = lineEnd(file, dataStart, size);
+            cols = probe.countFields(dataStart, end);
+        }
+
+        long[] bounds = chunkBounds(file, dataStart, size);
+        int chunks = bounds.length - 1;
+
+        // Passata 1: righe per blocco
+        int[] rowsPerChunk = new int[chunks];
+        MatrixParallel.forRows(chunks, CHUNK_BYTES, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                rowsPerChunk[c] = countRows(file, bounds[c], bounds[c + 1]);
+            }
+        });
+
+        int[] firstRow = new int[chunks];
+        long total = 0;
+        for (int c = 0; c < chunks; c++) {
+            firstRow[c] = (int) total;
+            total += rowsPerChunk[c];
+        }
+        if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("Troppe righe: " + total);
+
+        // Passata 2: parsing e scrittura diretta nel risultato
+        int rows = (int) total;
+        int nCols = cols;
+        OffHeapMatrix result = auto ? OffHeapMatrix.allocateAuto(rows, nCols) : OffHeapMatrix.allocate(rows, nCols);
+        try {
+            MatrixParallel.forRows(chunks, CHUNK_BYTES, (from, to) -> {
+                LineParser parser = new LineParser(file, delimiter, decimalComma);
+                double[] row = new double[nCols];
+                for (int c = from; c < to; c++) {
+                    int r = firstRow[c];
+                    long pos = bounds[c];
+                    long end = bounds[c + 1];
+                    while (pos < end) {
+                        long lineEnd = lineEnd(file, pos, end);
+                        if (!isBlank(file, pos, lineEnd)) {
+                            parser.parseLine(pos, lineEnd, row, r);
+                            result.writeRow(r++, row, 0);
+                        }
+                        pos = nextLine(file, lineEnd, end);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    // --- DIVISIONE IN BLOCCHI E SCANSIONE RIGHE ---
+
+    private static long[] chunkBounds(MemorySegment file, long start, long size) {
+        int chunks = (int) Math.max(1, (size - start + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        long[] bounds = new long[chunks + 1];
+        bounds[0] = start;
+        for (int c = 1; c < chunks; c++) {
+            // Ogni blocco comincia subito dopo il primo '\n' oltre il confine nominale
+            long nominal = Math.max(bounds[c - 1], start + c * CHUNK_BYTES);
+            bounds[c] = nextLine(file, lineEnd(file, nominal, size), size);
+        }
+        bounds[chunks] = size;
+        return bounds;
+    }
+
+    private static int countRows(MemorySegment file, long pos, long end) {
+        int count = 0;
+        while (pos < end) {
+            long lineEnd = lineEnd(file, pos, end);
+            if (!isBlank(file, pos, lineEnd)) count++;
+            pos = nextLine(file, lineEnd, end);
+        }
+        return count;
+    }
+
+    // Posizione del '\n' che chiude la riga (o end)
+    private static long lineEnd(MemorySegment file, long pos, long end) {
+        while (pos < end && file.get(ValueLayout.JAVA_BYTE, pos) != '\n') pos++;
+        return pos;
+    }
+
+    private static long nextLine(MemorySegment file, long lineEnd, long end) {
+        return lineEnd < end ? lineEnd + 1 : end;
+    }
+
+    private static boolean isBlank(MemorySegment file, long pos, long end) {
+        for (; pos < end; pos++) {
+            byte b = file.get(ValueLayout.JAVA_BYTE, pos);
+            if (b != ' ' && b != '\t' && b != '\r') return false;
+        }
+        return true;
+    }
+
+    private static long skipBlankLines(MemorySegment file, long pos, long size) {
+        while (pos < size) {
+            long end = lineEnd(file, pos, size);
+            if (!isBlank(file, pos, end)) return pos;
+            pos = nextLine(file, end, size);
+        }
+        return size;
+    }
+
+    private static byte detectDelimiter(MemorySegment file, long pos, long end) {
+        int tabs = 0, commas = 0, semicolons = 0;
+        for (; pos < end; pos++) {
+            byte b = file.get(ValueLayout.JAVA_BYTE, pos);
+            if (b == '\t') tabs++;
+            else if (b == ',') commas++;
+            else if (b == ';') semicolons++;
+        }
+        // Con ';' o tab le virgole sono decimali ("1,5;2,5;3,5"): possono essere anche più dei separatori
+        if (semicolons > 0) return ';';
+        if (tabs > 0) return '\t';
+        if (commas > 0) return ',';
+        return WHITESPACE;
+    }
+
+    /**
+     * Parser di una riga. Non crea stringhe: i numeri vengono letti direttamente dai byte.
+     */
+    private static final class LineParser {
+        private final MemorySegment file;
+        private final byte delimiter;
+        private final boolean decimalComma;
+        private long pos;
+
+        LineParser(MemorySegment file, byte delimiter, boolean decimalComma) {
+            this.file = file;
+            this.delimiter = delimiter;
+            this.decimalComma = decimalComma;
+        }
+
+        private byte at(long p) {
+            return file.get(ValueLayout.JAVA_BYTE, p);
+        }
+
+        private boolean isSpace(byte b) {
+            return b == ' ' || b == '\r' || (b == '\t' && delimiter != '\t');
+        }
+
+        private void skipSpaces(long end) {
+            while (pos < end && isSpace(at(pos))) pos++;
+        }
+
+        // Dopo un campo: consuma il separatore. Restituisce false a fine riga.
+        private boolean nextField(long end) {
+            skipSpaces(end);
+            if (pos >= end) return false;
+            if (delimiter == WHITESPACE) return true; // gli spazi sono già stati consumati
+            if (at(pos) != delimiter) {
+                throw new IllegalArgumentException("Carattere inatteso '" + (char) at(pos) + "'");
+            }
+            pos++;
+            return true;
+        }
+
+        int countFields(long start, long end) {
+            int count = 0;
+            pos = start;
+            skipSpaces(end);
+            while (true) {
+                skipToken(end);
+                count++;
+                if (!nextField(end)) return count;
+                skipSpaces(end);
+            }
+        }
+
+        private void skipToken(long end) {
+            while (pos < end) {
+                byte b = at(pos);
+                if (b == delimiter || isSpace(b)) break;
+                pos++;
+            }
+        }
+
+        boolean isNumericLine(long start, long end, int cols) {
+            try {
+                parseLine(start, end, new double[cols], 0);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        void parseLine(long start, long end, double[] row, int rowIndex) {
+            pos = start;
+            int col = 0;
+            skipSpaces(end);
+            while (true) {
+                if (col >= row.length) {
+                    throw new IllegalArgumentException("Riga " + (rowIndex + 1) + ": più di " + row.length + " colonne");
+                }
+                try {
+                    row[col++] = parseNumber(end);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Riga " + (rowIndex + 1) + ", colonna " + col
+                            + ": valore non numerico", e);
+                }
+                if (!nextField(end)) break;
+                skipSpaces(end);
+            }
+            if (col != row.length) {
+                throw new IllegalArgumentException("Riga " + (rowIndex + 1) + ": attese " + row.length
+                        + " colonne, trovate " + col);
+            }
+        }
+
+        /**
+         * Lettura veloce di un double: mantissa intera su long e scala con potenze di 10 esatte
+         * (se mantissa < 2^53 e |esponente| <= 22 il risultato è arrotondato correttamente).
+         * Nei casi rari fuori da questo intervallo si ricade su Double.parseDouble.
+         */
+        private double parseNumber(long end) {
+            long start = pos;
+            boolean quoted = pos < end && at(pos) == '"';
+            if (quoted) {
+                pos++;
+                start = pos;
+            }
+
+            boolean negative = false;
+            if (pos < end && (at(pos) == '-' || at(pos) == '+')) {
+                negative = at(pos) == '-';
+                pos++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean anyDigit = false;
+            boolean overflow = false;
+
+            while (pos < end) {
+                byte b = at(pos);
+                if (b < '0' || b > '9') break;
+                anyDigit = true;
+                if (digits < 19) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                } else {
+                    exponent++;
+                    overflow = true;
+                }
+                pos++;
+            }
+            if (pos < end && (at(pos) == '.' || (decimalComma && at(pos) == ','))) {
+                pos++;
+                while (pos < end) {
+                    byte b = at(pos);
+                    if (b < '0' || b > '9') break;
+                    anyDigit = true;
+                    if (digits < 19) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0) digits++;
+                        exponent--;
+                    } else {
+                        overflow = true;
+                    }
+                    pos++;
+                }
+            }
+            if (anyDigit && pos < end && (at(pos) == 'e' || at(pos) == 'E')) {
+                pos++;
+                boolean expNegative = false;
+                if (pos < end && (at(pos) == '-' || at(pos) == '+')) {
+                    expNegative = at(pos) == '-';
+                    pos++;
+                }
+                int e = 0;
+                boolean expDigit = false;
+                while (pos < end && at(pos) >= '0' && at(pos) <= '9') {
+                    if (e < 100000) e = e * 10 + (at(pos) - '0');
+                    expDigit = true;
+                    pos++;
+                }
+                if (!expDigit) throw new NumberFormatException("Esponente mancante");
+                exponent += expNegative ? -e : e;
+            }
+
+            if (!anyDigit) {
+                // Campo vuoto oppure token speciale (NaN, Infinity)
+                long tokenEnd = skipTokenFrom(start, end);
+                if (tokenEnd == start) return 0.0;
+                return slowParse(start, tokenEnd, quoted, end);
+            }
+
+            long tokenEnd = pos;
+            if (quoted) {
+                if (pos >= end || at(pos) != '"') throw new NumberFormatException("Virgolette non chiuse");
+                pos++;
+            }
+            // Il token deve finire qui (separatore, spazio o fine riga)
+            if (pos < end && at(pos) != delimiter && !isSpace(at(pos))) {
+                throw new NumberFormatException("Numero non valido");
+            }
+
+            if (!overflow && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+                double value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+                return negative ? -value : value;
+            }
+            return slowParse(start, tokenEnd, false, end);
+        }
+
+        private long skipTokenFrom(long start, long end) {
+            pos = start;
+            skipToken(end);
+            return pos;
+        }
+
+        // Percorso lento (NaN, Infinity, numeri con troppe cifre o esponenti enormi)
+        private double slowParse(long start, long tokenEnd, boolean quoted, long end) {
+            long len = tokenEnd - start;
+            byte[] bytes = new byte[(int) len];
+            MemorySegment.copy(file, ValueLayout.JAVA_BYTE, start, bytes, 0, bytes.length);
+            String token = new String(bytes, StandardCharsets.ISO_8859_1);
+            if (quoted && token.endsWith("\"")) token = token.substring(0, token.length() - 1);
+            if (decimalComma) token = token.replace(',', '.');
+            pos = tokenEnd;
+            if (pos < end && at(pos) == '"') pos++;
+            token = token.trim();
+            return token.isEmpty() ? 0.0 : Double.parseDouble(token);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example;
+
+/**
+ * Matrice numerica densa memorizzata in un unico array contiguo di double.
+ *
+ * L'elemento (i, j) si trova in data[offset + i * rowStride + j * colStride].
+ * Con rowStride = cols e colStride = 1 la matrice è row-major "compatta";
+ * trasposta e sotto-blocchi sono semplici viste che cambiano offset/stride
+ * senza copiare i dati.
+ */
+public final class DenseMatrix {
+    final double[] data;
+    final int offset;
+    final int rows, cols;
+    final int rowStride, colStride;
+
+    // Crea una matrice rows x cols inizializzata a zero
+    public DenseMatrix(int rows, int cols) {
+        this(new double[Math.multiplyExact(rows, cols)], 0, rows, cols, cols, 1);
+    }
+
+    DenseMatrix(double[] data, int offset, int rows, int cols, int rowStride, int colStride) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Dimensioni non valide: " + rows + "x" + cols);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStride = rowStride;
+        this.colStride = colStride;
+    }
+
+    /**
+     * Avvolge (senza copiarlo) un array row-major di lunghezza rows * cols.
+     */
+    public static DenseMatrix wrap(double[] data, int rows, int cols) {
+        if (data.length < (long) rows * cols) {
+            throw new IllegalArgumentException("Array troppo corto per una matrice " + rows + "x" + cols);
+        }
+        return new DenseMatrix(data, 0, rows, cols, cols, 1);
+    }
+
+    /**
+     * Copia una matrice "jagged" double[][] nel formato contiguo.
+     */
+    public static DenseMatrix of(double[][] matrix) {
+        if (matrix == null || matrix.length == 0) {
+            throw new IllegalArgumentException("Matrice vuota");
+        }
+        int r = matrix.length;
+        int c = matrix[0].length;
+        DenseMatrix m = new DenseMatrix(r, c);
+        for (int i = 0; i < r; i++) {
+            if (matrix[i].length != c) {
+                throw new IllegalArgumentException("Righe di lunghezza diversa alla riga " + i);
+            }
+            System.arraycopy(matrix[i], 0, m.data, i * c, c);
+        }
+        return m;
+    }
+
+    public static DenseMatrix scalar(double value) {
+        return wrap(new double[]{value}, 1, 1);
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    public boolean isScalar() {
+        return rows == 1 && cols == 1;
+    }
+
+    public double get(int i, int j) {
+        return data[index(i, j)];
+    }
+
+    public void set(int i, int j, double value) {
+        data[index(i, j)] = value;
+    }
+
+    int index(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") fuori da " + rows + "x" + cols);
+        }
+        return offset + i * rowStride + j * colStride;
+    }
+
+    /**
+     * True se gli elementi sono contigui in ordine row-major (nessun salto tra le righe).
+     * I kernel numerici usano questa informazione per scorrere l'array linearmente.
+     */
+    public boolean isCompact() {
+        return colStride == 1 && (rowStride == cols || rows == 1);
+    }
+
+    // --- VISTE (nessuna copia) ---
+
+    public DenseMatrix transpose() {
+        return new DenseMatrix(data, offset, cols, rows, colStride, rowStride);
+    }
+
+    public DenseMatrix subMatrix(int row0, int col0, int nRows, int nCols) {
+        if (row0 < 0 || col0 < 0 || row0 + nRows > rows || col0 + nCols > cols) {
+            throw new IndexOutOfBoundsException("Blocco " + nRows + "x" + nCols + " in (" + row0 + ", " + col0
+                    + ") fuori da " + rows + "x" + cols);
+        }
+        return new DenseMatrix(data, offset + row0 * rowStride + col0 * colStride, nRows, nCols, rowStride, colStride);
+    }
+
+    public DenseMatrix row(int i) {
+        return subMatrix(i, 0, 1, cols);
+    }
+
+    public DenseMatrix column(int j) {
+        return subMatrix(0, j, rows, 1);
+    }
+
+    // --- COPIE ---
+
+    /**
+     * Restituisce una copia compatta (row-major) della matrice o della vista.
+     */
+    public DenseMatrix copy() {
+        DenseMatrix m = new DenseMatrix(rows, cols);
+        if (isCompact()) {
+            System.arraycopy(data, offset, m.data, 0, rows * cols);
+            return m;
+        }
+        int k = 0;
+        for (int i = 0; i < rows; i++) {
+            int base = offset + i * rowStride;
+            for (int j = 0; j < cols; j++) {
+                m.data[k++] = data[base + j * colStride];
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Restituisce la matrice compatta: se stessa se lo è già, altrimenti una copia.
+     */
+    public DenseMatrix compact() {
+        return isCompact() ? this : copy();
+    }
+
+    public double[][] toArray() {
+        double[][] result = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            int base = offset + i * rowStride;
+            if (colStride == 1) {
+                System.arraycopy(data, base, result[i], 0, cols);
+            } else {
+                for (int j = 0; j < cols; j++) {
+                    result[i][j] = data[base + j * colStride];
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DenseMatrix(" + rows + "x" + cols + ")";
+    }
+}
@@ -0,0 +1,678 @@
+package org.example;
+
+/**
+ * Autovalori e autovettori di una matrice quadrata reale.
+ *
+ * - Matrice simmetrica: riduzione a tridiagonale con Householder, poi QL implicito con shift
+ *   (autovalori reali, autovettori ortonormali, in ordine decrescente).
+ * - Caso generale: riduzione a forma di Hessenberg, poi QR con doppio shift di Francis;
+ *   gli autovettori si ricavano per sostituzione all'indietro dalla forma di Schur reale.
+ *   Una coppia complessa a ± bi occupa due colonne consecutive di V: parte reale e immaginaria.
+ *
+ * Lo schema segue le routine classiche di EISPACK (tred2/tql2, orthes/hqr2). Si lavora su
+ * double[][]: gli accessi sono sia per righe che per colonne e n è tipicamente piccolo.
+ */
+public final class EigenDecomposition {
+
+    private static final double EPS = Math.ulp(1.0);
+    // Iterazioni QR massime per autovalore prima di arrendersi
+    private static final int MAX_ITERATIONS = 100;
+
+    private final int n;
+    private final boolean symmetric;
+    // Parti reale e immaginaria degli autovalori
+    private final double[] d, e;
+    private final double[][] V;
+    // Forma di Hessenberg (solo caso generale)
+    private double[][] H;
+
+    // Risultato di cdiv
+    private double cdivr, cdivi;
+
+    private EigenDecomposition(DenseMatrix A) {
+        n = A.rows;
+        d = new double[n];
+        e = new double[n];
+        V = A.toArray();
+        symmetric = isSymmetric(V);
+        if (symmetric) {
+            tridiagonalize();
+            diagonalize();
+        } else {
+            H = V.clone();
+            for (int i = 0; i < n; i++) {
+                H[i] = V[i].clone();
+                V[i] = new double[n];
+            }
+            hessenberg();
+            schur();
+            H = null;
+        }
+    }
+
+    public static EigenDecomposition of(DenseMatrix A) {
+        if (A.rows != A.cols) {
+            throw new IllegalArgumentException("Gli autovalori richiedono una matrice quadrata, non "
+                    + A.rows + "x" + A.cols);
+        }
+        return new EigenDecomposition(A);
+    }
+
+    // Simmetrica a meno dell'arrotondamento
+    private static boolean isSymmetric(double[][] a) {
+        double max = 0.0;
+        for (double[] row : a) for (double v : row) max = Math.max(max, Math.abs(v));
+        double tolerance = 16 * EPS * max;
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (Math.abs(a[i][j] - a[j][i]) > tolerance) return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    public double[] getRealEigenvalues() {
+        return d.clone();
+    }
+
+    public double[] getImagEigenvalues() {
+        return e.clone();
+    }
+
+    public boolean hasComplexEigenvalues() {
+        for (double v : e) {
+            if (v != 0.0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Autovettori per colonne (per le coppie complesse: parte reale e immaginaria affiancate).
+     * Nel caso simmetrico le colonne sono ortonormali.
+     */
+    public DenseMatrix getV() {
+        return DenseMatrix.of(V);
+    }
+
+    /**
+     * Autovettore reale j-esimo normalizzato (lunghezza 1), null se l'autovalore è complesso.
+     */
+    public double[] getEigenvector(int j) {
+        if (e[j] != 0.0) return null;
+        double[] v = new double[n];
+        double norm = 0.0;
+        for (int i = 0; i < n; i++) {
+            v[i] = V[i][j];
+            norm += v[i] * v[i];
+        }
+        norm = Math.sqrt(norm);
+        if (norm == 0.0) return v;
+        for (int i = 0; i < n; i++) v[i] /= norm;
+        return v;
+    }
+
+    // =============================================================
+    // CASO SIMMETRICO
+    // =============================================================
+
+    // Householder: V diventa la trasformazione ortogonale, d ed e diagonale e sotto-diagonale
+    private void tridiagonalize() {
+        for (int j = 0; j < n; j++) d[j] = V[n - 1][j];
+
+        for (int i = n - 1; i > 0; i--) {
+            double scale = 0.0;
+            double h = 0.0;
+            for (int k = 0; k < i; k++) scale += Math.abs(d[k]);
+            if (scale == 0.0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = V[i - 1][j];
+                    V[i][j] = 0.0;
+                    V[j][i] = 0.0;
+                }
+            } else {
+                // Vettore di Householder
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0) g = -g;
+                e[i] = scale * g;
+                h -= f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++) e[j] = 0.0;
+
+                // Trasformazione delle colonne rimanenti
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    V[j][i] = f;
+                    g = e[j] + V[j][j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += V[k][j] * d[k];
+                        e[k] += V[k][j] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0.0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++) e[j] -= hh * d[j];
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) V[k][j] -= (f * e[k] + g * d[k]);
+                    d[j] = V[i - 1][j];
+                    V[i][j] = 0.0;
+                }
+            }
+            d[i] = h;
+        }
+
+        // Accumulo delle trasformazioni
+        for (int i = 0; i < n - 1; i++) {
+            V[n - 1][i] = V[i][i];
+            V[i][i] = 1.0;
+            double h = d[i + 1];
+            if (h != 0.0) {
+                for (int k = 0; k <= i; k++) d[k] = V[k][i + 1] / h;
+                for (int j = 0; j <= i; j++) {
+                    double g = 0.0;
+                    for (int k = 0; k <= i; k++) g += V[k][i + 1] * V[k][j];
+                    for (int k = 0; k <= i; k++) V[k][j] -= g * d[k];
+                }
+            }
+            for (int k = 0; k <= i; k++) V[k][i + 1] = 0.0;
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = V[n - 1][j];
+            V[n - 1][j] = 0.0;
+        }
+        V[n - 1][n - 1] = 1.0;
+        e[0] = 0.0;
+    }
+
+    // QL implicito con shift sulla tridiagonale (d, e), ruotando anche V
+    private void diagonalize() {
+        for (int i = 1; i < n; i++) e[i - 1] = e[i];
+        e[n - 1] = 0.0;
+
+        double f = 0.0;
+        double tst1 = 0.0;
+        for (int l = 0; l < n; l++) {
+            // Cerca un elemento sotto-diagonale trascurabile
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n) {
+                if (Math.abs(e[m]) <= EPS * tst1) break;
+                m++;
+            }
+
+            // Se m == l, d[l] è già un autovalore; altrimenti si itera
+            if (m > l) {
+                int iter = 0;
+                do {
+                    if (++iter > MAX_ITERATIONS) {
+                        throw new ArithmeticException("Autovalori: il metodo QR non converge");
+                    }
+                    // Shift
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = Math.hypot(p, 1.0);
+                    if (p < 0) r = -r;
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++) d[i] -= h;
+                    f += h;
+
+                    // Trasformazione QL implicita
+                    p = d[m];
+                    double c = 1.0, c2 = c, c3 = c;
+                    double el1 = e[l + 1];
+                    double s = 0.0, s2 = 0.0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Math.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+                        for (int k = 0; k < n; k++) {
+                            h = V[k][i + 1];
+                            V[k][i + 1] = s * V[k][i] + c * h;
+                            V[k][i] = c * V[k][i] - s * h;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+                } while (Math.abs(e[l]) > EPS * tst1);
+            }
+            d[l] += f;
+            e[l] = 0.0;
+        }
+
+        // Ordine decrescente, con gli autovettori
+        for (int i = 0; i < n - 1; i++) {
+            int k = i;
+            double p = d[i];
+            for (int j = i + 1; j < n; j++) {
+                if (d[j] > p) {
+                    k = j;
+                    p = d[j];
+                }
+            }
+            if (k != i) {
+                d[k] = d[i];
+                d[i] = p;
+                for (int j = 0; j < n; j++) {
+                    p = V[j][i];
+                    V[j][i] = V[j][k];
+                    V[j][k] = p;
+                }
+            }
+        }
+    }
+
+    // =============================================================
+    // CASO GENERALE
+    // =============================================================
+
+    // Riduzione a Hessenberg superiore con Householder; V accumula le trasformazioni
+    private void hessenberg() {
+        double[] ort = new double[n];
+        int high = n - 1;
+
+        for (int m = 1; m <= high - 1; m++) {
+            double scale = 0.0;
+            for (int i = m; i <= high; i++) scale += Math.abs(H[i][m - 1]);
+            if (scale == 0.0) continue;
+
+            double h = 0.0;
+            for (int i = high; i >= m; i--) {
+                ort[i] = H[i][m - 1] / scale;
+                h += ort[i] * ort[i];
+            }
+            double g = Math.sqrt(h);
+            if (ort[m] > 0) g = -g;
+            h -= ort[m] * g;
+            ort[m] -= g;
+
+            // H = (I - u u^T / h) H (I - u u^T / h)
+            for (int j = m; j < n; j++) {
+                double f = 0.0;
+                for (int i = high; i >= m; i--) f += ort[i] * H[i][j];
+                f /= h;
+                for (int i = m; i <= high; i++) H[i][j] -= f * ort[i];
+            }
+            for (int i = 0; i <= high; i++) {
+                double f = 0.0;
+                for (int j = high; j >= m; j--) f += ort[j] * H[i][j];
+                f /= h;
+                for (int j = m; j <= high; j++) H[i][j] -= f * ort[j];
+            }
+            ort[m] = scale * ort[m];
+            H[m][m - 1] = scale * g;
+        }
+
+        // Accumulo delle trasformazioni
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) V[i][j] = i == j ? 1.0 : 0.0;
+        }
+        for (int m = high - 1; m >= 1; m--) {
+            if (H[m][m - 1] == 0.0) continue;
+            for (int i = m + 1; i <= high; i++) ort[i] = H[i][m - 1];
+            for (int j = m; j <= high; j++) {
+                double g = 0.0;
+                for (int i = m; i <= high; i++) g += ort[i] * V[i][j];
+                // Doppia divisione: evita underflow
+                g = (g / ort[m]) / H[m][m - 1];
+                for (int i = m; i <= high; i++) V[i][j] += g * ort[i];
+            }
+        }
+    }
+
+    // Divisione complessa (xr + i xi) / (yr + i yi)
+    private void cdiv(double xr, double xi, double yr, double yi) {
+        double r, den;
+        if (Math.abs(yr) > Math.abs(yi)) {
+            r = yi / yr;
+            den = yr + r * yi;
+            cdivr = (xr + r * xi) / den;
+            cdivi = (xi - r * xr) / den;
+        } else {
+            r = yr / yi;
+            den = yi + r * yr;
+            cdivr = (r * xr + xi) / den;
+            cdivi = (r * xi - xr) / den;
+        }
+    }
+
+    /**
+     * Da Hessenberg a forma di Schur reale con il QR a doppio shift, poi autovettori
+     * per sostituzione all'indietro e ritorno alla base di partenza.
+     */
+    private void schur() {
+        int nn = n;
+        int top = nn - 1;
+        double exshift = 0.0;
+        double p = 0, q = 0, r = 0, s = 0, z = 0, t, w, x, y;
+
+        double norm = 0.0;
+        for (int i = 0; i < nn; i++) {
+            for (int j = Math.max(i - 1, 0); j < nn; j++) norm += Math.abs(H[i][j]);
+        }
+
+        int iter = 0;
+        while (top >= 0) {
+            // Cerca un elemento sotto-diagonale trascurabile
+            int l = top;
+            while (l > 0) {
+                s = Math.abs(H[l - 1][l - 1]) + Math.abs(H[l][l]);
+                if (s == 0.0) s = norm;
+                if (Math.abs(H[l][l - 1]) < EPS * s) break;
+                l--;
+            }
+
+            if (l == top) {
+                // Un autovalore reale
+                H[top][top] += exshift;
+                d[top] = H[top][top];
+                e[top] = 0.0;
+                top--;
+                iter = 0;
+            } else if (l == top - 1) {
+                // Blocco 2x2: due autovalori reali o una coppia complessa
+                w = H[top][top - 1] * H[top - 1][top];
+                p = (H[top - 1][top - 1] - H[top][top]) / 2.0;
+                q = p * p + w;
+                z = Math.sqrt(Math.abs(q));
+                H[top][top] += exshift;
+                H[top - 1][top - 1] += exshift;
+                x = H[top][top];
+
+                if (q >= 0) {
+                    z = p >= 0 ? p + z : p - z;
+                    d[top - 1] = x + z;
+                    d[top] = d[top - 1];
+                    if (z != 0.0) d[top] = x - w / z;
+                    e[top - 1] = 0.0;
+                    e[top] = 0.0;
+                    x = H[top][top - 1];
+                    s = Math.abs(x) + Math.abs(z);
+                    p = x / s;
+                    q = z / s;
+                    r = Math.sqrt(p * p + q * q);
+                    p /= r;
+                    q /= r;
+
+                    // Rotazione di righe, colonne e di V
+                    for (int j = top - 1; j < nn; j++) {
+                        z = H[top - 1][j];
+                        H[top - 1][j] = q * z + p * H[top][j];
+                        H[top][j] = q * H[top][j] - p * z;
+                    }
+                    for (int i = 0; i <= top; i++) {
+                        z = H[i][top - 1];
+                        H[i][top - 1] = q * z + p * H[i][top];
+                        H[i][top] = q * H[i][top] - p * z;
+                    }
+                    for (int i = 0; i < nn; i++) {
+                        z = V[i][top - 1];
+                        V[i][top - 1] = q * z + p * V[i][top];
+                        V[i][top] = q * V[i][top] - p * z;
+                    }
+                } else {
+                    d[top - 1] = x + p;
+                    d[top] = x + p;
+                    e[top - 1] = z;
+                    e[top] = -z;
+                }
+                top -= 2;
+                iter = 0;
+            } else {
+                // Nessuna convergenza: shift
+                x = H[top][top];
+                y = 0.0;
+                w = 0.0;
+                if (l < top) {
+                    y = H[top - 1][top - 1];
+                    w = H[top][top - 1] * H[top - 1][top];
+                }
+
+                // Shift eccezionali per uscire dai cicli (Wilkinson, poi quello di MATLAB)
+                if (iter == 10) {
+                    exshift += x;
+                    for (int i = 0; i <= top; i++) H[i][i] -= x;
+                    s = Math.abs(H[top][top - 1]) + Math.abs(H[top - 1][top - 2]);
+                    x = y = 0.75 * s;
+                    w = -0.4375 * s * s;
+                }
+                if (iter == 30) {
+                    s = (y - x) / 2.0;
+                    s = s * s + w;
+                    if (s > 0) {
+                        s = Math.sqrt(s);
+                        if (y < x) s = -s;
+                        s = x - w / ((y - x) / 2.0 + s);
+                        for (int i = 0; i <= top; i++) H[i][i] -= s;
+                        exshift += s;
+                        x = y = w = 0.964;
+                    }
+                }
+                if (++iter > MAX_ITERATIONS) {
+                    throw new ArithmeticException("Autovalori: il metodo QR non converge");
+                }
+
+                // Cerca due elementi sotto-diagonali consecutivi piccoli
+                int m = top - 2;
+                while (m >= l) {
+                    z = H[m][m];
+                    r = x - z;
+                    s = y - z;
+                    p = (r * s - w) / H[m + 1][m] + H[m][m + 1];
+                    q = H[m + 1][m + 1] - z - r - s;
+                    r = H[m + 2][m + 1];
+                    s = Math.abs(p) + Math.abs(q) + Math.abs(r);
+                    p /= s;
+                    q /= s;
+                    r /= s;
+                    if (m == l) break;
+                    if (Math.abs(H[m][m - 1]) * (Math.abs(q) + Math.abs(r))
+                            < EPS * (Math.abs(p) * (Math.abs(H[m - 1][m - 1]) + Math.abs(z) + Math.abs(H[m + 1][m + 1])))) {
+                        break;
+                    }
+                    m--;
+                }
+                for (int i = m + 2; i <= top; i++) {
+                    H[i][i - 2] = 0.0;
+                    if (i > m + 2) H[i][i - 3] = 0.0;
+                }
+
+                // Passo QR doppio sulle righe l..top e colonne m..top
+                for (int k = m; k <= top - 1; k++) {
+                    boolean notLast = k != top - 1;
+                    if (k != m) {
+                        p = H[k][k - 1];
+                        q = H[k + 1][k - 1];
+                        r = notLast ? H[k + 2][k - 1] : 0.0;
+                        x = Math.abs(p) + Math.abs(q) + Math.abs(r);
+                        if (x == 0.0) continue;
+                        p /= x;
+                        q /= x;
+                        r /= x;
+                    }
+                    s = Math.sqrt(p * p + q * q + r * r);
+                    if (p < 0) s = -s;
+                    if (s == 0) continue;
+
+                    if (k != m) H[k][k - 1] = -s * x;
+                    else if (l != m) H[k][k - 1] = -H[k][k - 1];
+                    p += s;
+                    x = p / s;
+                    y = q / s;
+                    z = r / s;
+                    q /= p;
+                    r /= p;
+
+                    for (int j = k; j < nn; j++) {
+                        p = H[k][j] + q * H[k + 1][j];
+                        if (notLast) {
+                            p += r * H[k + 2][j];
+                            H[k + 2][j] -= p * z;
+                        }
+                        H[k][j] -= p * x;
+                        H[k + 1][j] -= p * y;
+                    }
+                    for (int i = 0; i <= Math.min(top, k + 3); i++) {
+                        p = x * H[i][k] + y * H[i][k + 1];
+                        if (notLast) {
+                            p += z * H[i][k + 2];
+                            H[i][k + 2] -= p * r;
+                        }
+                        H[i][k] -= p;
+                        H[i][k + 1] -= p * q;
+                    }
+                    for (int i = 0; i < nn; i++) {
+                        p = x * V[i][k] + y * V[i][k + 1];
+                        if (notLast) {
+                            p += z * V[i][k + 2];
+                            V[i][k + 2] -= p * r;
+                        }
+                        V[i][k] -= p;
+                        V[i][k + 1] -= p * q;
+                    }
+                }
+            }
+        }
+
+        if (norm == 0.0) return;
+
+        // Sostituzione all'indietro: autovettori della forma triangolare
+        for (top = nn - 1; top >= 0; top--) {
+            p = d[top];
+            q = e[top];
+
+            if (q == 0) {
+                // Vettore reale
+                int l = top;
+                H[top][top] = 1.0;
+                for (int i = top - 1; i >= 0; i--) {
+                    w = H[i][i] - p;
+                    r = 0.0;
+                    for (int j = l; j <= top; j++) r += H[i][j] * H[j][top];
+                    if (e[i] < 0.0) {
+                        z = w;
+                        s = r;
+                    } else {
+                        l = i;
+                        if (e[i] == 0.0) {
+                            H[i][top] = w != 0.0 ? -r / w : -r / (EPS * norm);
+                        } else {
+                            x = H[i][i + 1];
+                            y = H[i + 1][i];
+                            q = (d[i] - p) * (d[i] - p) + e[i] * e[i];
+                            t = (x * s - z * r) / q;
+                            H[i][top] = t;
+                            H[i + 1][top] = Math.abs(x) > Math.abs(z) ? (-r - w * t) / x : (-s - y * t) / z;
+                        }
+                        // Controllo overflow
+                        t = Math.abs(H[i][top]);
+                        if ((EPS * t) * t > 1) {
+                            for (int j = i; j <= top; j++) H[j][top] /= t;
+                        }
+                    }
+                }
+            } else if (q < 0) {
+                // Vettore complesso (ultima componente immaginaria)
+                int l = top - 1;
+                if (Math.abs(H[top][top - 1]) > Math.abs(H[top - 1][top])) {
+                    H[top - 1][top - 1] = q / H[top][top - 1];
+                    H[top - 1][top] = -(H[top][top] - p) / H[top][top - 1];
+                } else {
+                    cdiv(0.0, -H[top - 1][top], H[top - 1][top - 1] - p, q);
+                    H[top - 1][top - 1] = cdivr;
+                    H[top - 1][top] = cdivi;
+                }
+                H[top][top - 1] = 0.0;
+                H[top][top] = 1.0;
+                for (int i = top - 2; i >= 0; i--) {
+                    double ra = 0.0, sa = 0.0, vr, vi;
+                    for (int j = l; j <= top; j++) {
+                        ra += H[i][j] * H[j][top - 1];
+                        sa += H[i][j] * H[j][top];
+                    }
+                    w = H[i][i] - p;
+
+                    if (e[i] < 0.0) {
+                        z = w;
+                        r = ra;
+                        s = sa;
+                    } else {
+                        l = i;
+                        if (e[i] == 0) {
+                            cdiv(-ra, -sa, w, q);
+                            H[i][top - 1] = cdivr;
+                            H[i][top] = cdivi;
+                        } else {
+                            x = H[i][i + 1];
+                            y = H[i + 1][i];
+                            vr = (d[i] - p) * (d[i] - p) + e[i] * e[i] - q * q;
+                            vi = (d[i] - p) * 2.0 * q;
+                            if (vr == 0.0 && vi == 0.0) {
+                                vr = EPS * norm * (Math.abs(w) + Math.abs(q) + Math.abs(x) + Math.abs(y) + Math.abs(z));
+                            }
+                            cdiv(x * r - z * ra + q * sa, x * s - z * sa - q * ra, vr, vi);
+                            H[i][top - 1] = cdivr;
+                            H[i][top] = cdivi;
+                            if (Math.abs(x) > (Math.abs(z) + Math.abs(q))) {
+                                H[i + 1][top - 1] = (-ra - w * H[i][top - 1] + q * H[i][top]) / x;
+                                H[i + 1][top] = (-sa - w * H[i][top] - q * H[i][top - 1]) / x;
+                            } else {
+                                cdiv(-r - y * H[i][top - 1], -s - y * H[i][top], z, q);
+                                H[i + 1][top - 1] = cdivr;
+                                H[i + 1][top] = cdivi;
+                            }
+                        }
+                        // Controllo overflow
+                        t = Math.max(Math.abs(H[i][top - 1]), Math.abs(H[i][top]));
+                        if ((EPS * t) * t > 1) {
+                            for (int j = i; j <= top; j++) {
+                                H[j][top - 1] /= t;
+                                H[j][top] /= t;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // Ritorno alla base di partenza: V = V * (autovettori della forma di Schur)
+        for (int j = nn - 1; j >= 0; j--) {
+            for (int i = 0; i < nn; i++) {
+                z = 0.0;
+                for (int k = 0; k <= j; k++) z += V[i][k] * H[k][j];
+                V[i][j] = z;
+            }
+        }
+    }
+}
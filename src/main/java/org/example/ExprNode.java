@@ -0,0 +1,62 @@
+package org.example;
+
+/**
+ * Nodo dell'albero sintattico prodotto da MathEvaluator.
+ *
+ * I nodi sono immutabili e non contengono valori delle variabili, solo i loro nomi:
+ * lo stesso albero può essere valutato quante volte si vuole (vedi Expression),
+ * ogni volta con lo stato corrente di VariableManager.
+ */
+sealed interface ExprNode {
+
+    // Numero scritto nella formula (es. "2.5"); il testo serve alla valutazione simbolica
+    record Literal(String text, double value) implements ExprNode {}
+
+    // Costante matematica (pi, e)
+    record Constant(String latex, double value) implements ExprNode {}
+
+    record Variable(String name) implements ExprNode {}
+
+    record Negate(ExprNode operand) implements ExprNode {}
+
+    record Add(ExprNode left, ExprNode right) implements ExprNode {}
+
+    record Subtract(ExprNode left, ExprNode right) implements ExprNode {}
+
+    record Multiply(ExprNode left, ExprNode right) implements ExprNode {}
+
+    record Divide(ExprNode left, ExprNode right) implements ExprNode {}
+
+    record Transpose(ExprNode operand) implements ExprNode {}
+
+    // Potenza intera: A^3, A^-1 (l'inversa), A^0 (l'identità)
+    record Power(ExprNode base, int exponent) implements ExprNode {}
+
+    // Sistema lineare: A \ b è la soluzione x di A x = b
+    record Solve(ExprNode left, ExprNode right) implements ExprNode {}
+
+    // Funzione applicata a una matrice, es. det(A)
+    record Call(Function function, ExprNode argument) implements ExprNode {}
+
+    enum Function {
+        DET("det", true), INV("inv", true), RANK("rank", true),
+        QR("qr", false), ORTH("orth", false), EIG("eig", false),
+        SVD("svd", false), EXPM("expm", false);
+
+        final String name;
+        // false se il risultato non ha una forma esatta (radici, iterazioni): solo numerico
+        final boolean exact;
+
+        Function(String name, boolean exact) {
+            this.name = name;
+            this.exact = exact;
+        }
+
+        static Function byName(String name) {
+            for (Function f : values()) {
+                if (f.name.equals(name)) return f;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Formula già analizzata da MathEvaluator.compile(): il testo viene letto una volta sola,
+ * poi l'albero può essere valutato tutte le volte che serve (es. ricalcolo dopo aver
+ * cambiato una variabile) senza rifare il parsing.
+ *
+ * Ogni valutazione legge le variabili da una sola fotografia di VariableManager (quella corrente,
+ * o una passata dal chiamante): il risultato è coerente anche se altri thread assegnano variabili.
+ *
+ * Sottoespressioni comuni: i sottoalberi uguali (es. A^T in A^T*A + A^T*b) diventano lo stesso
+ * nodo, e i risultati dei nodi condivisi, delle funzioni, delle potenze, dei sistemi e della
+ * formula intera passano da ResultCache. Si calcolano una volta sola per valutazione, e anche
+ * fra valutazioni e formule diverse finché le variabili lette non cambiano versione.
+ */
+public final class Expression {
+    // Oltre queste celle (sommate su tutte le variabili) evaluate() non calcola in modo esatto
+    static final int EXACT_MAX_CELLS = 400;
+
+    private final String source;
+    private final ExprNode root;
+    private final Set<String> variables;
+    // false se la formula usa funzioni solo numeriche (es. qr)
+    private final boolean exact;
+    // Nodi il cui risultato va in ResultCache, con le variabili che leggono (per le versioni)
+    private final Map<ExprNode, String[]> memoized = new IdentityHashMap<>();
+
+    // Ultima versione compilata in bytecode: finché le dimensioni non cambiano non serve
+    // nemmeno passare dalla cache di FormulaCompiler
+    private volatile CompiledFormula compiled;
+
+    Expression(String source, ExprNode root) {
+        this.source = source;
+        this.root = share(root, new HashMap<>());
+        Set<String> names = new LinkedHashSet<>();
+        collectVariables(this.root, names);
+        this.variables = Collections.unmodifiableSet(names);
+        this.exact = isExact(this.root);
+
+        Map<ExprNode, Integer> uses = new IdentityHashMap<>();
+        countUses(this.root, uses);
+        for (Map.Entry<ExprNode, Integer> use : uses.entrySet()) {
+            ExprNode node = use.getKey();
+            if (node == this.root || isExpensive(node) || use.getValue() > 1 && !isTrivial(node)) {
+                Set<String> read = new LinkedHashSet<>();
+                collectVariables(node, read);
+                memoized.put(node, read.toArray(String[]::new));
+            }
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    ExprNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Nomi delle variabili usate dalla formula, nell'ordine in cui compaiono.
+     */
+    public Set<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Valutazione simbolica: funziona anche con matrici che contengono lettere.
+     * Con variabili tutte numeriche e grandi (oltre EXACT_MAX_CELLS celle in tutto) il risultato
+     * è quello numerico: i prodotti passano dal GEMM, i sistemi dalla LU in cache.
+     */
+    public String[][] evaluate() {
+        return evaluate(VariableManager.snapshot());
+    }
+
+    /**
+     * Come evaluate(), con le variabili di una fotografia presa prima (es. da un calcolo in background).
+     */
+    public String[][] evaluate(VariableManager.Snapshot vars) {
+        Evaluation evaluation = new Evaluation(vars);
+        // Funzioni come qr non hanno un risultato esatto: con variabili numeriche si mostrano
+        // direttamente i decimali del calcolo numerico. Lo stesso con matrici numeriche grandi:
+        // l'aritmetica esatta (frazioni di BigInteger) costerebbe ordini di grandezza in più
+        if ((!exact || evaluation.isLargeNumeric()) && evaluation.hasNumericValues()) {
+            // eig(A) da solo può mostrare anche gli autovalori complessi
+            if (root instanceof ExprNode.Call call && call.function() == ExprNode.Function.EIG) {
+                return eigenvalueStrings(LinearAlgebra.eigenvalues(evaluation.numeric(call.argument())));
+            }
+            return MatrixUtils.toStrings(evaluation.numeric(root));
+        }
+        // Il calcolo resta strutturato, il LaTeX viene prodotto una volta sola alla fine
+        return MatrixUtils.toStrings(evaluation.symbolic(root));
+    }
+
+    public SymExpr[][] evaluateSymbolic() {
+        return evaluateSymbolic(VariableManager.snapshot());
+    }
+
+    public SymExpr[][] evaluateSymbolic(VariableManager.Snapshot vars) {
+        return new Evaluation(vars).symbolic(root);
+    }
+
+    /**
+     * Valutazione numerica con i kernel di MatrixUtils.
+     * Restituisce null se almeno una delle variabili usate non è numerica.
+     */
+    public DenseMatrix evaluateNumeric() {
+        return evaluateNumeric(VariableManager.snapshot());
+    }
+
+    public DenseMatrix evaluateNumeric(VariableManager.Snapshot vars) {
+        Evaluation evaluation = new Evaluation(vars);
+        return evaluation.hasNumericValues() ? evaluation.numeric(root) : null;
+    }
+
+
+    // a + bi in colonna
+    private static String[][] eigenvalueStrings(double[][] values) {
+        String[][] result = new String[values.length][1];
+        for (int i = 0; i < values.length; i++) {
+            double re = values[i][0], im = values[i][1];
+            if (im == 0.0) {
+                result[i][0] = MatrixUtils.formatDouble(re);
+                continue;
+            }
+            String imaginary = (Math.abs(im) == 1.0 ? "" : MatrixUtils.formatDouble(Math.abs(im))) + "i";
+            if (re == 0.0) result[i][0] = (im < 0 ? "-" : "") + imaginary;
+            else result[i][0] = MatrixUtils.formatDouble(re) + (im < 0 ? " - " : " + ") + imaginary;
+        }
+        return result;
+    }
+
+    /**
+     * Come evaluateNumeric(), ma esegue la formula compilata in bytecode (vedi FormulaCompiler).
+     * Conviene quando la stessa formula va ricalcolata moltissime volte.
+     */
+    public DenseMatrix evaluateCompiled() {
+        DenseMatrix[] values = new Evaluation(VariableManager.snapshot()).currentValues();
+        return values == null ? null : compiledFor(values).apply(values);
+    }
+
+    /**
+     * Compila la formula per le dimensioni attuali delle variabili, per usarla direttamente
+     * in un ciclo con valori propri. Restituisce null se una variabile non è numerica.
+     */
+    public CompiledFormula compileNumeric() {
+        DenseMatrix[] values = new Evaluation(VariableManager.snapshot()).currentValues();
+        return values == null ? null : compiledFor(values);
+    }
+
+
+    private CompiledFormula compiledFor(DenseMatrix[] values) {
+        CompiledFormula formula = compiled;
+        if (formula == null || !formula.matches(values)) {
+            int[] shapes = new int[values.length * 2];
+            for (int i = 0; i < values.length; i++) {
+                shapes[2 * i] = values[i].rows;
+                shapes[2 * i + 1] = values[i].cols;
+            }
+            formula = FormulaCompiler.compile(this, shapes);
+            compiled = formula;
+        }
+        return formula;
+    }
+
+    // a*b è un anello della catena se nessuno dei due è scalare e le dimensioni combaciano
+    private static boolean chains(SymExpr[][] a, SymExpr[][] b) {
+        boolean scalar = a.length == 1 && a[0].length == 1 || b.length == 1 && b[0].length == 1;
+        return !scalar && a[0].length == b.length;
+    }
+
+    private static SymExpr[][] multiplyChain(List<SymExpr[][]> chain) {
+        int n = chain.size();
+        int[] dims = new int[n + 1];
+        for (int i = 0; i < n; i++) dims[i] = chain.get(i).length;
+        dims[n] = chain.get(n - 1)[0].length;
+        return multiplyChain(chain, MatrixChain.split(dims, null), 0, n - 1);
+    }
+
+    private static SymExpr[][] multiplyChain(List<SymExpr[][]> chain, int[][] split, int i, int j) {
+        if (i == j) return chain.get(i);
+        int k = split[i][j];
+        return MatrixUtils.multiplySymbolic(multiplyChain(chain, split, i, k), multiplyChain(chain, split, k + 1, j));
+    }
+
+    private static DenseMatrix numericArgument(ExprNode.Function function, SymExpr[][] argument) {
+        DenseMatrix numeric = MatrixUtils.toNumeric(argument);
+        if (numeric == null) {
+            throw new IllegalArgumentException("La funzione " + function.name + " richiede una matrice numerica.");
+        }
+        return numeric;
+    }
+
+    private static DenseMatrix call(ExprNode.Function function, DenseMatrix argument) {
+        return switch (function) {
+            case DET -> DenseMatrix.scalar(LinearAlgebra.determinant(argument));
+            case INV -> LinearAlgebra.inverse(argument);
+            case RANK -> DenseMatrix.scalar(LinearAlgebra.rank(argument));
+            case QR -> LinearAlgebra.qr(argument);
+            case ORTH -> LinearAlgebra.orth(argument);
+            case EIG -> LinearAlgebra.eig(argument);
+            case SVD -> LinearAlgebra.svd(argument);
+            case EXPM -> LinearAlgebra.expm(argument);
+        };
+    }
+
+    private static DenseMatrix divide(DenseMatrix A, DenseMatrix B) {
+        double denominator = divisor(B);
+        if (A.isScalar()) return DenseMatrix.scalar(A.get(0, 0) / denominator);
+        return MatrixUtils.multiplyScalar(A, 1.0 / denominator);
+    }
+
+    // Stesse regole di MatrixUtils.divideSymbolic
+    private static double divisor(DenseMatrix B) {
+        if (!B.isScalar()) {
+            throw new IllegalArgumentException("Divisione supportata solo per scalari (denominatore deve essere 1x1).");
+        }
+        double denominator = B.get(0, 0);
+        if (denominator == 0.0) throw new ArithmeticException("Divisione per zero");
+        return denominator;
+    }
+
+    /**
+     * Una valutazione: tutte le variabili si leggono dalla stessa fotografia di VariableManager,
+     * quindi un save fatto nel frattempo da un altro thread non può mescolare valori vecchi e nuovi.
+     */
+    private final class Evaluation {
+        private final VariableManager.Snapshot vars;
+
+        Evaluation(VariableManager.Snapshot vars) {
+            this.vars = vars;
+        }
+
+        // Variabili con più di EXACT_MAX_CELLS celle in tutto, o memorizzate fuori heap / sparse:
+        // in forma simbolica diventerebbero un SymExpr per cella (e A \ b non userebbe la LU in cache)
+        private boolean isLargeNumeric() {
+            long cells = 0;
+            for (String name : variables) {
+                MatrixData data = lookup(name);
+                if (data.getOffHeapValues() != null || data.getSparseValues() != null) return true;
+                DenseMatrix values = data.getDenseValues();
+                if (values == null) return false;
+                cells += (long) values.rows * values.cols;
+            }
+            return cells > EXACT_MAX_CELLS;
+        }
+
+        private boolean hasNumericValues() {
+            for (String name : variables) {
+                if (!lookup(name).isNumeric()) return false;
+            }
+            return true;
+        }
+
+        // Valori correnti delle variabili nell'ordine di getVariables(), null se una è simbolica
+        private DenseMatrix[] currentValues() {
+            DenseMatrix[] values = new DenseMatrix[variables.size()];
+            int i = 0;
+            for (String name : variables) {
+                values[i] = lookup(name).getDenseValues();
+                if (values[i++] == null) return null;
+            }
+            return values;
+        }
+
+        private SymExpr[][] symbolic(ExprNode node) {
+            String[] read = memoized.get(node);
+            if (read == null) return computeSymbolic(node);
+            long[] versions = versions(read);
+            SymExpr[][] cached = ResultCache.getSymbolic(node, versions);
+            if (cached == null) {
+                cached = computeSymbolic(node);
+                ResultCache.putSymbolic(node, versions, cached);
+            }
+            return cached;
+        }
+
+        private SymExpr[][] computeSymbolic(ExprNode node) {
+            return switch (node) {
+                // Dal testo, non dal double: "0.1" resta esattamente 1/10
+                case ExprNode.Literal n -> new SymExpr[][]{{SymExpr.number(Rational.parse(n.text()))}};
+                case ExprNode.Constant n -> new SymExpr[][]{{SymExpr.symbol(n.latex())}};
+                case ExprNode.Variable n -> lookup(n.name()).getSymbolicValues();
+                case ExprNode.Negate n -> MatrixUtils.negateSymbolic(symbolic(n.operand()));
+                case ExprNode.Add n -> MatrixUtils.addSymbolic(symbolic(n.left()), symbolic(n.right()));
+                case ExprNode.Subtract n -> MatrixUtils.subtractSymbolic(symbolic(n.left()), symbolic(n.right()));
+                case ExprNode.Multiply n -> chainSymbolic(n);
+                case ExprNode.Divide n -> MatrixUtils.divideSymbolic(symbolic(n.left()), symbolic(n.right()));
+                case ExprNode.Transpose n -> MatrixUtils.transposeSymbolic(symbolic(n.operand()));
+                case ExprNode.Power n -> {
+                    SymExpr[][] base = symbolic(n.base());
+                    if (n.exponent() < 0) base = Bareiss.inverse(base);
+                    yield MatrixUtils.powerSymbolic(base, Math.abs((long) n.exponent()));
+                }
+                case ExprNode.Solve n -> {
+                    SymExpr[][] A = symbolic(n.left());
+                    SymExpr[][] b = symbolic(n.right());
+                    // s \ b = b / s, come per i numeri
+                    if (A.length == 1 && A[0].length == 1) yield MatrixUtils.divideSymbolic(b, A);
+                    yield A.length == A[0].length ? Bareiss.solve(A, b) : Bareiss.leastSquares(A, b);
+                }
+                // Bareiss: nessuna frazione annidata, e con soli numeri il risultato è esatto
+                case ExprNode.Call n -> {
+                    SymExpr[][] argument = symbolic(n.argument());
+                    yield switch (n.function()) {
+                        case DET -> new SymExpr[][]{{Bareiss.determinant(argument)}};
+                        case INV -> Bareiss.inverse(argument);
+                        case RANK -> new SymExpr[][]{{SymExpr.number(Rational.of(Bareiss.rank(argument)))}};
+                        case QR, ORTH, EIG, SVD, EXPM -> MatrixUtils.toSymbolic(call(n.function(), numericArgument(n.function(), argument)));
+                    };
+                }
+            };
+        }
+
+        /**
+         * Prodotti consecutivi nell'ordine più economico (MatrixChain), come nella valutazione
+         * numerica: A*B*C*v diventa A*(B*(C*v)). La catena si spezza sugli scalari e dove le
+         * dimensioni non si concatenano (es. v^T*v*A: v^T*v è uno scalare che moltiplica A).
+         */
+        private SymExpr[][] chainSymbolic(ExprNode.Multiply node) {
+            List<SymExpr[][]> factors = new ArrayList<>();
+            collectFactors(node, factors);
+            SymExpr[][] result = null;
+            int start = 0;
+            for (int i = 1; i <= factors.size(); i++) {
+                if (i == factors.size() || !chains(factors.get(i - 1), factors.get(i))) {
+                    SymExpr[][] run = multiplyChain(factors.subList(start, i));
+                    result = result == null ? run : MatrixUtils.multiplySymbolic(result, run);
+                    start = i;
+                }
+            }
+            return result;
+        }
+
+        // I prodotti annidati (anche fra parentesi) si uniscono in una sola lista di fattori
+        private void collectFactors(ExprNode node, List<SymExpr[][]> factors) {
+            if (node instanceof ExprNode.Multiply m) {
+                collectFactors(m.left(), factors);
+                collectFactors(m.right(), factors);
+            } else {
+                factors.add(symbolic(node));
+            }
+        }
+
+        private DenseMatrix numeric(ExprNode node) {
+            String[] read = memoized.get(node);
+            if (read == null) return computeNumeric(node);
+            long[] versions = versions(read);
+            DenseMatrix cached = ResultCache.getNumeric(node, versions);
+            if (cached == null) {
+                cached = computeNumeric(node);
+                ResultCache.putNumeric(node, versions, cached);
+            }
+            return cached;
+        }
+
+        /**
+         * Versione di ogni variabile letta: cambia se la variabile viene riassegnata (VariableManager.save).
+         * MatrixData non cambia dopo la creazione, quindi basta questa.
+         */
+        private long[] versions(String[] read) {
+            long[] versions = new long[read.length];
+            for (int i = 0; i < read.length; i++) {
+                versions[i] = vars.getVersion(read[i]);
+            }
+            return versions;
+        }
+
+        private DenseMatrix computeNumeric(ExprNode node) {
+            return switch (node) {
+                case ExprNode.Literal n -> DenseMatrix.scalar(n.value());
+                case ExprNode.Constant n -> DenseMatrix.scalar(n.value());
+                case ExprNode.Variable n -> lookup(n.name()).getDenseValues();
+                // Aritmetica: un grafo pigro valutato in una volta (combinazioni fuse, catene di prodotti)
+                case ExprNode.Negate n -> lazy(n).evaluate();
+                case ExprNode.Add n -> lazy(n).evaluate();
+                case ExprNode.Subtract n -> lazy(n).evaluate();
+                case ExprNode.Multiply n -> lazy(n).evaluate();
+                case ExprNode.Divide n -> divide(numeric(n.left()), numeric(n.right()));
+                // La trasposta è una vista: nessuna copia
+                case ExprNode.Transpose n -> MatrixUtils.getTranspose(numeric(n.operand()));
+                case ExprNode.Power n -> LinearAlgebra.power(numeric(n.base()), n.exponent());
+                case ExprNode.Solve n -> solve(n.left(), numeric(n.right()));
+                case ExprNode.Call n -> call(n.function(), numeric(n.argument()));
+            };
+        }
+
+        /**
+         * Somme, differenze, prodotti e multipli scalari (anche A / s) diventano nodi di LazyMatrix;
+         * tutto il resto è una foglia già calcolata. Le variabili sparse (e le loro trasposte) restano
+         * sparse: i prodotti costano quanto i non-zero. Quelle fuori heap restano fuori heap.
+         */
+        private LazyMatrix lazy(ExprNode node) {
+            return switch (node) {
+                case ExprNode.Negate n -> operand(n.operand()).scale(-1.0);
+                case ExprNode.Add n -> operand(n.left()).add(operand(n.right()));
+                case ExprNode.Subtract n -> operand(n.left()).subtract(operand(n.right()));
+                case ExprNode.Multiply n -> operand(n.left()).multiply(operand(n.right()));
+                case ExprNode.Divide n -> {
+                    LazyMatrix left = operand(n.left());
+                    DenseMatrix right = numeric(n.right());
+                    yield left.isScalar() ? LazyMatrix.of(divide(left.evaluate(), right)) : left.scale(1.0 / divisor(right));
+                }
+                default -> leaf(node);
+            };
+        }
+
+        // Un sottoalbero condiviso è una foglia calcolata una volta (via cache), salvo i prodotti:
+        // fissarli romperebbe le catene, e riordinarle (A*(B*v)) conviene più che riusare A*B
+        private LazyMatrix operand(ExprNode node) {
+            if (memoized.containsKey(node) && !(node instanceof ExprNode.Multiply)) return leaf(node);
+            return lazy(node);
+        }
+
+        // Le variabili sparse o fuori heap entrano nel grafo così come sono, senza copie nello heap
+        private LazyMatrix leaf(ExprNode node) {
+            SparseMatrix s = sparse(node);
+            if (s != null) return LazyMatrix.of(s);
+            if (node instanceof ExprNode.Variable v) {
+                OffHeapMatrix offHeap = lookup(v.name()).getOffHeapValues();
+                if (offHeap != null) return LazyMatrix.of(offHeap);
+            }
+            return LazyMatrix.of(numeric(node));
+        }
+
+        // Forma sparsa del nodo se è una variabile memorizzata così (o la sua trasposta), altrimenti null
+        private SparseMatrix sparse(ExprNode node) {
+            if (node instanceof ExprNode.Variable v) return lookup(v.name()).getSparseValues();
+            if (node instanceof ExprNode.Transpose t && t.operand() instanceof ExprNode.Variable v) {
+                SparseMatrix s = lookup(v.name()).getSparseValues();
+                return s == null ? null : s.transpose();
+            }
+            return null;
+        }
+
+        private DenseMatrix solve(ExprNode left, DenseMatrix b) {
+            // Se a sinistra c'è una variabile la sua fattorizzazione (LU, o QR se rettangolare) resta in cache
+            // in MatrixData: risolvere di nuovo con un altro b non rifattorizza
+            if (left instanceof ExprNode.Variable v) {
+                MatrixData data = lookup(v.name());
+                // Sparsa e quadrata: LU riempirebbe i fattori, un metodo iterativo lavora solo sui non-zero.
+                // Se non è applicabile (diagonale nulla, stagnazione) si passa alla LU con pivoting qui sotto
+                SparseMatrix S = data.getSparseValues();
+                if (S != null && S.rows == S.cols) {
+                    if (b.rows != S.rows) {
+                        throw new IllegalArgumentException("Dimensioni incompatibili: (" + S.rows + "x" + S.cols
+                                + ") vs (" + b.rows + "x" + b.cols + ")");
+                    }
+                    DenseMatrix x = IterativeSolver.solveSparse(S, b);
+                    if (x != null) return x;
+                }
+                // Fuori heap la copia densa serve solo a fattorizzare, e getLU/getQR la fanno una volta
+                OffHeapMatrix offHeap = data.getOffHeapValues();
+                if (offHeap != null && offHeap.rows == offHeap.cols && offHeap.rows > 1) return data.getLU().solve(b);
+                if (offHeap != null && offHeap.rows > offHeap.cols) return data.getQR().solve(b);
+                DenseMatrix A = data.getDenseValues();
+                if (A.isScalar()) return divide(b, A);
+                if (A.rows == A.cols) return data.getLU().solve(b);
+                if (A.rows > A.cols) return data.getQR().solve(b);
+            }
+            DenseMatrix A = numeric(left);
+            if (A.isScalar()) return divide(b, A);
+            return LinearAlgebra.solve(A, b);
+        }
+
+        private MatrixData lookup(String name) {
+            MatrixData data = vars.get(name);
+            if (data == null) {
+                throw new RuntimeException("Variabile non definita: " + name);
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Ricostruisce l'albero dal basso in modo che sottoalberi uguali siano lo stesso oggetto:
+     * da lì in poi le sottoespressioni comuni si riconoscono per identità.
+     */
+    private static ExprNode share(ExprNode node, Map<ExprNode, ExprNode> seen) {
+        ExprNode rebuilt = switch (node) {
+            case ExprNode.Literal n -> n;
+            case ExprNode.Constant n -> n;
+            case ExprNode.Variable n -> n;
+            case ExprNode.Negate n -> new ExprNode.Negate(share(n.operand(), seen));
+            case ExprNode.Transpose n -> new ExprNode.Transpose(share(n.operand(), seen));
+            case ExprNode.Power n -> new ExprNode.Power(share(n.base(), seen), n.exponent());
+            case ExprNode.Call n -> new ExprNode.Call(n.function(), share(n.argument(), seen));
+            case ExprNode.Add n -> new ExprNode.Add(share(n.left(), seen), share(n.right(), seen));
+            case ExprNode.Subtract n -> new ExprNode.Subtract(share(n.left(), seen), share(n.right(), seen));
+            case ExprNode.Multiply n -> new ExprNode.Multiply(share(n.left(), seen), share(n.right(), seen));
+            case ExprNode.Divide n -> new ExprNode.Divide(share(n.left(), seen), share(n.right(), seen));
+            case ExprNode.Solve n -> new ExprNode.Solve(share(n.left(), seen), share(n.right(), seen));
+        };
+        ExprNode existing = seen.putIfAbsent(rebuilt, rebuilt);
+        return existing != null ? existing : rebuilt;
+    }
+
+    // Quante volte ogni nodo compare come figlio (la radice conta 1); i figli si visitano una volta
+    private static void countUses(ExprNode node, Map<ExprNode, Integer> uses) {
+        if (uses.merge(node, 1, Integer::sum) > 1) return;
+        switch (node) {
+            case ExprNode.Literal n -> { }
+            case ExprNode.Constant n -> { }
+            case ExprNode.Variable n -> { }
+            case ExprNode.Negate n -> countUses(n.operand(), uses);
+            case ExprNode.Transpose n -> countUses(n.operand(), uses);
+            case ExprNode.Power n -> countUses(n.base(), uses);
+            case ExprNode.Call n -> countUses(n.argument(), uses);
+            case ExprNode.Add n -> { countUses(n.left(), uses); countUses(n.right(), uses); }
+            case ExprNode.Subtract n -> { countUses(n.left(), uses); countUses(n.right(), uses); }
+            case ExprNode.Multiply n -> { countUses(n.left(), uses); countUses(n.right(), uses); }
+            case ExprNode.Divide n -> { countUses(n.left(), uses); countUses(n.right(), uses); }
+            case ExprNode.Solve n -> { countUses(n.left(), uses); countUses(n.right(), uses); }
+        }
+    }
+
+    // Risultati che vale la pena tenere anche se compaiono una volta sola
+    private static boolean isExpensive(ExprNode node) {
+        return node instanceof ExprNode.Call || node instanceof ExprNode.Power || node instanceof ExprNode.Solve;
+    }
+
+    // Già immediati: numeri, variabili e le loro trasposte (una vista)
+    private static boolean isTrivial(ExprNode node) {
+        return node instanceof ExprNode.Literal || node instanceof ExprNode.Constant
+                || node instanceof ExprNode.Variable
+                || node instanceof ExprNode.Transpose t && t.operand() instanceof ExprNode.Variable;
+    }
+
+    private static boolean isExact(ExprNode node) {
+        return switch (node) {
+            case ExprNode.Literal n -> true;
+            case ExprNode.Constant n -> true;
+            case ExprNode.Variable n -> true;
+            case ExprNode.Negate n -> isExact(n.operand());
+            case ExprNode.Transpose n -> isExact(n.operand());
+            case ExprNode.Power n -> isExact(n.base());
+            case ExprNode.Add n -> isExact(n.left()) && isExact(n.right());
+            case ExprNode.Subtract n -> isExact(n.left()) && isExact(n.right());
+            case ExprNode.Multiply n -> isExact(n.left()) && isExact(n.right());
+            case ExprNode.Divide n -> isExact(n.left()) && isExact(n.right());
+            case ExprNode.Solve n -> isExact(n.left()) && isExact(n.right());
+            case ExprNode.Call n -> n.function().exact && isExact(n.argument());
+        };
+    }
+
+    private static void collectVariables(ExprNode node, Set<String> names) {
+        switch (node) {
+            case ExprNode.Literal n -> { }
+            case ExprNode.Constant n -> { }
+            case ExprNode.Variable n -> names.add(n.name());
+            case ExprNode.Negate n -> collectVariables(n.operand(), names);
+            case ExprNode.Transpose n -> collectVariables(n.operand(), names);
+            case ExprNode.Power n -> collectVariables(n.base(), names);
+            case ExprNode.Call n -> collectVariables(n.argument(), names);
+            case ExprNode.Add n -> { collectVariables(n.left(), names); collectVariables(n.right(), names); }
+            case ExprNode.Subtract n -> { collectVariables(n.left(), names); collectVariables(n.right(), names); }
+            case ExprNode.Multiply n -> { collectVariables(n.left(), names); collectVariables(n.right(), names); }
+            case ExprNode.Divide n -> { collectVariables(n.left(), names); collectVariables(n.right(), names); }
+            case ExprNode.Solve n -> { collectVariables(n.left(), names); collectVariables(n.right(), names); }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
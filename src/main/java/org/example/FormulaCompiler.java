@@ -0,0 +1,416 @@
+package org.example;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Traduce l'albero di una formula numerica in bytecode (ClassFile API) e lo carica come
+ * classe nascosta (Lookup.defineHiddenClass).
+ *
+ * Le dimensioni delle variabili sono note al momento della compilazione, quindi:
+ * - le parti scalari (1x1) diventano semplici operazioni su double (dadd, dmul, ...)
+ *   senza creare matrici intermedie;
+ * - le parti matriciali chiamano direttamente i kernel di MatrixUtils;
+ * - gli errori di dimensione vengono segnalati subito, non a metà calcolo.
+ * Il risultato è un metodo senza salti né chiamate virtuali che il JIT può inlinare per intero.
+ *
+ * Le classi generate sono in cache per struttura della formula + dimensioni delle variabili.
+ */
+final class FormulaCompiler {
+
+    /**
+     * Interfaccia implementata dalle classi generate.
+     * values contiene le variabili nell'ordine di Expression.getVariables().
+     */
+    interface Kernel {
+        DenseMatrix apply(DenseMatrix[] values);
+    }
+
+    private static final ClassDesc CD_KERNEL = desc(Kernel.class);
+    private static final ClassDesc CD_DENSE = desc(DenseMatrix.class);
+    private static final ClassDesc CD_UTILS = desc(MatrixUtils.class);
+    private static final ClassDesc CD_COMPILER = desc(FormulaCompiler.class);
+    private static final ClassDesc CD_ALGEBRA = desc(LinearAlgebra.class);
+    // Le classi nascoste devono stare nello stesso package della Lookup che le definisce
+    private static final ClassDesc CD_GENERATED = ClassDesc.of("org.example.CompiledFormula$Generated");
+
+    private static final MethodTypeDesc MTD_APPLY = MethodTypeDesc.of(CD_DENSE, CD_DENSE.arrayType());
+    private static final MethodTypeDesc MTD_BINARY = MethodTypeDesc.of(CD_DENSE, CD_DENSE, CD_DENSE);
+    private static final MethodTypeDesc MTD_UNARY = MethodTypeDesc.of(CD_DENSE, CD_DENSE);
+    private static final MethodTypeDesc MTD_SCALE = MethodTypeDesc.of(CD_DENSE, CD_DENSE, ConstantDescs.CD_double);
+    private static final MethodTypeDesc MTD_GET = MethodTypeDesc.of(ConstantDescs.CD_double, ConstantDescs.CD_int, ConstantDescs.CD_int);
+    private static final MethodTypeDesc MTD_SCALAR = MethodTypeDesc.of(CD_DENSE, ConstantDescs.CD_double);
+    private static final MethodTypeDesc MTD_DOUBLE = MethodTypeDesc.of(ConstantDescs.CD_double, ConstantDescs.CD_double);
+    private static final MethodTypeDesc MTD_REDUCE = MethodTypeDesc.of(ConstantDescs.CD_double, CD_DENSE);
+    private static final MethodTypeDesc MTD_COUNT = MethodTypeDesc.of(ConstantDescs.CD_int, CD_DENSE);
+    private static final MethodTypeDesc MTD_POWER = MethodTypeDesc.of(CD_DENSE, CD_DENSE, ConstantDescs.CD_int);
+
+    // Oltre questo numero di formule diverse la cache viene svuotata (le classi nascoste
+    // non più raggiungibili vengono poi scaricate dal GC)
+    private static final int MAX_CACHE = 256;
+    private static final Map<String, CompiledFormula> CACHE = new ConcurrentHashMap<>();
+
+    private FormulaCompiler() {}
+
+    private static ClassDesc desc(Class<?> c) {
+        return c.describeConstable().orElseThrow();
+    }
+
+    /**
+     * Restituisce la formula compilata per queste dimensioni, generandola se non è in cache.
+     * shapes contiene righe e colonne di ogni variabile: {r0, c0, r1, c1, ...}.
+     */
+    static CompiledFormula compile(Expression expression, int[] shapes) {
+        StringBuilder key = new StringBuilder(expression.getRoot().toString());
+        for (int i = 0; i < shapes.length; i += 2) {
+            key.append('|').append(shapes[i]).append('x').append(shapes[i + 1]);
+        }
+        CompiledFormula cached = CACHE.get(key.toString());
+        if (cached != null) return cached;
+
+        CompiledFormula compiled = new CompiledFormula(define(expression, shapes),
+                List.copyOf(expression.getVariables()), shapes.clone());
+        if (CACHE.size() >= MAX_CACHE) CACHE.clear();
+        CACHE.putIfAbsent(key.toString(), compiled);
+        return compiled;
+    }
+
+    private static Kernel define(Expression expression, int[] shapes) {
+        List<String> names = List.copyOf(expression.getVariables());
+        // Verifica delle dimensioni prima di generare codice: gli errori escono da qui
+        Shape result = new Emitter(names, shapes).shapeOf(expression.getRoot());
+
+        byte[] bytes = ClassFile.of().build(CD_GENERATED, cb -> {
+            cb.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SUPER);
+            cb.withInterfaceSymbols(CD_KERNEL);
+            cb.withMethodBody(ConstantDescs.INIT_NAME, ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC, code -> code
+                    .aload(0)
+                    .invokespecial(ConstantDescs.CD_Object, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                    .return_());
+            cb.withMethodBody("apply", MTD_APPLY, ClassFile.ACC_PUBLIC, code -> {
+                new Emitter(names, shapes).emit(expression.getRoot(), code);
+                if (result.isScalar()) {
+                    code.invokestatic(CD_DENSE, "scalar", MTD_SCALAR);
+                }
+                code.areturn();
+            });
+        });
+
+        try {
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (Kernel) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Impossibile compilare la formula: " + expression, t);
+        }
+    }
+
+    // --- FUNZIONI DI SUPPORTO CHIAMATE DAL CODICE GENERATO ---
+
+    // Stesso controllo di Expression.divide / MatrixUtils.divideSymbolic
+    static double divisor(double d) {
+        if (d == 0.0) throw new ArithmeticException("Divisione per zero");
+        return d;
+    }
+
+    static double reciprocal(double d) {
+        return 1.0 / divisor(d);
+    }
+
+    // --- GENERAZIONE ---
+
+    private record Shape(int rows, int cols) {
+        boolean isScalar() { return rows == 1 && cols == 1; }
+
+        @Override
+        public String toString() { return "(" + rows + "x" + cols + ")"; }
+    }
+
+    private static final Shape SCALAR = new Shape(1, 1);
+
+    /**
+     * Visita l'albero. Sullo stack della JVM uno scalare è un double, una matrice è una DenseMatrix.
+     */
+    private static final class Emitter {
+        private final List<String> names;
+        private final int[] shapes;
+
+        Emitter(List<String> names, int[] shapes) {
+            this.names = names;
+            this.shapes = shapes;
+        }
+
+        private Shape variable(String name) {
+            int i = names.indexOf(name);
+            return new Shape(shapes[2 * i], shapes[2 * i + 1]);
+        }
+
+        Shape shapeOf(ExprNode node) {
+            return switch (node) {
+                case ExprNode.Literal n -> SCALAR;
+                case ExprNode.Constant n -> SCALAR;
+                case ExprNode.Variable n -> variable(n.name());
+                case ExprNode.Negate n -> shapeOf(n.operand());
+                case ExprNode.Transpose n -> {
+                    Shape s = shapeOf(n.operand());
+                    yield new Shape(s.cols(), s.rows());
+                }
+                case ExprNode.Power n -> {
+                    Shape a = shapeOf(n.base());
+                    if (a.rows() != a.cols()) {
+                        throw new IllegalArgumentException("La potenza richiede una matrice quadrata, non " + a);
+                    }
+                    yield a;
+                }
+                case ExprNode.Add n -> sameShape(shapeOf(n.left()), shapeOf(n.right()));
+                case ExprNode.Subtract n -> sameShape(shapeOf(n.left()), shapeOf(n.right()));
+                case ExprNode.Multiply n -> {
+                    Shape a = shapeOf(n.left());
+                    Shape b = shapeOf(n.right());
+                    if (a.isScalar()) yield b;
+                    if (b.isScalar()) yield a;
+                    if (a.cols() != b.rows()) {
+                        throw new IllegalArgumentException("Dimensioni incompatibili: " + a + " vs " + b);
+                    }
+                    yield new Shape(a.rows(), b.cols());
+                }
+                case ExprNode.Divide n -> {
+                    Shape a = shapeOf(n.left());
+                    if (!shapeOf(n.right()).isScalar()) {
+                        throw new IllegalArgumentException("Divisione supportata solo per scalari (denominatore deve essere 1x1).");
+                    }
+                    yield a;
+                }
+                case ExprNode.Solve n -> {
+                    Shape a = shapeOf(n.left());
+                    Shape b = shapeOf(n.right());
+                    if (a.isScalar()) yield b;
+                    // A non quadrata: minimi quadrati / norma minima (LinearAlgebra.solve)
+                    if (a.rows() != b.rows()) {
+                        throw new IllegalArgumentException("Dimensioni incompatibili: " + a + " vs " + b);
+                    }
+                    yield new Shape(a.cols(), b.cols());
+                }
+                case ExprNode.Call n -> {
+                    Shape a = shapeOf(n.argument());
+                    int k = Math.min(a.rows(), a.cols());
+                    yield switch (n.function()) {
+                        case RANK -> SCALAR;
+                        case QR -> new Shape(k, a.cols());
+                        case ORTH -> new Shape(a.rows(), k);
+                        case SVD -> new Shape(k, 1);
+                        case DET, INV, EIG, EXPM -> {
+                            if (a.rows() != a.cols()) {
+                                throw new IllegalArgumentException("La funzione " + n.function().name
+                                        + " richiede una matrice quadrata, non " + a);
+                            }
+                            yield switch (n.function()) {
+                                case DET -> SCALAR;
+                                case EIG -> new Shape(a.rows(), 1);
+                                default -> a;
+                            };
+                        }
+                    };
+                }
+            };
+        }
+
+        private static Shape sameShape(Shape a, Shape b) {
+            if (!a.equals(b)) {
+                throw new IllegalArgumentException("Dimensioni non corrispondenti: " + a + " vs " + b);
+            }
+            return a;
+        }
+
+        void emit(ExprNode node, CodeBuilder code) {
+            switch (node) {
+                case ExprNode.Literal n -> code.loadConstant(n.value());
+                case ExprNode.Constant n -> code.loadConstant(n.value());
+                case ExprNode.Variable n -> {
+                    code.aload(1).loadConstant(names.indexOf(n.name())).aaload();
+                    if (variable(n.name()).isScalar()) {
+                        code.iconst_0().iconst_0().invokevirtual(CD_DENSE, "get", MTD_GET);
+                    }
+                }
+                case ExprNode.Negate n -> {
+                    emit(n.operand(), code);
+                    if (shapeOf(n.operand()).isScalar()) {
+                        code.dneg();
+                    } else {
+                        code.loadConstant(-1.0).invokestatic(CD_UTILS, "multiplyScalar", MTD_SCALE);
+                    }
+                }
+                case ExprNode.Transpose n -> {
+                    emit(n.operand(), code);
+                    if (!shapeOf(n.operand()).isScalar()) {
+                        code.invokestatic(CD_UTILS, "getTranspose", MTD_UNARY);
+                    }
+                }
+                case ExprNode.Power n -> {
+                    // Anche per gli scalari: LinearAlgebra.power segnala 0^-n come divisione per zero
+                    emit(n.base(), code);
+                    boolean scalar = shapeOf(n.base()).isScalar();
+                    if (scalar) code.invokestatic(CD_DENSE, "scalar", MTD_SCALAR);
+                    code.loadConstant(n.exponent()).invokestatic(CD_ALGEBRA, "power", MTD_POWER);
+                    if (scalar) code.iconst_0().iconst_0().invokevirtual(CD_DENSE, "get", MTD_GET);
+                }
+                case ExprNode.Add n -> binary(n.left(), n.right(), code, "add");
+                case ExprNode.Subtract n -> binary(n.left(), n.right(), code, "subtract");
+                case ExprNode.Multiply n -> {
+                    if (isChain(n)) chain(n, code); else multiply(n.left(), n.right(), code);
+                }
+                case ExprNode.Divide n -> {
+                    emit(n.left(), code);
+                    emit(n.right(), code);
+                    if (shapeOf(n.left()).isScalar()) {
+                        code.invokestatic(CD_COMPILER, "divisor", MTD_DOUBLE).ddiv();
+                    } else {
+                        // A / s = A * (1 / s)
+                        code.invokestatic(CD_COMPILER, "reciprocal", MTD_DOUBLE)
+                            .invokestatic(CD_UTILS, "multiplyScalar", MTD_SCALE);
+                    }
+                }
+                case ExprNode.Solve n -> solve(n, code);
+                case ExprNode.Call n -> {
+                    emit(n.argument(), code);
+                    if (shapeOf(n.argument()).isScalar()) {
+                        code.invokestatic(CD_DENSE, "scalar", MTD_SCALAR);
+                    }
+                    switch (n.function()) {
+                        case DET -> code.invokestatic(CD_ALGEBRA, "determinant", MTD_REDUCE);
+                        case RANK -> code.invokestatic(CD_ALGEBRA, "rank", MTD_COUNT).i2d();
+                        case INV, QR, ORTH, EIG, SVD, EXPM -> {
+                            String method = switch (n.function()) {
+                                case QR -> "qr";
+                                case ORTH -> "orth";
+                                case EIG -> "eig";
+                                case SVD -> "svd";
+                                case EXPM -> "expm";
+                                default -> "inverse";
+                            };
+                            code.invokestatic(CD_ALGEBRA, method, MTD_UNARY);
+                            if (shapeOf(n).isScalar()) {
+                                code.iconst_0().iconst_0().invokevirtual(CD_DENSE, "get", MTD_GET);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // Somma e differenza: stesse dimensioni su entrambi i lati (già verificato)
+        private void binary(ExprNode left, ExprNode right, CodeBuilder code, String kernel) {
+            emit(left, code);
+            emit(right, code);
+            if (shapeOf(left).isScalar()) {
+                if (kernel.equals("add")) code.dadd(); else code.dsub();
+            } else {
+                code.invokestatic(CD_UTILS, kernel, MTD_BINARY);
+            }
+        }
+
+        private void solve(ExprNode.Solve node, CodeBuilder code) {
+            ExprNode left = node.left();
+            ExprNode right = node.right();
+            boolean rightScalar = shapeOf(right).isScalar();
+            if (shapeOf(left).isScalar()) {
+                // s \ b = b / s
+                emit(right, code);
+                emit(left, code);
+                if (rightScalar) {
+                    code.invokestatic(CD_COMPILER, "divisor", MTD_DOUBLE).ddiv();
+                } else {
+                    code.invokestatic(CD_COMPILER, "reciprocal", MTD_DOUBLE)
+                        .invokestatic(CD_UTILS, "multiplyScalar", MTD_SCALE);
+                }
+                return;
+            }
+            emit(left, code);
+            emit(right, code);
+            if (rightScalar) {
+                code.invokestatic(CD_DENSE, "scalar", MTD_SCALAR);
+            }
+            code.invokestatic(CD_ALGEBRA, "solve", MTD_BINARY);
+            // Minimi quadrati con un solo parametro (x \ y, due vettori colonna): il risultato è 1x1
+            if (shapeOf(node).isScalar()) {
+                code.iconst_0().iconst_0().invokevirtual(CD_DENSE, "get", MTD_GET);
+            }
+        }
+
+        private void multiply(ExprNode left, ExprNode right, CodeBuilder code) {
+            boolean leftScalar = shapeOf(left).isScalar();
+            boolean rightScalar = shapeOf(right).isScalar();
+            emit(left, code);
+            emit(right, code);
+            if (leftScalar && rightScalar) {
+                code.dmul();
+            } else if (leftScalar) {
+                // Stack: double, matrice -> matrice, double
+                code.dup_x2().pop().invokestatic(CD_UTILS, "multiplyScalar", MTD_SCALE);
+            } else if (rightScalar) {
+                code.invokestatic(CD_UTILS, "multiplyScalar", MTD_SCALE);
+            } else {
+                code.invokestatic(CD_UTILS, "multiply", MTD_BINARY);
+                // Riga per colonna (es. v^T v): il risultato 1x1 diventa un double come ogni scalare
+                if (shapeOf(left).rows() == 1 && shapeOf(right).cols() == 1) {
+                    code.iconst_0().iconst_0().invokevirtual(CD_DENSE, "get", MTD_GET);
+                }
+            }
+        }
+
+        /**
+         * Catena di prodotti fra matrici (A*B*C*v): le dimensioni sono note alla compilazione,
+         * quindi l'ordine ottimo (MatrixChain) è deciso una volta sola e fissato nel bytecode.
+         */
+        private void chain(ExprNode node, CodeBuilder code) {
+            List<ExprNode> factors = new ArrayList<>();
+            collectFactors(node, factors);
+            int[] dims = new int[factors.size() + 1];
+            for (int i = 0; i < factors.size(); i++) dims[i] = shapeOf(factors.get(i)).rows();
+            dims[factors.size()] = shapeOf(factors.getLast()).cols();
+            emitChain(factors, MatrixChain.split(dims, null), 0, factors.size() - 1, code);
+            // Come in multiply: un risultato 1x1 diventa un double
+            if (dims[0] == 1 && dims[factors.size()] == 1) {
+                code.iconst_0().iconst_0().invokevirtual(CD_DENSE, "get", MTD_GET);
+            }
+        }
+
+        // Un prodotto è un anello della catena solo se nessuno dei due lati è scalare
+        private boolean isChain(ExprNode node) {
+            return node instanceof ExprNode.Multiply m
+                    && !shapeOf(m.left()).isScalar() && !shapeOf(m.right()).isScalar();
+        }
+
+        private void collectFactors(ExprNode node, List<ExprNode> factors) {
+            if (isChain(node)) {
+                ExprNode.Multiply m = (ExprNode.Multiply) node;
+                collectFactors(m.left(), factors);
+                collectFactors(m.right(), factors);
+            } else {
+                factors.add(node);
+            }
+        }
+
+        // I risultati intermedi restano DenseMatrix (anche 1x1: MatrixUtils.multiply li tratta da scalari)
+        private void emitChain(List<ExprNode> factors, int[][] split, int i, int j, CodeBuilder code) {
+            if (i == j) {
+                emit(factors.get(i), code);
+                return;
+            }
+            int k = split[i][j];
+            emitChain(factors, split, i, k, code);
+            emitChain(factors, split, k + 1, j, code);
+            code.invokestatic(CD_UTILS, "multiply", MTD_BINARY);
+        }
+    }
+}
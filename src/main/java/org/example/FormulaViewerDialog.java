@@ -12,6 +12,11 @@ import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,12 +30,25 @@ public class FormulaViewerDialog extends JDialog {
     // Data for 2D Visualization
     private VisualizationData detectedVisData = null;
 
+    // Formule aperte di recente tenute in Content
+    private static final int MAX_CONTENTS = 32;
+    // Solo dal thread di Swing, come tutto il dialog
+    private static final Map<String, Content> contents = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Content> eldest) {
+            return size() > MAX_CONTENTS;
+        }
+    };
+
+    private final Content content;
+
     public FormulaViewerDialog(JFrame owner, String rawInput) {
         super(owner, "Formula Viewer", true);
         this.rawInput = rawInput;
 
-        // --- 1. Intelligent Input Analysis ---
-        this.detectedVisData = StructureAnalyzer.analyze(rawInput);
+        // --- 1. Intelligent Input Analysis (già fatta se la formula è stata aperta da poco) ---
+        this.content = Content.of(rawInput);
+        this.detectedVisData = content.visData;
 
         setSize(950, 750);
         setLocationRelativeTo(owner);
@@ -75,10 +93,10 @@ public class FormulaViewerDialog extends JDialog {
         mainSplitPane.setBackground(bgColor);
 
         // 1. Top Panel: Symbolic Formula
-        JPanel topPanel = createStyledFormulaCard("Formula Simbolica", rawInput, false);
+        JPanel topPanel = createStyledFormulaCard("Formula Simbolica", content.symbolic);
 
         // 2. Middle Panel: Value Substitution
-        JPanel middlePanel = createStyledFormulaCard("Sostituzione Valori", rawInput, true);
+        JPanel middlePanel = createStyledFormulaCard("Sostituzione Valori", content.expanded);
 
         JSplitPane contentSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
         contentSplit.setResizeWeight(0.5);
@@ -111,7 +129,7 @@ public class FormulaViewerDialog extends JDialog {
 
         // -- SMART BUTTON: Only appears if detectedVisData is valid --
         if (detectedVisData != null && detectedVisData.isValid) {
-            JButton btnVisualizer = createStyledButton("Visualizza 2D", false);
+            JButton btnVisualizer = createStyledButton(detectedVisData.is3D() ? "Visualizza 3D" : "Visualizza 2D", false);
 
             btnVisualizer.setUI(new javax.swing.plaf.basic.BasicButtonUI());
             Color visualizerColor = new Color(99, 102, 241);
@@ -150,14 +168,16 @@ public class FormulaViewerDialog extends JDialog {
         if (detectedVisData == null) return;
 
         SwingUtilities.invokeLater(() -> {
-            VectorVisualizer2D viewer = new VectorVisualizer2D(this);
             // Apply the transformation detected by StructureAnalyzer
-            viewer.setTransformationData(
-                    detectedVisData.m00, detectedVisData.m10,
-                    detectedVisData.m01, detectedVisData.m11,
-                    detectedVisData.vx, detectedVisData.vy
-            );
-            viewer.setVisible(true);
+            if (detectedVisData.is3D()) {
+                VectorVisualizer3D viewer = new VectorVisualizer3D(this);
+                viewer.setTransformationData(detectedVisData.matrix, detectedVisData.vector);
+                viewer.setVisible(true);
+            } else {
+                VectorVisualizer2D viewer = new VectorVisualizer2D(this);
+                viewer.setTransformationData(detectedVisData.matrix, detectedVisData.vector);
+                viewer.setVisible(true);
+            }
         });
     }
 
@@ -173,16 +193,16 @@ public class FormulaViewerDialog extends JDialog {
         Color textColor = MathEditorApp.getThemeColor("text");
         Color cardColor = MathEditorApp.getThemeColor("card");
 
-        try {
-            MathEvaluator evaluator = new MathEvaluator(rawInput);
-            String[][] resultMatrix = evaluator.evaluate();
-            String resultLatex = MatrixUtils.toLatex(resultMatrix);
-
-            TeXFormula formula = new TeXFormula(resultLatex);
-            TeXIcon icon = formula.createTeXIcon(TeXConstants.STYLE_DISPLAY, 30f);
-            icon.setForeground(textColor);
+        Rendered result = content.result;
+        if (result == null) {
+            result = calculate(rawInput);
+            // Le variabili possono essere cambiate dopo l'apertura: in quel caso non si conserva
+            if (content.versions.equals(versionsOf(rawInput, VariableManager.snapshot()))) content.result = result;
+        }
 
-            AutoResizingFormulaPanel resultView = new AutoResizingFormulaPanel(icon);
+        if (result.icon() != null) {
+            result.icon().setForeground(textColor);
+            AutoResizingFormulaPanel resultView = new AutoResizingFormulaPanel(result.icon());
             resultView.setBackground(cardColor);
 
             JPanel wrapper = new JPanel(new BorderLayout());
@@ -191,15 +211,14 @@ public class FormulaViewerDialog extends JDialog {
 
             resultCardPanel.add(wrapper, BorderLayout.CENTER);
 
-            JLabel infoLabel = new JLabel("Dimensione matrice: " + resultMatrix.length + "x" + resultMatrix[0].length);
+            JLabel infoLabel = new JLabel(result.info());
             infoLabel.setFont(new Font("SansSerif", Font.PLAIN, 12));
             infoLabel.setForeground(textColor);
             infoLabel.setBorder(new EmptyBorder(10, 0, 0, 0));
             infoLabel.setHorizontalAlignment(SwingConstants.RIGHT);
             resultCardPanel.add(infoLabel, BorderLayout.SOUTH);
-
-        } catch (Exception ex) {
-            JLabel errorLabel = new JLabel("<html><center><b>Errore durante il calcolo:</b><br>" + ex.getMessage() + "</center></html>");
+        } else {
+            JLabel errorLabel = new JLabel("<html><center><b>Errore durante il calcolo:</b><br>" + result.error() + "</center></html>");
             errorLabel.setForeground(new Color(220, 50, 50));
             errorLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
             errorLabel.setHorizontalAlignment(SwingConstants.CENTER);
@@ -211,26 +230,17 @@ public class FormulaViewerDialog extends JDialog {
         mainSplitPane.setDividerLocation(0.60);
     }
 
-    private JPanel createStyledFormulaCard(String title, String rawInput, boolean isExpanded) {
+    private JPanel createStyledFormulaCard(String title, Rendered rendered) {
         JPanel cardPanel = new JPanel(new BorderLayout());
         styleCardPanel(cardPanel, title);
 
         Color textColor = MathEditorApp.getThemeColor("text");
         Color cardColor = MathEditorApp.getThemeColor("card");
 
-        try {
-            String latex;
-            if (isExpanded) {
-                latex = SmartMathParser.parseToExpandedLatex(rawInput);
-            } else {
-                latex = SmartMathParser.parseToColoredLatex(rawInput);
-            }
-
-            TeXFormula formula = new TeXFormula(latex);
-            TeXIcon icon = formula.createTeXIcon(TeXConstants.STYLE_DISPLAY, 30f);
-            icon.setForeground(textColor);
+        if (rendered.icon() != null) {
+            rendered.icon().setForeground(textColor);
 
-            AutoResizingFormulaPanel formulaPanel = new AutoResizingFormulaPanel(icon);
+            AutoResizingFormulaPanel formulaPanel = new AutoResizingFormulaPanel(rendered.icon());
             formulaPanel.setBackground(cardColor);
 
             JPanel wrapper = new JPanel(new BorderLayout());
@@ -239,8 +249,8 @@ public class FormulaViewerDialog extends JDialog {
 
             cardPanel.add(wrapper, BorderLayout.CENTER);
 
-        } catch (Exception e) {
-            JLabel errorLabel = new JLabel("<html><center>Errore parsing:<br>" + e.getMessage() + "</center></html>");
+        } else {
+            JLabel errorLabel = new JLabel("<html><center>Errore parsing:<br>" + rendered.error() + "</center></html>");
             errorLabel.setForeground(Color.RED);
             errorLabel.setHorizontalAlignment(SwingConstants.CENTER);
             cardPanel.add(errorLabel, BorderLayout.CENTER);
@@ -249,6 +259,75 @@ public class FormulaViewerDialog extends JDialog {
         return cardPanel;
     }
 
+    // Formula impaginata (icon), oppure il messaggio d'errore se non si è potuta analizzare
+    private record Rendered(TeXIcon icon, String info, String error) {
+
+        static Rendered of(Callable<String> latex) {
+            try {
+                return new Rendered(render(latex.call()), null, null);
+            } catch (Exception e) {
+                return new Rendered(null, null, e.getMessage());
+            }
+        }
+    }
+
+    private static TeXIcon render(String latex) {
+        return new TeXFormula(latex).createTeXIcon(TeXConstants.STYLE_DISPLAY, 30f);
+    }
+
+    private static Rendered calculate(String rawInput) {
+        try {
+            MathEvaluator evaluator = new MathEvaluator(rawInput);
+            String[][] resultMatrix = evaluator.evaluate();
+            return new Rendered(render(MatrixUtils.toLatex(resultMatrix)),
+                    "Dimensione matrice: " + resultMatrix.length + "x" + resultMatrix[0].length, null);
+        } catch (Exception ex) {
+            return new Rendered(null, null, ex.getMessage());
+        }
+    }
+
+    /**
+     * Tutto ciò che il visualizzatore ricava da una formula: analisi per la vista 2D, formula
+     * colorata e sostituzione dei valori già impaginate e, dopo "Calcola", il risultato.
+     * Vale finché le variabili citate nel testo non cambiano versione: riaprire una voce della
+     * cronologia non rifà analisi, parsing e impaginazione TeX.
+     */
+    private static final class Content {
+        final Map<String, Long> versions;
+        final VisualizationData visData;
+        final Rendered symbolic;
+        final Rendered expanded;
+        Rendered result; // al primo "Calcola"
+
+        private Content(String rawInput, VariableManager.Snapshot vars, Map<String, Long> versions) {
+            this.versions = versions;
+            this.visData = StructureAnalyzer.analyze(rawInput, vars);
+            this.symbolic = Rendered.of(() -> SmartMathParser.parseToColoredLatex(rawInput));
+            this.expanded = Rendered.of(() -> SmartMathParser.parseToExpandedLatex(rawInput));
+        }
+
+        static Content of(String rawInput) {
+            // Le versioni si leggono prima di calcolare: se cambiano nel frattempo la voce scade e basta
+            VariableManager.Snapshot vars = VariableManager.snapshot();
+            Map<String, Long> versions = versionsOf(rawInput, vars);
+            Content content = contents.get(rawInput);
+            if (content == null || !content.versions.equals(versions)) {
+                content = new Content(rawInput, vars, versions);
+                contents.put(rawInput, content);
+            }
+            return content;
+        }
+    }
+
+    // Versioni delle variabili il cui nome compare nel testo (anche dentro nomi attaccati, es. "Av")
+    private static Map<String, Long> versionsOf(String rawInput, VariableManager.Snapshot vars) {
+        Map<String, Long> versions = new HashMap<>();
+        for (String name : vars.getAll().keySet()) {
+            if (rawInput.contains(name)) versions.put(name, vars.getVersion(name));
+        }
+        return versions;
+    }
+
     private void styleCardPanel(JPanel panel, String titleText) {
         Color cardColor = MathEditorApp.getThemeColor("card");
         Color borderColor = MathEditorApp.getThemeColor("border");
@@ -326,7 +405,8 @@ public class FormulaViewerDialog extends JDialog {
 
     private static class StructureAnalyzer {
 
-        public static VisualizationData analyze(String rawInput) {
+        // Tutte le variabili (anche nel fallback numerico) dalla stessa fotografia
+        public static VisualizationData analyze(String rawInput, VariableManager.Snapshot vars) {
             System.out.println("\n--- [DEBUG] ANALISI SEMPLIFICATA ---");
             VisualizationData data = new VisualizationData();
 
@@ -364,27 +444,28 @@ public class FormulaViewerDialog extends JDialog {
 
             // 4. Se abbiamo trovato due potenziali variabili, verifichiamo i dati
             if (varLeft != null && varRight != null) {
-                MatrixData leftData = VariableManager.get(varLeft);
-                MatrixData rightData = VariableManager.get(varRight);
+                MatrixData leftData = vars.get(varLeft);
+                MatrixData rightData = vars.get(varRight);
 
                 if (leftData != null && rightData != null) {
-                    double[][] leftM = leftData.getDoubleValues();
-                    double[][] rightM = rightData.getDoubleValues();
+                    // Valori in cache: nessuna copia
+                    DenseMatrix leftM = leftData.getDenseValues();
+                    DenseMatrix rightM = rightData.getDenseValues();
 
                     if (leftM != null && rightM != null) {
-                        // Check dimensioni: A(2x2) * v(2x1)
-                        boolean is2x2 = (leftM.length == 2 && leftM[0].length == 2);
-                        boolean is2x1 = (rightM.length == 2 && rightM[0].length == 1);
-
-                        if (is2x2 && is2x1) {
-                            System.out.println("[DEBUG] SUCCESS: Matrice 2x2 e Vettore 2x1 validi.");
-                            data.m00 = leftM[0][0]; data.m01 = leftM[0][1];
-                            data.m10 = leftM[1][0]; data.m11 = leftM[1][1];
-                            data.vx = rightM[0][0]; data.vy = rightM[1][0];
+                        // Check dimensioni: A(2x2) * v(2x1), oppure A(3x3) * v(3x1)
+                        int n = leftM.getRows();
+                        boolean isSquare = (n == 2 || n == 3) && leftM.getCols() == n;
+                        boolean isColumn = rightM.getRows() == n && rightM.getCols() == 1;
+
+                        if (isSquare && isColumn) {
+                            System.out.println("[DEBUG] SUCCESS: Matrice " + n + "x" + n + " e Vettore " + n + "x1 validi.");
+                            data.matrix = leftM;
+                            data.vector = rightM;
                             data.hasMatrix = true; data.hasVector = true; data.isValid = true;
                             return data; // Ritorna subito se successo
                         } else {
-                            System.out.println("[DEBUG] Dimensioni non corrette per visualizzazione 2D.");
+                            System.out.println("[DEBUG] Dimensioni non corrette per visualizzazione 2D/3D.");
                         }
                     }
                 } else {
@@ -397,43 +478,24 @@ public class FormulaViewerDialog extends JDialog {
             // --- 5. FALLBACK (Se l'analisi simbolica fallisce, prova a valutare il risultato numerico) ---
             System.out.println("[DEBUG] Avvio Fallback numerico...");
             try {
-                MathEvaluator evaluator = new MathEvaluator(rawInput);
-                String[][] symbolicResult = evaluator.evaluate();
-
-                if (symbolicResult != null) {
-                    int rows = symbolicResult.length;
-                    int cols = (rows > 0) ? symbolicResult[0].length : 0;
-                    double[][] numericResult = new double[rows][cols];
-                    boolean isFullyNumeric = true;
-
-                    for(int i=0; i<rows; i++) {
-                        for(int j=0; j<cols; j++) {
-                            try {
-                                numericResult[i][j] = evalExpr(symbolicResult[i][j]);
-                            } catch (Exception e) {
-                                isFullyNumeric = false;
-                            }
-                        }
-                    }
-
-                    if (isFullyNumeric) {
-                        if (rows == 2 && cols == 2) {
-                            // Risultato è una matrice
-                            data.m00 = numericResult[0][0]; data.m01 = numericResult[0][1];
-                            data.m10 = numericResult[1][0]; data.m11 = numericResult[1][1];
-                            data.vx = 1; data.vy = 1;
-                            data.hasMatrix = true; data.isValid = true;
-                        } else if (rows == 2 && cols == 1) {
-                            // Risultato è un vettore colonna
-                            data.vx = numericResult[0][0];
-                            data.vy = numericResult[1][0];
-                            data.hasVector = true; data.isValid = true;
-                        } else if (rows == 1 && cols == 2) {
-                            // Risultato è un vettore riga
-                            data.vx = numericResult[0][0];
-                            data.vy = numericResult[0][1];
-                            data.hasVector = true; data.isValid = true;
-                        }
+                // Valutazione numerica diretta: niente stringhe intermedie da rileggere
+                DenseMatrix result = MathEvaluator.compile(rawInput).evaluateNumeric(vars);
+
+                if (result != null) {
+                    int rows = result.getRows();
+                    int cols = result.getCols();
+
+                    if ((rows == 2 || rows == 3) && cols == rows) {
+                        // Risultato è una matrice: la applichiamo al vettore (1, 1[, 1])
+                        data.matrix = result;
+                        data.vector = VisualizationData.ones(rows);
+                        data.hasMatrix = true; data.isValid = true;
+                    } else if ((rows == 2 || rows == 3) && cols == 1 || rows == 1 && (cols == 2 || cols == 3)) {
+                        // Risultato è un vettore (colonna o riga: setTransformationData accetta entrambi)
+                        int n = rows * cols;
+                        data.matrix = MatrixUtils.identity(n);
+                        data.vector = result;
+                        data.hasVector = true; data.isValid = true;
                     }
                 }
             } catch (Exception e) {
@@ -442,18 +504,6 @@ public class FormulaViewerDialog extends JDialog {
 
             return data;
         }
-
-        private static double evalExpr(String input) {
-            if (input == null || input.trim().isEmpty()) return 0.0;
-            String clean = input.replace(",", ".").replaceAll("\\s+", "");
-            String[] terms = clean.split("(?=[+-])");
-            double sum = 0.0;
-            for (String term : terms) {
-                if (term.isEmpty() || term.equals("+") || term.equals("-")) continue;
-                sum += Double.parseDouble(term);
-            }
-            return sum;
-        }
     }
 
 
@@ -462,10 +512,19 @@ public class FormulaViewerDialog extends JDialog {
         boolean hasMatrix = false;
         boolean hasVector = false;
 
-        double m00 = 1, m01 = 0;
-        double m10 = 0, m11 = 1;
+        // Matrice 2x2 (o 3x3) e vettore da passare al visualizzatore
+        DenseMatrix matrix = MatrixUtils.identity(2);
+        DenseMatrix vector = ones(2);
 
-        double vx = 1, vy = 1;
+        boolean is3D() {
+            return matrix.getRows() == 3;
+        }
+
+        static DenseMatrix ones(int n) {
+            double[] values = new double[n];
+            Arrays.fill(values, 1.0);
+            return DenseMatrix.wrap(values, n, 1);
+        }
     }
 
     private static class AutoResizingFormulaPanel extends JPanel {
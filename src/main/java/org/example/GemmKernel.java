@@ -0,0 +1,160 @@
+package org.example;
+
+/**
+ * Kernel di moltiplicazione matriciale a blocchi (GEMM) per DenseMatrix.
+ *
+ * Schema classico a tre livelli:
+ * - B viene copiata ("impacchettata") a pannelli KC x NC che restano in cache L2/L3;
+ * - A viene impacchettata a blocchi MC x KC che restano in L1/L2;
+ * - un micro-kernel calcola tile MR x NR del risultato tenendo gli accumulatori in registro.
+ * Nei pannelli i dati sono disposti nell'ordine esatto in cui il micro-kernel li legge,
+ * quindi il ciclo interno scorre sempre memoria contigua.
+ */
+final class GemmKernel {
+
+    // Dimensioni del tile in registro (4x4 = 16 accumulatori)
+    static final int MR = 4;
+    static final int NR = 4;
+
+    // Dimensioni dei blocchi in cache
+    static final int MC = 128;
+    static final int KC = 256;
+    static final int NC = 2048;
+
+    private GemmKernel() {}
+
+    /**
+     * C += A * B. C deve essere compatta (row-major) e già dimensionata A.rows x B.cols.
+     */
+    static void multiply(DenseMatrix A, DenseMatrix B, DenseMatrix C) {
+        multiply(A, B, C, 0, A.rows);
+    }
+
+    /**
+     * C[rowStart..rowEnd) += A[rowStart..rowEnd) * B.
+     * Lavorare su un intervallo di righe permette di dividere il prodotto tra più thread
+     * senza che scrivano mai nella stessa zona di C.
+     */
+    static void multiply(DenseMatrix A, DenseMatrix B, DenseMatrix C, int rowStart, int rowEnd) {
+        int n = B.cols;
+        int k = A.cols;
+
+        double[] packA = new double[MC * KC];
+        double[] packB = new double[KC * roundUp(Math.min(NC, n), NR)];
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(B, pc, jc, kc, nc, packB);
+                for (int ic = rowStart; ic < rowEnd; ic += MC) {
+                    int mc = Math.min(MC, rowEnd - ic);
+                    packA(A, ic, pc, mc, kc, packA);
+                    macroKernel(mc, nc, kc, packA, packB, C, ic, jc);
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int value, int multiple) {
+        return (value + multiple - 1) / multiple * multiple;
+    }
+
+    // packA[p * MR * kc + kk * MR + r] = A[ic + p*MR + r][pc + kk], con zero-padding sul bordo
+    private static void packA(DenseMatrix A, int ic, int pc, int mc, int kc, double[] packA) {
+        int idx = 0;
+        for (int p = 0; p < mc; p += MR) {
+            int mr = Math.min(MR, mc - p);
+            for (int kk = 0; kk < kc; kk++) {
+                int col = A.offset + (pc + kk) * A.colStride;
+                for (int r = 0; r < mr; r++) {
+                    packA[idx++] = A.data[col + (ic + p + r) * A.rowStride];
+                }
+                for (int r = mr; r < MR; r++) {
+                    packA[idx++] = 0.0;
+                }
+            }
+        }
+    }
+
+    // packB[q * NR * kc + kk * NR + c] = B[pc + kk][jc + q*NR + c], con zero-padding sul bordo
+    private static void packB(DenseMatrix B, int pc, int jc, int kc, int nc, double[] packB) {
+        int idx = 0;
+        for (int q = 0; q < nc; q += NR) {
+            int nr = Math.min(NR, nc - q);
+            for (int kk = 0; kk < kc; kk++) {
+                int row = B.offset + (pc + kk) * B.rowStride;
+                for (int c = 0; c < nr; c++) {
+                    packB[idx++] = B.data[row + (jc + q + c) * B.colStride];
+                }
+                for (int c = nr; c < NR; c++) {
+                    packB[idx++] = 0.0;
+                }
+            }
+        }
+    }
+
+    private static void macroKernel(int mc, int nc, int kc, double[] packA, double[] packB,
+                                    DenseMatrix C, int ic, int jc) {
+        for (int q = 0; q < nc; q += NR) {
+            int nr = Math.min(NR, nc - q);
+            int bBase = q * kc;
+            for (int p = 0; p < mc; p += MR) {
+                int mr = Math.min(MR, mc - p);
+                microKernel(kc, packA, p * kc, packB, bBase, C, ic + p, jc + q, mr, nr);
+            }
+        }
+    }
+
+    private static void microKernel(int kc, double[] a, int aBase, double[] b, int bBase,
+                                    DenseMatrix C, int row, int col, int mr, int nr) {
+        if (SimdSupport.GEMM_TILE && mr == MR && nr == NR) {
+            SimdKernels.gemmMicroKernel4x4(kc, a, aBase, b, bBase, C.data,
+                    C.offset + row * C.rowStride + col, C.rowStride);
+            return;
+        }
+
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        int ai = aBase;
+        int bi = bBase;
+        for (int kk = 0; kk < kc; kk++) {
+            double a0 = a[ai], a1 = a[ai + 1], a2 = a[ai + 2], a3 = a[ai + 3];
+            double b0 = b[bi], b1 = b[bi + 1], b2 = b[bi + 2], b3 = b[bi + 3];
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+            ai += MR;
+            bi += NR;
+        }
+
+        double[] out = C.data;
+        int base = C.offset + row * C.rowStride + col;
+        if (mr == MR && nr == NR) {
+            int r0 = base, r1 = r0 + C.rowStride, r2 = r1 + C.rowStride, r3 = r2 + C.rowStride;
+            out[r0] += c00; out[r0 + 1] += c01; out[r0 + 2] += c02; out[r0 + 3] += c03;
+            out[r1] += c10; out[r1 + 1] += c11; out[r1 + 2] += c12; out[r1 + 3] += c13;
+            out[r2] += c20; out[r2 + 1] += c21; out[r2 + 2] += c22; out[r2 + 3] += c23;
+            out[r3] += c30; out[r3 + 1] += c31; out[r3 + 2] += c32; out[r3 + 3] += c33;
+            return;
+        }
+
+        // Tile di bordo: scriviamo solo la parte valida
+        double[][] tile = {
+                {c00, c01, c02, c03},
+                {c10, c11, c12, c13},
+                {c20, c21, c22, c23},
+                {c30, c31, c32, c33}
+        };
+        for (int r = 0; r < mr; r++) {
+            int dst = base + r * C.rowStride;
+            for (int c = 0; c < nr; c++) {
+                out[dst + c] += tile[r][c];
+            }
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Metodi iterativi di Krylov per A x = b, quando la fattorizzazione (LU) è troppo costosa:
+ * ogni iterazione richiede solo un prodotto A v, quindi con A sparsa costa O(nnz).
+ *
+ * - CG: matrici simmetriche definite positive, il più economico.
+ * - BiCGSTAB: matrici qualsiasi, memoria costante.
+ * - GMRES(restart): matrici qualsiasi, il residuo non cresce mai; memoria O(n * restart).
+ *
+ * Il prodotto passa da SparseMatrix.multiply o MatrixUtils.multiply (parallelo, SIMD).
+ * Precondizionamento opzionale: Jacobi (diagonale) o ILU(0), la LU incompleta che conserva
+ * la struttura dei non-zero di A. Per BiCGSTAB e GMRES si precondiziona a destra, così il
+ * residuo controllato è quello vero.
+ *
+ * Uso: new IterativeSolver(Method.GMRES).preconditioner(Preconditioner.ILU0).solve(A, b)
+ */
+public final class IterativeSolver {
+
+    public enum Method { CG, BICGSTAB, GMRES }
+
+    public enum Preconditioner { NONE, JACOBI, ILU0 }
+
+    /**
+     * Riceve il residuo relativo ||b - A x|| / ||b|| dopo ogni iterazione.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void iteration(int iteration, double residual);
+    }
+
+    /**
+     * x: la soluzione (una colonna per ogni colonna di b); iterations e residual si riferiscono
+     * alla colonna peggiore; history è il residuo relativo a ogni iterazione (ultima colonna).
+     */
+    public record Result(DenseMatrix x, int iterations, double residual, boolean converged, double[] history) {}
+
+    // y = A x
+    private interface Operator {
+        void apply(double[] x, double[] y);
+    }
+
+    // z = M^-1 r
+    private interface Inverse {
+        void apply(double[] r, double[] z);
+    }
+
+    private static final Inverse IDENTITY = (r, z) -> System.arraycopy(r, 0, z, 0, r.length);
+
+    private final Method method;
+    private double tolerance = 1e-10;
+    private int maxIterations = -1; // -1: dipende dalla dimensione
+    private int restart = 30;
+    private Preconditioner preconditioner = Preconditioner.NONE;
+    private Listener listener;
+
+    public IterativeSolver(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * Si ferma quando ||b - A x|| <= tolerance * ||b||.
+     */
+    public IterativeSolver tolerance(double tolerance) {
+        if (!(tolerance > 0)) throw new IllegalArgumentException("Tolleranza non valida: " + tolerance);
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    public IterativeSolver maxIterations(int maxIterations) {
+        if (maxIterations < 1) throw new IllegalArgumentException("Numero di iterazioni non valido: " + maxIterations);
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Dimensione del sottospazio di GMRES prima di ripartire.
+     */
+    public IterativeSolver restart(int restart) {
+        if (restart < 1) throw new IllegalArgumentException("Restart non valido: " + restart);
+        this.restart = restart;
+        return this;
+    }
+
+    public IterativeSolver preconditioner(Preconditioner preconditioner) {
+        this.preconditioner = preconditioner;
+        return this;
+    }
+
+    public IterativeSolver listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Risolve con la forma in cui la variabile è memorizzata (sparsa o densa).
+     */
+    public Result solve(MatrixData A, DenseMatrix b) {
+        SparseMatrix sparse = A.getSparseValues();
+        if (sparse != null) return solve(sparse, b);
+        DenseMatrix dense = A.getDenseValues();
+        if (dense == null) {
+            throw new IllegalArgumentException("I metodi iterativi richiedono una matrice numerica.");
+        }
+        return solve(dense, b);
+    }
+
+    public Result solve(SparseMatrix A, DenseMatrix b) {
+        checkDimensions(A.rows, A.cols, b);
+        return solve(A::multiply, A.rows, () -> A, b);
+    }
+
+    public Result solve(DenseMatrix A, DenseMatrix b) {
+        checkDimensions(A.rows, A.cols, b);
+        int n = A.rows;
+        Operator op = (x, y) -> {
+            DenseMatrix Ax = MatrixUtils.multiply(A, DenseMatrix.wrap(x, n, 1));
+            for (int i = 0; i < n; i++) y[i] = Ax.get(i, 0);
+        };
+        // I precondizionatori lavorano sulla struttura CSR (ILU(0) su una densa è una LU senza pivot)
+        return solve(op, n, () -> SparseMatrix.of(A), b);
+    }
+
+    /**
+     * La scelta di A \ b per le matrici sparse: CG con Jacobi se A è simmetrica con diagonale
+     * positiva, altrimenti GMRES con ILU(0). Restituisce null se il precondizionatore non si può
+     * costruire (es. diagonale nulla) o se il metodo non converge: il chiamante ripiega sulla LU.
+     */
+    static DenseMatrix solveSparse(SparseMatrix A, DenseMatrix b) {
+        IterativeSolver solver = A.isSymmetric() && hasPositiveDiagonal(A)
+                ? new IterativeSolver(Method.CG).preconditioner(Preconditioner.JACOBI)
+                : new IterativeSolver(Method.GMRES).preconditioner(Preconditioner.ILU0);
+        try {
+            Result result = solver.solve(A, b);
+            return result.converged() ? result.x() : null;
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static boolean hasPositiveDiagonal(SparseMatrix A) {
+        for (int i = 0; i < A.rows; i++) {
+            if (!(A.get(i, i) > 0)) return false;
+        }
+        return true;
+    }
+
+    private static void checkDimensions(int rows, int cols, DenseMatrix b) {
+        if (rows != cols) {
+            throw new IllegalArgumentException("I metodi iterativi richiedono una matrice quadrata, non "
+                    + rows + "x" + cols);
+        }
+        if (b.rows != rows) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + rows + "x" + cols + ") vs ("
+                    + b.rows + "x" + b.cols + ")");
+        }
+    }
+
+    private Result solve(Operator A, int n, java.util.function.Supplier<SparseMatrix> structure, DenseMatrix b) {
+        Inverse M = switch (preconditioner) {
+            case NONE -> IDENTITY;
+            case JACOBI -> jacobi(structure.get());
+            case ILU0 -> ilu0(structure.get());
+        };
+        int limit = maxIterations > 0 ? maxIterations : Math.max(100, 10 * n);
+
+        DenseMatrix X = new DenseMatrix(n, b.cols);
+        int worstIterations = 0;
+        double worstResidual = 0.0;
+        boolean converged = true;
+        double[] history = new double[0];
+        for (int c = 0; c < b.cols; c++) {
+            double[] rhs = new double[n];
+            for (int i = 0; i < n; i++) rhs[i] = b.get(i, c);
+            double[] x = new double[n];
+            History h = new History(listener);
+            switch (method) {
+                case CG -> cg(A, M, rhs, x, limit, h);
+                case BICGSTAB -> bicgstab(A, M, rhs, x, limit, h);
+                case GMRES -> gmres(A, M, rhs, x, limit, h);
+            }
+            for (int i = 0; i < n; i++) X.data[i * b.cols + c] = x[i];
+            // Residuo vero alla fine: quello ricorsivo dei metodi può allontanarsene
+            double residual = trueResidual(A, rhs, x);
+            worstIterations = Math.max(worstIterations, h.count);
+            worstResidual = Math.max(worstResidual, residual);
+            converged &= residual <= tolerance * 10;
+            history = h.values();
+        }
+        return new Result(X, worstIterations, worstResidual, converged, history);
+    }
+
+    // Residui per iterazione, inoltrati anche al listener
+    private static final class History {
+        private final Listener listener;
+        private double[] values = new double[16];
+        private int count;
+
+        History(Listener listener) {
+            this.listener = listener;
+        }
+
+        void add(double residual) {
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = residual;
+            if (listener != null) listener.iteration(count, residual);
+        }
+
+        double[] values() {
+            return Arrays.copyOf(values, count);
+        }
+    }
+
+    private static double trueResidual(Operator A, double[] b, double[] x) {
+        double[] r = new double[b.length];
+        A.apply(x, r);
+        for (int i = 0; i < r.length; i++) r[i] = b[i] - r[i];
+        double bNorm = norm(b);
+        return bNorm == 0.0 ? norm(r) : norm(r) / bNorm;
+    }
+
+    // =============================================================
+    // METODI
+    // =============================================================
+
+    // Gradiente coniugato precondizionato
+    private void cg(Operator A, Inverse M, double[] b, double[] x, int limit, History h) {
+        int n = b.length;
+        double bNorm = norm(b);
+        if (bNorm == 0.0) return; // x = 0
+        double[] r = b.clone();
+        double[] z = new double[n];
+        double[] Ap = new double[n];
+        M.apply(r, z);
+        double[] p = z.clone();
+        double rz = dot(r, z);
+
+        for (int k = 0; k < limit; k++) {
+            A.apply(p, Ap);
+            double pAp = dot(p, Ap);
+            if (pAp <= 0.0) break; // A non è definita positiva
+            double alpha = rz / pAp;
+            axpy(alpha, p, x);
+            axpy(-alpha, Ap, r);
+            double residual = norm(r) / bNorm;
+            h.add(residual);
+            if (residual <= tolerance) return;
+
+            M.apply(r, z);
+            double rzNew = dot(r, z);
+            double beta = rzNew / rz;
+            rz = rzNew;
+            for (int i = 0; i < n; i++) p[i] = z[i] + beta * p[i];
+        }
+    }
+
+    // BiCGSTAB con precondizionamento a destra
+    private void bicgstab(Operator A, Inverse M, double[] b, double[] x, int limit, History h) {
+        int n = b.length;
+        double bNorm = norm(b);
+        if (bNorm == 0.0) return;
+        double[] r = b.clone();
+        double[] rHat = b.clone();
+        double[] p = new double[n], v = new double[n], s = new double[n], t = new double[n];
+        double[] pHat = new double[n], sHat = new double[n];
+        double rho = 1.0, alpha = 1.0, omega = 1.0;
+
+        for (int k = 0; k < limit; k++) {
+            double rhoNew = dot(rHat, r);
+            if (rhoNew == 0.0) break; // breakdown: r ortogonale a rHat
+            double beta = (rhoNew / rho) * (alpha / omega);
+            rho = rhoNew;
+            for (int i = 0; i < n; i++) p[i] = r[i] + beta * (p[i] - omega * v[i]);
+
+            M.apply(p, pHat);
+            A.apply(pHat, v);
+            alpha = rho / dot(rHat, v);
+            for (int i = 0; i < n; i++) s[i] = r[i] - alpha * v[i];
+            double sNorm = norm(s) / bNorm;
+            if (sNorm <= tolerance) {
+                axpy(alpha, pHat, x);
+                h.add(sNorm);
+                return;
+            }
+
+            M.apply(s, sHat);
+            A.apply(sHat, t);
+            double tt = dot(t, t);
+            omega = tt == 0.0 ? 0.0 : dot(t, s) / tt;
+            axpy(alpha, pHat, x);
+            axpy(omega, sHat, x);
+            for (int i = 0; i < n; i++) r[i] = s[i] - omega * t[i];
+            double residual = norm(r) / bNorm;
+            h.add(residual);
+            if (residual <= tolerance || omega == 0.0) return;
+        }
+    }
+
+    /**
+     * GMRES con restart e precondizionamento a destra: Arnoldi con Gram-Schmidt modificato,
+     * e la matrice di Hessenberg resa triangolare con rotazioni di Givens man mano, così il
+     * residuo è noto a ogni passo senza calcolare x.
+     */
+    private void gmres(Operator A, Inverse M, double[] b, double[] x, int limit, History h) {
+        int n = b.length;
+        double bNorm = norm(b);
+        if (bNorm == 0.0) return;
+        int m = Math.min(restart, n);
+        double[][] V = new double[m + 1][];
+        double[][] H = new double[m + 1][m];
+        double[] cs = new double[m], sn = new double[m], g = new double[m + 1];
+        double[] w = new double[n], z = new double[n];
+
+        int k = 0;
+        while (k < limit) {
+            // r = b - A x
+            double[] r = new double[n];
+            A.apply(x, r);
+            for (int i = 0; i < n; i++) r[i] = b[i] - r[i];
+            double beta = norm(r);
+            if (beta / bNorm <= tolerance) return;
+            for (int i = 0; i < n; i++) r[i] /= beta;
+            V[0] = r;
+            Arrays.fill(g, 0.0);
+            g[0] = beta;
+
+            int j = 0;
+            boolean done = false;
+            for (; j < m && k < limit; j++, k++) {
+                M.apply(V[j], z);
+                A.apply(z, w);
+                for (int i = 0; i <= j; i++) {
+                    H[i][j] = dot(w, V[i]);
+                    axpy(-H[i][j], V[i], w);
+                }
+                H[j + 1][j] = norm(w);
+
+                // Rotazioni precedenti sulla nuova colonna, poi quella che annulla H[j+1][j]
+                for (int i = 0; i < j; i++) {
+                    double temp = cs[i] * H[i][j] + sn[i] * H[i + 1][j];
+                    H[i + 1][j] = -sn[i] * H[i][j] + cs[i] * H[i + 1][j];
+                    H[i][j] = temp;
+                }
+                double denominator = Math.hypot(H[j][j], H[j + 1][j]);
+                double next = H[j + 1][j];
+                if (denominator == 0.0) {
+                    cs[j] = 1.0;
+                    sn[j] = 0.0;
+                } else {
+                    cs[j] = H[j][j] / denominator;
+                    sn[j] = next / denominator;
+                }
+                H[j][j] = denominator;
+                H[j + 1][j] = 0.0;
+                g[j + 1] = -sn[j] * g[j];
+                g[j] = cs[j] * g[j];
+
+                double residual = Math.abs(g[j + 1]) / bNorm;
+                h.add(residual);
+                // Sottospazio invariante (next == 0): la soluzione nel sottospazio è esatta
+                if (residual <= tolerance || next == 0.0) {
+                    j++;
+                    done = true;
+                    break;
+                }
+                V[j + 1] = new double[n];
+                for (int i = 0; i < n; i++) V[j + 1][i] = w[i] / next;
+            }
+
+            // H y = g (triangolare superiore j x j), poi x += M^-1 (V y)
+            double[] y = new double[j];
+            for (int i = j - 1; i >= 0; i--) {
+                double sum = g[i];
+                for (int c = i + 1; c < j; c++) sum -= H[i][c] * y[c];
+                y[i] = sum / H[i][i];
+            }
+            Arrays.fill(w, 0.0);
+            for (int i = 0; i < j; i++) axpy(y[i], V[i], w);
+            M.apply(w, z);
+            axpy(1.0, z, x);
+            if (done) return;
+        }
+    }
+
+    // =============================================================
+    // PRECONDIZIONATORI
+    // =============================================================
+
+    private static Inverse jacobi(SparseMatrix A) {
+        int n = A.rows;
+        double[] inverse = new double[n];
+        for (int i = 0; i < n; i++) {
+            double d = A.get(i, i);
+            if (d == 0.0) {
+                throw new ArithmeticException("Precondizionatore di Jacobi: elemento diagonale nullo alla riga " + (i + 1));
+            }
+            inverse[i] = 1.0 / d;
+        }
+        return (r, z) -> {
+            for (int i = 0; i < n; i++) z[i] = r[i] * inverse[i];
+        };
+    }
+
+    /**
+     * ILU(0): eliminazione di Gauss (variante IKJ) che aggiorna solo le posizioni già non nulle
+     * in A, così L e U stanno nella stessa struttura CSR. M^-1 r = U^-1 L^-1 r.
+     */
+    private static Inverse ilu0(SparseMatrix A) {
+        int n = A.rows;
+        int[] ptr = A.rowPtr, idx = A.colIdx;
+        double[] lu = A.values.clone();
+        int[] diagonal = new int[n];
+        // position[j] = indice in lu dell'elemento (i, j) della riga corrente, -1 se è fuori struttura
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+
+        for (int i = 0; i < n; i++) {
+            for (int p = ptr[i]; p < ptr[i + 1]; p++) position[idx[p]] = p;
+            for (int p = ptr[i]; p < ptr[i + 1] && idx[p] < i; p++) {
+                int k = idx[p];
+                lu[p] /= lu[diagonal[k]];
+                for (int q = diagonal[k] + 1; q < ptr[k + 1]; q++) {
+                    int target = position[idx[q]];
+                    if (target >= 0) lu[target] -= lu[p] * lu[q];
+                }
+            }
+            int d = position[i];
+            if (d < 0 || lu[d] == 0.0) {
+                throw new ArithmeticException("ILU(0): elemento diagonale nullo alla riga " + (i + 1));
+            }
+            diagonal[i] = d;
+            for (int p = ptr[i]; p < ptr[i + 1]; p++) position[idx[p]] = -1;
+        }
+
+        return (r, z) -> {
+            // L y = r (diagonale unitaria), poi U z = y
+            for (int i = 0; i < n; i++) {
+                double sum = r[i];
+                for (int p = ptr[i]; p < diagonal[i]; p++) sum -= lu[p] * z[idx[p]];
+                z[i] = sum;
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                double sum = z[i];
+                for (int p = diagonal[i] + 1; p < ptr[i + 1]; p++) sum -= lu[p] * z[idx[p]];
+                z[i] = sum / lu[diagonal[i]];
+            }
+        };
+    }
+
+    // =============================================================
+    // VETTORI
+    // =============================================================
+
+    private static double dot(double[] a, double[] b) {
+        if (SimdSupport.ENABLED) return SimdKernels.dot(a, 0, b, 0, a.length);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+
+    // y += alpha * x
+    private static void axpy(double alpha, double[] x, double[] y) {
+        if (SimdSupport.ENABLED) {
+            SimdKernels.axpy(alpha, x, 0, y, 0, x.length);
+            return;
+        }
+        for (int i = 0; i < x.length; i++) y[i] += alpha * x[i];
+    }
+}
@@ -0,0 +1,195 @@
+package org.example;
+
+/**
+ * Fattorizzazione LU con pivoting parziale, PA = LU, di una matrice quadrata numerica.
+ *
+ * L (diagonale unitaria, non memorizzata) e U stanno nello stesso array row-major n x n.
+ * L'algoritmo è a blocchi ("right-looking"): per ogni pannello di BLOCK colonne
+ * - il pannello viene fattorizzato con l'eliminazione classica e gli scambi di riga;
+ * - il blocco di U a destra si ottiene con una sostituzione in avanti;
+ * - il resto della matrice viene aggiornato con un prodotto A22 -= L21 * U12, che è quasi
+ *   tutto il lavoro e passa dal GEMM a blocchi, in parallelo per righe.
+ *
+ * Una volta calcolata, la fattorizzazione serve per determinante, inversa e per risolvere
+ * A X = B con qualsiasi B in O(n^2) per colonna: MatrixData la tiene in cache (getLU()).
+ */
+public final class LUDecomposition {
+
+    // Larghezza del pannello: abbastanza da far lavorare il GEMM, abbastanza poco da restare in cache
+    static final int BLOCK = 64;
+
+    private final int n;
+    private final double[] lu;
+    // perm[i] = riga di A finita in posizione i
+    private final int[] perm;
+    // Segno della permutazione, 0 se la matrice è singolare
+    private final int sign;
+
+    private LUDecomposition(DenseMatrix A) {
+        n = A.rows;
+        lu = A.copy().data;
+        perm = new int[n];
+        for (int i = 0; i < n; i++) perm[i] = i;
+        sign = factor();
+    }
+
+    public static LUDecomposition of(DenseMatrix A) {
+        if (A.rows != A.cols) {
+            throw new IllegalArgumentException("La fattorizzazione LU richiede una matrice quadrata, non "
+                    + A.rows + "x" + A.cols);
+        }
+        return new LUDecomposition(A);
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isSingular() {
+        return sign == 0;
+    }
+
+    public double determinant() {
+        if (sign == 0) return 0.0;
+        double det = sign;
+        for (int i = 0; i < n; i++) det *= lu[i * n + i];
+        return det;
+    }
+
+    /**
+     * Risolve A X = B (B può avere più colonne): permutazione, poi L Y = P B, poi U X = Y.
+     */
+    public DenseMatrix solve(DenseMatrix B) {
+        if (B.rows != n) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + n + "x" + n + ") vs ("
+                    + B.rows + "x" + B.cols + ")");
+        }
+        if (sign == 0) throw new ArithmeticException("Matrice singolare: il sistema non ha un'unica soluzione");
+
+        int m = B.cols;
+        DenseMatrix X = new DenseMatrix(n, m);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) X.data[i * m + j] = B.get(perm[i], j);
+        }
+        substitute(X.data, m);
+        return X;
+    }
+
+    public DenseMatrix inverse() {
+        if (sign == 0) throw new ArithmeticException("Matrice singolare: non è invertibile");
+        // A X = I diventa LU X = P
+        DenseMatrix X = new DenseMatrix(n, n);
+        for (int i = 0; i < n; i++) X.data[i * n + perm[i]] = 1.0;
+        substitute(X.data, n);
+        return X;
+    }
+
+    // Sostituzione in avanti (L, diagonale unitaria) e all'indietro (U) su tutte le m colonne di x
+    private void substitute(double[] x, int m) {
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < i; k++) {
+                axpy(-lu[i * n + k], x, k * m, x, i * m, m);
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            for (int k = i + 1; k < n; k++) {
+                axpy(-lu[i * n + k], x, k * m, x, i * m, m);
+            }
+            double d = 1.0 / lu[i * n + i];
+            for (int j = 0; j < m; j++) x[i * m + j] *= d;
+        }
+    }
+
+    // --- FATTORIZZAZIONE ---
+
+    private int factor() {
+        int s = 1;
+        for (int k0 = 0; k0 < n; k0 += BLOCK) {
+            int kb = Math.min(BLOCK, n - k0);
+            int end = k0 + kb;
+
+            // 1. Pannello [k0, n) x [k0, end)
+            for (int k = k0; k < end; k++) {
+                int p = k;
+                for (int i = k + 1; i < n; i++) {
+                    if (Math.abs(lu[i * n + k]) > Math.abs(lu[p * n + k])) p = i;
+                }
+                if (lu[p * n + k] == 0.0) {
+                    s = 0; // colonna già nulla: singolare, ma si prosegue con le altre
+                    continue;
+                }
+                if (p != k) {
+                    swapRows(k, p);
+                    if (s != 0) s = -s;
+                }
+                double pivot = lu[k * n + k];
+                for (int i = k + 1; i < n; i++) {
+                    double l = lu[i * n + k] / pivot;
+                    lu[i * n + k] = l;
+                    if (l != 0.0) axpy(-l, lu, k * n + k + 1, lu, i * n + k + 1, end - k - 1);
+                }
+            }
+            if (end == n) break;
+
+            // 2. U12 = L11^-1 A12
+            for (int k = k0; k < end; k++) {
+                for (int i = k + 1; i < end; i++) {
+                    double l = lu[i * n + k];
+                    if (l != 0.0) axpy(-l, lu, k * n + end, lu, i * n + end, n - end);
+                }
+            }
+
+            // 3. A22 -= L21 * U12
+            updateTrailing(k0, kb);
+        }
+        return s;
+    }
+
+    private void updateTrailing(int k0, int kb) {
+        int start = k0 + kb;
+        int rest = n - start;
+        DenseMatrix all = DenseMatrix.wrap(lu, n, n);
+        DenseMatrix U12 = all.subMatrix(k0, start, kb, rest);
+        DenseMatrix A22 = all.subMatrix(start, start, rest, rest);
+        long workPerRow = (long) rest * kb;
+
+        if (rest * workPerRow >= MatrixUtils.GEMM_THRESHOLD) {
+            // Il GEMM fa C += A * B: gli passiamo -L21 (copia compatta, costa poco rispetto al prodotto)
+            DenseMatrix negL21 = new DenseMatrix(rest, kb);
+            for (int i = 0; i < rest; i++) {
+                for (int k = 0; k < kb; k++) negL21.data[i * kb + k] = -lu[(start + i) * n + k0 + k];
+            }
+            MatrixParallel.forRows(rest, workPerRow, GemmKernel.MC,
+                    (from, to) -> GemmKernel.multiply(negL21, U12, A22, from, to));
+            return;
+        }
+
+        for (int i = start; i < n; i++) {
+            for (int k = k0; k < start; k++) {
+                double l = lu[i * n + k];
+                if (l != 0.0) axpy(-l, lu, k * n + start, lu, i * n + start, rest);
+            }
+        }
+    }
+
+    private void swapRows(int a, int b) {
+        for (int j = 0; j < n; j++) {
+            double t = lu[a * n + j];
+            lu[a * n + j] = lu[b * n + j];
+            lu[b * n + j] = t;
+        }
+        int t = perm[a];
+        perm[a] = perm[b];
+        perm[b] = t;
+    }
+
+    // y[yOff..] += alpha * x[xOff..]
+    private static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int len) {
+        if (alpha == 0.0 || len <= 0) return;
+        if (SimdSupport.ENABLED) {
+            SimdKernels.axpy(alpha, x, xOff, y, yOff, len);
+            return;
+        }
+        for (int j = 0; j < len; j++) y[yOff + j] += alpha * x[xOff + j];
+    }
+}
@@ -0,0 +1,237 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Valutazione pigra dell'aritmetica numerica: somme, differenze, multipli scalari e prodotti
+ * costruiscono un grafo invece di calcolare subito, e il calcolo avviene tutto in evaluate().
+ *
+ * - Combinazioni lineari fuse: A + B + C - D è un solo nodo {(1, A), (1, B), (1, C), (-1, D)},
+ *   calcolato in una passata sulle righe del risultato: una matrice allocata invece di tre.
+ *   Ci finiscono anche i multipli scalari e le negazioni (2*A - B/3, -(A - B)).
+ * - Catene di prodotti: A*B*v è un solo nodo con i fattori in fila, moltiplicati nell'ordine
+ *   più economico (MatrixChain): qui A*(B*v), due prodotti matrice-vettore invece di un
+ *   prodotto fra matrici.
+ *
+ * Le foglie sono matrici già calcolate, dense, sparse o fuori heap: nei prodotti le sparse usano
+ * i kernel CSR, nelle somme vengono riportate direttamente sul risultato in O(nnz). Quelle fuori
+ * heap non vengono mai copiate per intero nello heap: nei prodotti usano MatrixUtils.multiply
+ * per OffHeapMatrix, nelle somme vengono lette una riga alla volta. Il risultato invece è
+ * sempre una DenseMatrix, quindi deve entrare nello heap.
+ * Le dimensioni si controllano mentre il grafo viene costruito, con gli stessi messaggi di MatrixUtils.
+ */
+sealed interface LazyMatrix {
+
+    int rows();
+
+    int cols();
+
+    DenseMatrix evaluate();
+
+    default boolean isScalar() {
+        return rows() == 1 && cols() == 1;
+    }
+
+    static LazyMatrix of(DenseMatrix matrix) {
+        return new Leaf(matrix, null, null);
+    }
+
+    static LazyMatrix of(SparseMatrix matrix) {
+        return new Leaf(null, matrix, null);
+    }
+
+    static LazyMatrix of(OffHeapMatrix matrix) {
+        return new Leaf(null, null, matrix);
+    }
+
+    default LazyMatrix add(LazyMatrix other) {
+        return combine(other, 1.0);
+    }
+
+    default LazyMatrix subtract(LazyMatrix other) {
+        return combine(other, -1.0);
+    }
+
+    default LazyMatrix scale(double s) {
+        List<Term> terms = new ArrayList<>();
+        Combination.collect(this, s, terms);
+        return new Combination(rows(), cols(), terms);
+    }
+
+    private LazyMatrix combine(LazyMatrix other, double sign) {
+        if (rows() != other.rows() || cols() != other.cols()) {
+            throw new IllegalArgumentException("Dimensioni non corrispondenti: " + size(this) + " vs " + size(other));
+        }
+        List<Term> terms = new ArrayList<>();
+        Combination.collect(this, 1.0, terms);
+        Combination.collect(other, sign, terms);
+        return new Combination(rows(), cols(), terms);
+    }
+
+    /**
+     * Come MatrixUtils.multiply: un fattore 1x1 è uno scalare e diventa un coefficiente.
+     */
+    default LazyMatrix multiply(LazyMatrix other) {
+        if (isScalar()) return other.scale(scalarValue());
+        if (other.isScalar()) return scale(other.scalarValue());
+        if (cols() != other.rows()) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: " + size(this) + " vs " + size(other));
+        }
+        List<LazyMatrix> factors = new ArrayList<>();
+        Product.collect(this, factors);
+        Product.collect(other, factors);
+        return new Product(factors);
+    }
+
+    private double scalarValue() {
+        return evaluate().get(0, 0);
+    }
+
+    private static String size(LazyMatrix m) {
+        return "(" + m.rows() + "x" + m.cols() + ")";
+    }
+
+    // =============================================================
+    // NODI
+    // =============================================================
+
+    // Esattamente uno fra dense, sparse e offHeap è non nullo
+    record Leaf(DenseMatrix dense, SparseMatrix sparse, OffHeapMatrix offHeap) implements LazyMatrix {
+        public int rows() { return dense != null ? dense.rows : sparse != null ? sparse.rows : offHeap.rows; }
+        public int cols() { return dense != null ? dense.cols : sparse != null ? sparse.cols : offHeap.cols; }
+
+        public DenseMatrix evaluate() {
+            if (dense != null) return dense;
+            return sparse != null ? sparse.toDense() : offHeap.toDense();
+        }
+    }
+
+    record Term(double coefficient, LazyMatrix matrix) {}
+
+    record Combination(int rows, int cols, List<Term> terms) implements LazyMatrix {
+
+        // Le combinazioni annidate si appiattiscono moltiplicando i coefficienti
+        static void collect(LazyMatrix m, double coefficient, List<Term> terms) {
+            if (m instanceof Combination c) {
+                for (Term t : c.terms) collect(t.matrix(), coefficient * t.coefficient(), terms);
+            } else {
+                terms.add(new Term(coefficient, m));
+            }
+        }
+
+        public DenseMatrix evaluate() {
+            // Prima i termini composti (es. prodotti): il primo con coefficiente 1 è una matrice
+            // nuova e fa da accumulatore, così non si alloca nemmeno il risultato
+            DenseMatrix result = null;
+            List<Term> leaves = new ArrayList<>(terms.size());
+            for (Term t : terms) {
+                if (t.matrix() instanceof Leaf) {
+                    leaves.add(t);
+                } else if (result == null && t.coefficient() == 1.0 && t.matrix() instanceof Product) {
+                    result = t.matrix().evaluate();
+                } else {
+                    leaves.add(new Term(t.coefficient(), LazyMatrix.of(t.matrix().evaluate())));
+                }
+            }
+            DenseMatrix out = result != null ? result : new DenseMatrix(rows, cols);
+
+            // Una passata: per ogni blocco di righe si sommano tutti i termini finché è in cache
+            MatrixParallel.forRows(rows, (long) cols * leaves.size(), (from, to) -> {
+                for (Term t : leaves) {
+                    Leaf leaf = (Leaf) t.matrix();
+                    if (leaf.dense() != null) accumulate(out, t.coefficient(), leaf.dense(), from, to);
+                    else if (leaf.sparse() != null) accumulate(out, t.coefficient(), leaf.sparse(), from, to);
+                    else accumulate(out, t.coefficient(), leaf.offHeap(), from, to);
+                }
+            });
+            return out;
+        }
+
+        // out[i] += c * M[i] per le righe from..to
+        private static void accumulate(DenseMatrix out, double c, DenseMatrix M, int from, int to) {
+            int n = out.cols;
+            for (int i = from; i < to; i++) {
+                int m = M.offset + i * M.rowStride;
+                if (SimdSupport.ENABLED && M.colStride == 1) {
+                    SimdKernels.axpy(c, M.data, m, out.data, i * n, n);
+                    continue;
+                }
+                for (int j = 0; j < n; j++) out.data[i * n + j] += c * M.data[m + j * M.colStride];
+            }
+        }
+
+        private static void accumulate(DenseMatrix out, double c, SparseMatrix S, int from, int to) {
+            int n = out.cols;
+            for (int i = from; i < to; i++) {
+                for (int k = S.rowPtr[i]; k < S.rowPtr[i + 1]; k++) out.data[i * n + S.colIdx[k]] += c * S.values[k];
+            }
+        }
+
+        private static void accumulate(DenseMatrix out, double c, OffHeapMatrix M, int from, int to) {
+            int n = out.cols;
+            double[] row = new double[n]; // privato del task
+            for (int i = from; i < to; i++) {
+                M.readRow(i, row, 0);
+                if (SimdSupport.ENABLED) {
+                    SimdKernels.axpy(c, row, 0, out.data, i * n, n);
+                    continue;
+                }
+                for (int j = 0; j < n; j++) out.data[i * n + j] += c * row[j];
+            }
+        }
+    }
+
+    record Product(List<LazyMatrix> factors) implements LazyMatrix {
+
+        // I prodotti annidati (anche fra parentesi) si uniscono in una sola catena
+        static void collect(LazyMatrix m, List<LazyMatrix> factors) {
+            if (m instanceof Product p) factors.addAll(p.factors);
+            else factors.add(m);
+        }
+
+        public int rows() { return factors.getFirst().rows(); }
+        public int cols() { return factors.getLast().cols(); }
+
+        /**
+         * Nell'ordine ottimo della programmazione dinamica (MatrixChain).
+         */
+        public DenseMatrix evaluate() {
+            int n = factors.size();
+            Leaf[] chain = new Leaf[n];
+            int[] dims = new int[n + 1];
+            long[] nonZeros = new long[n];
+            for (int i = 0; i < n; i++) {
+                LazyMatrix f = factors.get(i);
+                chain[i] = f instanceof Leaf leaf ? leaf : new Leaf(f.evaluate(), null, null);
+                dims[i] = chain[i].rows();
+                nonZeros[i] = chain[i].sparse() != null ? chain[i].sparse().nonZeros() : -1;
+            }
+            dims[n] = chain[n - 1].cols();
+            return multiply(chain, MatrixChain.split(dims, nonZeros), 0, n - 1).evaluate();
+        }
+
+        private static Leaf multiply(Leaf[] chain, int[][] split, int i, int j) {
+            if (i == j) return chain[i];
+            int k = split[i][j];
+            return multiply(multiply(chain, split, i, k), multiply(chain, split, k + 1, j));
+        }
+
+        static Leaf multiply(Leaf a, Leaf b) {
+            if (a.offHeap() != null || b.offHeap() != null) {
+                // L'altro fattore (di solito piccolo, es. un vettore) si copia fuori heap; il prodotto torna nello heap
+                try (OffHeapMatrix product = MatrixUtils.multiply(offHeap(a), offHeap(b))) {
+                    return new Leaf(product.toDense(), null, null);
+                }
+            }
+            if (a.sparse() != null && b.sparse() != null) return new Leaf(null, a.sparse().multiply(b.sparse()), null);
+            if (a.sparse() != null) return new Leaf(a.sparse().multiply(b.dense()), null, null);
+            if (b.sparse() != null) return new Leaf(SparseMatrix.multiply(a.dense(), b.sparse()), null, null);
+            return new Leaf(MatrixUtils.multiply(a.dense(), b.dense()), null, null);
+        }
+
+        private static OffHeapMatrix offHeap(Leaf leaf) {
+            return leaf.offHeap() != null ? leaf.offHeap() : OffHeapMatrix.autoCopyOf(leaf.evaluate());
+        }
+    }
+}
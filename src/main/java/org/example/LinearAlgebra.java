@@ -0,0 +1,263 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Determinante, inversa, sistemi lineari e rango di matrici numeriche.
+ *
+ * Determinante, inversa e sistemi passano dalla fattorizzazione LU (LUDecomposition),
+ * gli autovalori da EigenDecomposition, i valori singolari da SingularValueDecomposition.
+ * L'esponenziale usa scaling and squaring con approssimanti di Padé.
+ * Per le matrici simboliche o razionali vedi Bareiss.
+ */
+public final class LinearAlgebra {
+
+    private static final double EPS = Math.ulp(1.0);
+
+    // Padé [m/m] per expm (Higham 2005): coefficienti b_0..b_m e la norma-1 massima di A per cui
+    // il grado m dà già un errore sotto la precisione di macchina
+    private static final int[] PADE_DEGREES = {3, 5, 7, 9};
+    private static final double[] PADE_THETA = {1.495585217958292e-2, 2.539398330063230e-1,
+            9.504178996162932e-1, 2.097847961257068e0};
+    private static final double THETA_13 = 5.371920351148152e0;
+    private static final double[][] PADE_COEFFICIENTS = {
+            {120, 60, 12, 1},
+            {30240, 15120, 3360, 420, 30, 1},
+            {17297280, 8648640, 1995840, 277200, 25200, 1512, 56, 1},
+            {17643225600.0, 8821612800.0, 2075673600, 302702400, 30270240, 2162160, 110880, 3960, 90, 1}
+    };
+    private static final double[] PADE_13 = {64764752532480000.0, 32382376266240000.0, 7771770303897600.0,
+            1187353796428800.0, 129060195264000.0, 10559470521600.0, 670442572800.0, 33522128640.0,
+            1323241920, 40840800, 960960, 16380, 182, 1};
+
+    private LinearAlgebra() {}
+
+    public static double determinant(DenseMatrix A) {
+        checkSquare(A, "Il determinante");
+        return LUDecomposition.of(A).determinant();
+    }
+
+    public static DenseMatrix inverse(DenseMatrix A) {
+        checkSquare(A, "L'inversa");
+        return LUDecomposition.of(A).inverse();
+    }
+
+    /**
+     * A^n con n intero: per n < 0 è (A^-1)^|n|, una sola inversione seguita dai quadrati successivi.
+     */
+    public static DenseMatrix power(DenseMatrix A, int n) {
+        checkSquare(A, "La potenza");
+        if (n >= 0) return MatrixUtils.power(A, n);
+        if (A.isScalar() && A.get(0, 0) == 0.0) throw new ArithmeticException("Divisione per zero");
+        DenseMatrix inverse = A.isScalar() ? DenseMatrix.scalar(1.0 / A.get(0, 0)) : inverse(A);
+        return MatrixUtils.power(inverse, -(long) n);
+    }
+
+    /**
+     * Esponenziale di matrice e^A (scaling and squaring, Higham 2005).
+     *
+     * e^A = (e^(A / 2^s))^(2^s): si sceglie il grado m di Padé più basso la cui approssimazione
+     * è esatta alla precisione di macchina per ||A||_1, oppure m = 13 dopo aver diviso A per 2^s
+     * finché la norma scende sotto THETA_13; poi s quadrati. r_m = q_m(A)^-1 p_m(A) con
+     * p_m(A) = V + U e q_m(A) = V - U (U: potenze dispari, V: potenze pari).
+     */
+    public static DenseMatrix expm(DenseMatrix A) {
+        checkSquare(A, "L'esponenziale");
+        if (A.isScalar()) return DenseMatrix.scalar(Math.exp(A.get(0, 0)));
+        int n = A.rows;
+        double norm = norm1(A);
+        DenseMatrix I = MatrixUtils.identity(n);
+        DenseMatrix A2 = MatrixUtils.multiply(A, A);
+
+        for (int d = 0; d < PADE_DEGREES.length; d++) {
+            if (norm > PADE_THETA[d]) continue;
+            double[] b = PADE_COEFFICIENTS[d];
+            // Potenze pari I, A^2, A^4, ... fino a A^(m-1)
+            DenseMatrix[] even = new DenseMatrix[(PADE_DEGREES[d] + 1) / 2];
+            even[0] = I;
+            even[1] = A2;
+            for (int k = 2; k < even.length; k++) even[k] = MatrixUtils.multiply(even[k - 1], A2);
+            DenseMatrix U = new DenseMatrix(n, n), V = new DenseMatrix(n, n);
+            for (int k = 0; k < even.length; k++) {
+                accumulate(U, b[2 * k + 1], even[k]);
+                accumulate(V, b[2 * k], even[k]);
+            }
+            return padeQuotient(MatrixUtils.multiply(A, U), V);
+        }
+
+        // Grado 13 su A / 2^s
+        int s = Math.max(0, Math.getExponent(norm / THETA_13) + 1);
+        if (s > 0) {
+            double scale = Math.scalb(1.0, -s);
+            A = MatrixUtils.multiplyScalar(A, scale);
+            A2 = MatrixUtils.multiplyScalar(A2, scale * scale);
+        }
+        double[] b = PADE_13;
+        DenseMatrix A4 = MatrixUtils.multiply(A2, A2);
+        DenseMatrix A6 = MatrixUtils.multiply(A4, A2);
+
+        DenseMatrix inner = new DenseMatrix(n, n);
+        accumulate(inner, b[13], A6);
+        accumulate(inner, b[11], A4);
+        accumulate(inner, b[9], A2);
+        DenseMatrix U = MatrixUtils.multiply(A6, inner);
+        accumulate(U, b[7], A6);
+        accumulate(U, b[5], A4);
+        accumulate(U, b[3], A2);
+        accumulate(U, b[1], I);
+        U = MatrixUtils.multiply(A, U);
+
+        inner = new DenseMatrix(n, n);
+        accumulate(inner, b[12], A6);
+        accumulate(inner, b[10], A4);
+        accumulate(inner, b[8], A2);
+        DenseMatrix V = MatrixUtils.multiply(A6, inner);
+        accumulate(V, b[6], A6);
+        accumulate(V, b[4], A4);
+        accumulate(V, b[2], A2);
+        accumulate(V, b[0], I);
+
+        DenseMatrix R = padeQuotient(U, V);
+        for (int i = 0; i < s; i++) R = MatrixUtils.multiply(R, R);
+        return R;
+    }
+
+    // (V - U)^-1 (V + U)
+    private static DenseMatrix padeQuotient(DenseMatrix U, DenseMatrix V) {
+        return LUDecomposition.of(MatrixUtils.subtract(V, U)).solve(MatrixUtils.add(V, U));
+    }
+
+    // target += c * M (target compatta e di proprietà del chiamante)
+    private static void accumulate(DenseMatrix target, double c, DenseMatrix M) {
+        int n = target.cols;
+        for (int i = 0; i < target.rows; i++) {
+            for (int j = 0; j < n; j++) target.data[i * n + j] += c * M.get(i, j);
+        }
+    }
+
+    // Norma 1: massima somma dei valori assoluti di una colonna
+    private static double norm1(DenseMatrix A) {
+        double[] sums = new double[A.cols];
+        for (int i = 0; i < A.rows; i++) {
+            for (int j = 0; j < A.cols; j++) sums[j] += Math.abs(A.get(i, j));
+        }
+        double max = 0.0;
+        for (double v : sums) max = Math.max(max, v);
+        return max;
+    }
+
+    /**
+     * Soluzione di A X = B. Per risolvere più volte con la stessa A conviene tenere
+     * la fattorizzazione (LUDecomposition.of, o MatrixData.getLU() che la mette in cache).
+     *
+     * Se A non è quadrata: con più righe che colonne è la soluzione ai minimi quadrati,
+     * con più colonne che righe quella di norma minima (entrambe via QR).
+     */
+    public static DenseMatrix solve(DenseMatrix A, DenseMatrix B) {
+        if (A.rows == A.cols) return LUDecomposition.of(A).solve(B);
+        if (A.rows > A.cols) return QRDecomposition.of(A).solve(B);
+        return QRDecomposition.of(A.transpose()).solveTransposed(B);
+    }
+
+    /**
+     * Il fattore R della fattorizzazione QR (min(m, n) x n).
+     */
+    public static DenseMatrix qr(DenseMatrix A) {
+        return QRDecomposition.of(A).getR();
+    }
+
+    /**
+     * Il fattore Q della fattorizzazione QR (m x min(m, n)): se A ha rango pieno per colonne
+     * è una base ortonormale del suo spazio delle colonne.
+     */
+    public static DenseMatrix orth(DenseMatrix A) {
+        return QRDecomposition.of(A).getQ();
+    }
+
+    /**
+     * Autovalori di A in colonna (n x 1), in ordine decrescente. Vedi EigenDecomposition.
+     * Una colonna di double non può contenere autovalori complessi: in quel caso si usa
+     * eigenvalues(), che restituisce anche le parti immaginarie.
+     */
+    public static DenseMatrix eig(DenseMatrix A) {
+        double[][] values = eigenvalues(A);
+        DenseMatrix column = new DenseMatrix(values.length, 1);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i][1] != 0.0) {
+                throw new ArithmeticException("Autovalori complessi: eig si può mostrare ma non usare nei calcoli");
+            }
+            column.data[i] = values[i][0];
+        }
+        return column;
+    }
+
+    /**
+     * Autovalori di A come coppie {parte reale, parte immaginaria}, ordinati per parte reale
+     * decrescente (a parità, prima la parte immaginaria positiva).
+     */
+    public static double[][] eigenvalues(DenseMatrix A) {
+        checkSquare(A, "Il calcolo degli autovalori");
+        EigenDecomposition eigen = EigenDecomposition.of(A);
+        double[] re = eigen.getRealEigenvalues();
+        double[] im = eigen.getImagEigenvalues();
+        double[][] values = new double[re.length][];
+        for (int i = 0; i < re.length; i++) values[i] = new double[]{re[i], im[i]};
+        Arrays.sort(values, Comparator.<double[]>comparingDouble(v -> -v[0]).thenComparingDouble(v -> -v[1]));
+        return values;
+    }
+
+    /**
+     * Valori singolari di A in colonna (min(m, n) x 1), in ordine decrescente.
+     * Per U e V vedi SingularValueDecomposition.
+     */
+    public static DenseMatrix svd(DenseMatrix A) {
+        double[] values = SingularValueDecomposition.of(A).getSingularValues();
+        return DenseMatrix.wrap(values, values.length, 1);
+    }
+
+    /**
+     * Rango numerico: eliminazione con pivoting parziale, un pivot conta solo se supera
+     * max(righe, colonne) * eps * max|a_ij| (sotto è rumore di arrotondamento).
+     */
+    public static int rank(DenseMatrix A) {
+        int rows = A.rows, cols = A.cols;
+        double[] m = A.copy().data;
+        double max = 0.0;
+        for (double v : m) max = Math.max(max, Math.abs(v));
+        double tolerance = Math.max(rows, cols) * EPS * max;
+
+        int r = 0;
+        for (int c = 0; c < cols && r < rows; c++) {
+            int p = r;
+            for (int i = r + 1; i < rows; i++) {
+                if (Math.abs(m[i * cols + c]) > Math.abs(m[p * cols + c])) p = i;
+            }
+            if (Math.abs(m[p * cols + c]) <= tolerance) continue;
+            swapRows(m, cols, r, p);
+            double pivot = m[r * cols + c];
+            for (int i = r + 1; i < rows; i++) {
+                double f = m[i * cols + c] / pivot;
+                if (f == 0.0) continue;
+                for (int j = c; j < cols; j++) m[i * cols + j] -= f * m[r * cols + j];
+            }
+            r++;
+        }
+        return r;
+    }
+
+    private static void swapRows(double[] a, int cols, int r1, int r2) {
+        for (int j = 0; j < cols; j++) {
+            double t = a[r1 * cols + j];
+            a[r1 * cols + j] = a[r2 * cols + j];
+            a[r2 * cols + j] = t;
+        }
+    }
+
+    private static void checkSquare(DenseMatrix A, String what) {
+        if (A.rows != A.cols) {
+            throw new IllegalArgumentException(what + " richiede una matrice quadrata, non "
+                    + A.rows + "x" + A.cols);
+        }
+    }
+}
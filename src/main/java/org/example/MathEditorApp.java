@@ -8,6 +8,7 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -129,22 +130,23 @@ public class MathEditorApp {
             String rawInput = inputField.getText().trim();
             if (rawInput.isEmpty()) return;
 
-            String assignmentResult = AssignmentHandler.tryHandleAssignment(rawInput, frame);
-            if (assignmentResult != null) {
-                String varName = rawInput.split("=")[0].trim();
-                addFormulaToHistory(assignmentResult, rawInput, "Definita: " + varName,
-                        historyPanel, scrollPane, frame);
-                inputField.setText("");
-            } else {
-                try {
+            try {
+                // Anche l'assegnazione può fallire: [U, S, V] = svd(A) valuta A
+                String assignmentResult = AssignmentHandler.tryHandleAssignment(rawInput, frame);
+                if (assignmentResult != null) {
+                    String varName = rawInput.split("=")[0].trim();
+                    addFormulaToHistory(assignmentResult, rawInput, "Definita: " + varName,
+                            historyPanel, scrollPane, frame);
+                    inputField.setText("");
+                } else {
                     String latex = SmartMathParser.parseToColoredLatex(rawInput);
                     addFormulaToHistory(latex, rawInput, "Input: " + rawInput,
                             historyPanel, scrollPane, frame);
                     inputField.setText("");
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(frame, "Errore: " + ex.getMessage(),
-                            "Errore", JOptionPane.ERROR_MESSAGE);
                 }
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(frame, "Errore: " + ex.getMessage(),
+                        "Errore", JOptionPane.ERROR_MESSAGE);
             }
         };
 
@@ -226,9 +228,37 @@ public class MathEditorApp {
         vector3Btn.addActionListener(e -> new VectorVisualizer3D(frame).setVisible(true));
         rightPanel.add(vector3Btn);
 
+        JButton saveBtn = createIconButton("↓");
+        saveBtn.setToolTipText("Salva una variabile su file binario (." + MatrixFile.EXTENSION + ")");
+        saveBtn.addActionListener(e -> saveVariableToFile(frame));
+        rightPanel.add(saveBtn);
+
         return topBar;
     }
 
+    private static void saveVariableToFile(JFrame frame) {
+        Object[] names = VariableManager.getAll().keySet().stream().sorted().toArray();
+        if (names.length == 0) {
+            JOptionPane.showMessageDialog(frame, "Nessuna variabile definita.", "Salva Matrice",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        Object choice = JOptionPane.showInputDialog(frame, "Variabile da salvare:", "Salva Matrice",
+                JOptionPane.PLAIN_MESSAGE, null, names, names[0]);
+        if (choice == null) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(choice + "." + MatrixFile.EXTENSION));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        try {
+            MatrixFile.save(chooser.getSelectedFile().toPath(), VariableManager.get((String) choice));
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(frame, "Errore: " + ex.getMessage(), "Errore", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private static JButton createIconButton(String text) {
         JButton btn = new JButton(text);
         btn.setFont(new Font("SansSerif", Font.BOLD, 14));
@@ -1,5 +1,10 @@
 package org.example;
 
+/**
+ * Parser a discesa ricorsiva delle formule.
+ * Il testo viene trasformato in un albero (ExprNode) racchiuso in una Expression,
+ * che poi si può valutare più volte, in modo simbolico o numerico, senza rifare il parsing.
+ */
 public class MathEvaluator {
     private final String expression;
     private int pos = -1, ch;
@@ -8,14 +13,28 @@ public class MathEvaluator {
         this.expression = expression;
     }
 
+    /**
+     * Analizza la formula una volta sola.
+     * Nota: la separazione dei nomi attaccati (es. "Av" -> A * v) dipende dalle variabili
+     * definite in questo momento, quindi va ricompilata se ne vengono create di nuove.
+     */
+    public static Expression compile(String expression) {
+        return new MathEvaluator(expression).parse();
+    }
+
     // Punto di ingresso: restituisce una matrice di stringhe (simbolica)
     public String[][] evaluate() {
+        return parse().evaluate();
+    }
+
+    private Expression parse() {
+        pos = -1;
         nextChar();
-        String[][] x = parseExpression();
+        ExprNode x = parseExpression();
         if (pos < expression.length()) {
             throw new RuntimeException("Carattere inatteso alla posizione " + pos + ": '" + (char)ch + "'");
         }
-        return x;
+        return new Expression(expression, x);
     }
 
     private void nextChar() {
@@ -33,15 +52,14 @@ public class MathEvaluator {
     }
 
     // Parsing Espressione: Gestione Somma (+)
-    private String[][] parseExpression() {
-        String[][] x = this.parseTerm();
+    private ExprNode parseExpression() {
+        ExprNode x = this.parseTerm();
 
         while (true) {
             if (this.eat(43)) { // '+'
-                x = MatrixUtils.addSymbolic(x, this.parseTerm());
+                x = new ExprNode.Add(x, this.parseTerm());
             } else if (this.eat(45)) { // '-'
-                // Assicurati che MatrixUtils abbia il metodo subtractSymbolic
-                x = MatrixUtils.subtractSymbolic(x, this.parseTerm());
+                x = new ExprNode.Subtract(x, this.parseTerm());
             } else {
                 return x;
             }
@@ -49,20 +67,25 @@ public class MathEvaluator {
     }
 
     // AGGIORNATO: Ora gestisce * (42), / (47) e la moltiplicazione implicita
-    private String[][] parseTerm() {
-        String[][] x = this.parseFactor();
+    private ExprNode parseTerm() {
+        ExprNode x = this.parseFactor();
 
         while(true) {
             // Gestione moltiplicazione esplicita (*, ·, ecc)
             if (this.eat(42) || this.eat(183) || this.eat(8901)) {
-                x = MatrixUtils.multiplySymbolic(x, this.parseFactor());
+                x = new ExprNode.Multiply(x, this.parseFactor());
                 continue;
             }
 
             // Gestione divisione (/)
             if (this.eat(47)) { // '/'
-                // Assicurati che MatrixUtils abbia il metodo divideSymbolic
-                x = MatrixUtils.divideSymbolic(x, this.parseFactor());
+                x = new ExprNode.Divide(x, this.parseFactor());
+                continue;
+            }
+
+            // Sistema lineare (A \ b)
+            if (this.eat(92)) { // '\'
+                x = new ExprNode.Solve(x, this.parseFactor());
                 continue;
             }
 
@@ -83,41 +106,63 @@ public class MathEvaluator {
             // Se siamo qui, c'è un fattore implicito, quindi moltiplichiamo
             this.pos = startPos - 1;
             this.nextChar();
-            x = MatrixUtils.multiplySymbolic(x, this.parseFactor());
+            x = new ExprNode.Multiply(x, this.parseFactor());
         }
     }
 
 
-    // Parsing Fattore: Gestione Potenze / Trasposte (^T)
-    private String[][] parseFactor() {
+    // Parsing Fattore: Gestione Potenze intere (^3, ^-1, ^(-2)) / Trasposte (^T)
+    private ExprNode parseFactor() {
         if (this.eat(45)) { // 45 è il codice ASCII per '-'
             // Se troviamo un meno, parsiamo il fattore successivo e lo neghiamo
-            return MatrixUtils.negateSymbolic(this.parseFactor());
+            return new ExprNode.Negate(this.parseFactor());
         }
 
-        String[][] x = parseAtom();
+        ExprNode x = parseAtom();
 
-        // Gestione esponenti (supportiamo solo la trasposta T o t)
+        // Gestione esponenti: trasposta (T o t) o intero
         while (eat('^')) {
             while (ch == ' ') nextChar();
             if (ch == 'T' || ch == 't') {
                 nextChar();
-                x = MatrixUtils.transposeSymbolic(x);
+                x = new ExprNode.Transpose(x);
+            } else if (eat('(')) {
+                int exponent = parseExponent();
+                if (!eat(')')) throw new RuntimeException("Manca parentesi chiusa ')' nell'esponente");
+                x = new ExprNode.Power(x, exponent);
             } else {
-                // Opzionale: gestire potenze numeriche se necessario
-                throw new RuntimeException("Esponente non supportato: previsto 'T' per la trasposta.");
+                x = new ExprNode.Power(x, parseExponent());
             }
         }
         return x;
     }
 
+    // Intero con segno: le potenze frazionarie di una matrice non sono definite in modo unico
+    private int parseExponent() {
+        boolean negative = eat('-');
+        while (ch == ' ') nextChar();
+        StringBuilder sb = new StringBuilder();
+        while (ch >= '0' && ch <= '9') {
+            sb.append((char) ch);
+            nextChar();
+        }
+        if (sb.isEmpty() || ch == '.') {
+            throw new RuntimeException("Esponente non supportato: previsto un intero o 'T' per la trasposta.");
+        }
+        try {
+            return Integer.parseInt((negative ? "-" : "") + sb);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Esponente troppo grande: " + sb);
+        }
+    }
+
     // Parsing Atomo: Parentesi, Numeri, Variabili
-    private String[][] parseAtom() {
+    private ExprNode parseAtom() {
         while (ch == ' ') nextChar();
 
         // 1. Parentesi
         if (eat('(')) {
-            String[][] x = parseExpression();
+            ExprNode x = parseExpression();
             if (!eat(')')) throw new RuntimeException("Manca parentesi chiusa ')'");
             return x;
         }
@@ -129,7 +174,12 @@ public class MathEvaluator {
                 sb.append((char)ch);
                 nextChar();
             }
-            return new String[][]{{sb.toString()}};
+            String text = sb.toString();
+            try {
+                return new ExprNode.Literal(text, Double.parseDouble(text));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Numero non valido: " + text);
+            }
         }
 
         // 3. Variabili (Lettere)
@@ -145,7 +195,15 @@ public class MathEvaluator {
             // CASO A: Variabile Esatta (es. "A" esiste)
             MatrixData data = VariableManager.get(varName);
             if (data != null) {
-                return data.getValues();
+                return new ExprNode.Variable(varName);
+            }
+
+            // Funzioni: det(A), inv(A), rank(A). Una variabile con lo stesso nome ha la precedenza
+            ExprNode.Function function = ExprNode.Function.byName(varName);
+            if (function != null && eat('(')) {
+                ExprNode argument = parseExpression();
+                if (!eat(')')) throw new RuntimeException("Manca parentesi chiusa ')' dopo " + varName + "(...");
+                return new ExprNode.Call(function, argument);
             }
 
             // CASO B: FIX PER "Av" (Variabili attaccate)
@@ -170,14 +228,14 @@ public class MathEvaluator {
                         ch = expression.charAt(pos);
 
                         // Ritorniamo il valore della prima parte ("A")
-                        return VariableManager.get(part1).getValues();
+                        return new ExprNode.Variable(part1);
                     }
                 }
             }
 
             // Gestione Costanti Matematiche
-            if (varName.equalsIgnoreCase("pi")) return new String[][]{{"\\pi"}};
-            if (varName.equalsIgnoreCase("e")) return new String[][]{{"e"}};
+            if (varName.equalsIgnoreCase("pi")) return new ExprNode.Constant("\\pi", Math.PI);
+            if (varName.equalsIgnoreCase("e")) return new ExprNode.Constant("e", Math.E);
 
             throw new RuntimeException("Variabile non definita: " + varName);
         }
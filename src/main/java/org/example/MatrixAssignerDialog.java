@@ -5,9 +5,11 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -108,6 +110,10 @@ public class MatrixAssignerDialog extends JDialog {
         bottomPanel.setBackground(cardColor);
         bottomPanel.setBorder(new EmptyBorder(15, 25, 20, 25));
 
+        JButton btnImport = createStyledButton("Importa File...", false);
+        btnImport.setToolTipText("Carica la matrice da un file binario (." + MatrixFile.EXTENSION + ") o CSV/TSV");
+        btnImport.addActionListener(e -> importFromFile());
+
         JButton btnCancel = createStyledButton("Annulla", false);
         btnCancel.addActionListener(e -> dispose());
 
@@ -118,6 +124,7 @@ public class MatrixAssignerDialog extends JDialog {
             dispose();
         });
 
+        bottomPanel.add(btnImport);
         bottomPanel.add(btnCancel);
         bottomPanel.add(btnSave);
         add(bottomPanel, BorderLayout.SOUTH);
@@ -242,15 +249,13 @@ public class MatrixAssignerDialog extends JDialog {
     }
 
     private void saveData() {
-        resultData = new MatrixData();
-        resultData.rowsStr = txtRows.getText();
-        resultData.colsStr = txtCols.getText();
+        String rowsStr = txtRows.getText();
+        String colsStr = txtCols.getText();
 
-        if (resultData.rowsStr.matches("\\d+") && resultData.colsStr.matches("\\d+")) {
-            int r = Integer.parseInt(resultData.rowsStr);
-            int c = Integer.parseInt(resultData.colsStr);
-            resultData.values = new String[r][c];
-            resultData.isSymbolic = false;
+        if (rowsStr.matches("\\d+") && colsStr.matches("\\d+")) {
+            int r = Integer.parseInt(rowsStr);
+            int c = Integer.parseInt(colsStr);
+            String[][] values = new String[r][c];
 
             for (int i = 0; i < r; i++) {
                 for (int j = 0; j < c; j++) {
@@ -258,15 +263,41 @@ public class MatrixAssignerDialog extends JDialog {
                     if (idx < cellInputs.size()) {
                         String text = cellInputs.get(idx).getText().trim();
                         if (text.isEmpty()) {
-                            resultData.values[i][j] = "0";
+                            values[i][j] = "0";
                         } else {
-                            resultData.values[i][j] = text;
+                            values[i][j] = text;
                         }
                     }
                 }
             }
+            resultData = MatrixData.of(rowsStr, colsStr, values);
         } else {
-            resultData.isSymbolic = true;
+            resultData = MatrixData.of(rowsStr, colsStr, null);
+        }
+    }
+
+    private void importFromFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("Matrice binaria (*." + MatrixFile.EXTENSION + ")",
+                MatrixFile.EXTENSION));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("Testo CSV / TSV (*.csv, *.tsv, *.txt)",
+                "csv", "tsv", "txt"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        Path path = chooser.getSelectedFile().toPath();
+        try {
+            if (CsvMatrixImporter.isSupported(path)) {
+                // Parsing parallelo a blocchi, direttamente in memoria off-heap
+                resultData = CsvMatrixImporter.importVariable(path);
+            } else {
+                // Il file viene mappato in memoria: nessuna lettura completa, anche per matrici enormi
+                resultData = MatrixFile.loadVariable(path);
+            }
+            confirmed = true;
+            dispose();
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Errore durante l'importazione: " + ex.getMessage(),
+                    "Errore", JOptionPane.ERROR_MESSAGE);
         }
     }
 
@@ -0,0 +1,52 @@
+package org.example;
+
+/**
+ * Ordine ottimo di una catena di prodotti A1 A2 ... An (programmazione dinamica classica,
+ * O(n^3) sul numero di fattori, trascurabile rispetto a qualunque prodotto).
+ *
+ * Il prodotto è associativo ma il costo no: con A, B, C quadrate n x n e v un vettore,
+ * ((A B) C) v costa 2 n^3 + n^2 moltiplicazioni, A (B (C v)) solo 3 n^2.
+ *
+ * Le dimensioni sono in dims (n + 1 elementi): il fattore i è dims[i] x dims[i + 1].
+ */
+final class MatrixChain {
+
+    private MatrixChain() {}
+
+    /**
+     * split[i][j] = k: il prodotto dei fattori i..j si calcola come (i..k)(k+1..j).
+     *
+     * nonZeros[i] >= 0 se il fattore i è sparso (null: tutti densi). Le sparse contano solo quando
+     * entrano da sole in un prodotto: i risultati intermedi sono sempre densi.
+     */
+    static int[][] split(int[] dims, long[] nonZeros) {
+        int n = dims.length - 1;
+        double[][] cost = new double[n][n];
+        int[][] split = new int[n][n];
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length - 1 < n; i++) {
+                int j = i + length - 1;
+                cost[i][j] = Double.POSITIVE_INFINITY;
+                for (int k = i; k < j; k++) {
+                    double c = cost[i][k] + cost[k + 1][j] + multiplyCost(dims, nonZeros, i, k, j);
+                    if (c < cost[i][j]) {
+                        cost[i][j] = c;
+                        split[i][j] = k;
+                    }
+                }
+            }
+        }
+        return split;
+    }
+
+    // Moltiplicazioni di (i..k) per (k+1..j), cioè dims[i] x dims[k+1] per dims[k+1] x dims[j+1],
+    // secondo il kernel che verrà usato (vedi SparseMatrix)
+    private static double multiplyCost(int[] dims, long[] nonZeros, int i, int k, int j) {
+        boolean leftSparse = nonZeros != null && i == k && nonZeros[i] >= 0;
+        boolean rightSparse = nonZeros != null && k + 1 == j && nonZeros[j] >= 0;
+        if (leftSparse && rightSparse) return (double) nonZeros[i] * nonZeros[j] / dims[k + 1];
+        if (leftSparse) return (double) nonZeros[i] * dims[j + 1];
+        if (rightSparse) return (double) dims[i] * nonZeros[j];
+        return (double) dims[i] * dims[k + 1] * dims[j + 1];
+    }
+}
@@ -1,28 +1,219 @@
 package org.example;
 
+/**
+ * Valori di una variabile. Non cambia dopo la creazione (i campi si impostano solo nei metodi
+ * statici qui sotto): una volta salvata in VariableManager può essere letta da più thread.
+ * Le forme derivate (numerica, simbolica, LU, QR) si calcolano alla prima richiesta.
+ */
 public class MatrixData {
-    public String rowsStr, colsStr;
-    public boolean isSymbolic;
-    public String[][] values; // I valori grezzi presi dalle caselle di testo o dal calcolo
+    private String rowsStr, colsStr;
+    private boolean isSymbolic;
+    private String[][] values; // I valori grezzi presi dalle caselle di testo o dal calcolo
 
-    public String[][] getValues() {
+    // Valori numerici fuori heap (es. matrice caricata da file binario).
+    // In questo caso values viene generato solo se qualcuno chiede la forma testuale.
+    private OffHeapMatrix offHeapValues;
+    // Valori numerici in forma sparsa (CSR), scelta da sola quando la matrice è quasi tutta zeri
+    private SparseMatrix sparseValues;
+
+    // Oltre questo numero di celle toLatex() mostra solo le dimensioni
+    private static final int MAX_LATEX_CELLS = 400;
+
+    // Forma numerica nello heap: letta da values alla prima richiesta, o impostata da fromDense.
+    // Le forme fuori heap e sparse invece non vengono mai copiate qui (vedi getDenseValues).
+    // cacheValid distingue "non ancora calcolata" da "calcolata, ma la matrice è simbolica" (null).
+    private DenseMatrix numericCache;
+    private boolean cacheValid;
+    private SymExpr[][] symbolicCache;
+    // Fattorizzazione LU: risolvere più sistemi con la stessa matrice costa O(n^2) ciascuno
+    private LUDecomposition luCache;
+    private QRDecomposition qrCache;
+
+    private MatrixData() {}
+
+    /**
+     * Matrice inserita a mano: values null se le dimensioni sono simboliche (es. "n x m").
+     */
+    public static MatrixData of(String rowsStr, String colsStr, String[][] values) {
+        MatrixData data = new MatrixData();
+        data.rowsStr = rowsStr;
+        data.colsStr = colsStr;
+        data.isSymbolic = values == null;
+        data.values = values;
+        return data;
+    }
+
+    /**
+     * MatrixData non chiude mai la matrice: una variabile sostituita può restare in una fotografia
+     * di VariableManager ancora in uso. Va quindi creata "auto" (OffHeapMatrix.allocateAuto,
+     * MatrixFile.loadVariable), così la rilascia il GC.
+     */
+    public static MatrixData fromOffHeap(OffHeapMatrix matrix) {
+        MatrixData data = new MatrixData();
+        data.rowsStr = String.valueOf(matrix.getRows());
+        data.colsStr = String.valueOf(matrix.getCols());
+        data.isSymbolic = false;
+        data.offHeapValues = matrix;
+        return data;
+    }
+
+    public static MatrixData fromSparse(SparseMatrix matrix) {
+        MatrixData data = new MatrixData();
+        data.rowsStr = String.valueOf(matrix.getRows());
+        data.colsStr = String.valueOf(matrix.getCols());
+        data.isSymbolic = false;
+        data.sparseValues = matrix;
+        return data;
+    }
+
+    /**
+     * Matrice importata o caricata da file: sparsa se la densità è sotto
+     * SparseMatrix.DENSITY_THRESHOLD (la copia fuori heap viene rilasciata), altrimenti fuori heap.
+     */
+    public static MatrixData fromNumeric(OffHeapMatrix matrix) {
+        SparseMatrix sparse = SparseMatrix.compress(matrix);
+        if (sparse == null) return fromOffHeap(matrix);
+        matrix.close();
+        return fromSparse(sparse);
+    }
+
+    /**
+     * Risultato di un calcolo numerico come variabile. Le matrici grandi restano nello heap così
+     * come sono, senza passare dalle stringhe (generate solo se qualcuno le chiede); quelle
+     * quasi tutte zeri diventano sparse.
+     */
+    public static MatrixData fromDense(DenseMatrix matrix) {
+        SparseMatrix sparse = SparseMatrix.compress(matrix);
+        if (sparse != null) return fromSparse(sparse);
+        MatrixData data = new MatrixData();
+        data.rowsStr = String.valueOf(matrix.rows);
+        data.colsStr = String.valueOf(matrix.cols);
+        data.isSymbolic = false;
+        if ((long) matrix.rows * matrix.cols > MAX_LATEX_CELLS) {
+            data.numericCache = matrix;
+            data.cacheValid = true;
+        } else {
+            data.values = MatrixUtils.toStrings(matrix);
+        }
+        return data;
+    }
+
+    /**
+     * La stessa matrice in forma sparsa se i valori sono numerici e quasi tutti zero
+     * (vedi SparseMatrix.compress), altrimenti this. Usata dopo un'assegnazione.
+     */
+    public MatrixData optimizeStorage() {
+        if (sparseValues != null || offHeapValues != null) return this;
+        DenseMatrix dense = getDenseValues();
+        if (dense == null) return this;
+        SparseMatrix sparse = SparseMatrix.compress(dense);
+        return sparse == null ? this : fromSparse(sparse);
+    }
+
+    public OffHeapMatrix getOffHeapValues() {
+        return offHeapValues;
+    }
+
+    /**
+     * La forma sparsa, se la matrice è memorizzata così; altrimenti null.
+     */
+    public SparseMatrix getSparseValues() {
+        return sparseValues;
+    }
+
+    /**
+     * True se tutte le celle sono numeri, senza materializzare la forma densa.
+     */
+    public boolean isNumeric() {
+        return offHeapValues != null || sparseValues != null || getDenseValues() != null;
+    }
+
+    /**
+     * Il risultato è condiviso: va trattato in sola lettura.
+     */
+    public synchronized String[][] getValues() {
+        // Matrici numeriche senza forma testuale (fuori heap, sparse, risultati grandi):
+        // le stringhe si generano a ogni richiesta, senza tenerle in memoria
+        if (values == null && !isSymbolic) return MatrixUtils.toStrings(getDenseValues());
         return values;
     }
 
     // --- METODO POTENZIATO ---
     // Ora è in grado di capire che "2 + 4" vale 6.0
+    // Restituisce una copia: il chiamante può modificarla senza toccare la cache.
     public double[][] getDoubleValues() {
-        if (values == null) return null;
+        DenseMatrix dense = getDenseValues();
+        return dense == null ? null : dense.toArray();
+    }
+
+    /**
+     * Versione contigua di getDoubleValues(), pronta per i kernel numerici di MatrixUtils.
+     * Restituisce null se la matrice contiene simboli.
+     * Il risultato è condiviso (cache): va trattato in sola lettura.
+     * Le forme fuori heap e sparse invece si copiano nello heap a ogni chiamata, senza cache:
+     * tenerne la copia raddoppierebbe la memoria proprio delle matrici più grandi. Conviene
+     * quindi lavorare direttamente su getOffHeapValues() / getSparseValues() quando ci sono.
+     */
+    public synchronized DenseMatrix getDenseValues() {
+        if (offHeapValues != null) return offHeapValues.toDense();
+        if (sparseValues != null) return sparseValues.toDense();
+        if (!cacheValid) {
+            if (values != null) numericCache = parseNumeric(values);
+            cacheValid = true;
+        }
+        return numericCache;
+    }
 
+    /**
+     * Fattorizzazione LU dei valori numerici, calcolata alla prima richiesta e tenuta in cache
+     * qualunque sia la memorizzazione (anche fuori heap o sparsa): la matrice non cambia più.
+     * La copia densa usata per fattorizzare invece non resta.
+     * Restituisce null se la matrice contiene simboli.
+     */
+    public synchronized LUDecomposition getLU() {
+        if (luCache == null) {
+            DenseMatrix dense = getDenseValues();
+            if (dense == null) return null;
+            luCache = LUDecomposition.of(dense);
+        }
+        return luCache;
+    }
+
+    /**
+     * Fattorizzazione QR dei valori numerici (minimi quadrati), in cache come getLU().
+     */
+    public synchronized QRDecomposition getQR() {
+        if (qrCache == null) {
+            DenseMatrix dense = getDenseValues();
+            if (dense == null) return null;
+            qrCache = QRDecomposition.of(dense);
+        }
+        return qrCache;
+    }
+
+    /**
+     * Celle interpretate come termini simbolici (vedi SymExpr.parse), anch'esse in cache
+     * (ma non per le forme fuori heap e sparse, come getDenseValues).
+     * Il risultato è condiviso: va trattato in sola lettura.
+     */
+    public synchronized SymExpr[][] getSymbolicValues() {
+        if (offHeapValues != null || sparseValues != null) return MatrixUtils.toSymbolic(getDenseValues());
+        if (symbolicCache == null) {
+            if (values != null) symbolicCache = MatrixUtils.parseSymbolic(values);
+            else if (numericCache != null) symbolicCache = MatrixUtils.toSymbolic(numericCache);
+        }
+        return symbolicCache;
+    }
+
+    private DenseMatrix parseNumeric(String[][] values) {
         int r = values.length;
         int c = values[0].length;
-        double[][] doubles = new double[r][c];
+        DenseMatrix doubles = new DenseMatrix(r, c);
 
         try {
             for (int i = 0; i < r; i++) {
                 for (int j = 0; j < c; j++) {
-                    // Chiama la nuova funzione di valutazione
-                    doubles[i][j] = evaluateSimpleExpression(values[i][j]);
+                    doubles.set(i, j, evaluateCell(values[i][j]));
                 }
             }
             return doubles;
@@ -32,6 +223,17 @@ public class MatrixData {
         }
     }
 
+    private double evaluateCell(String cell) {
+        try {
+            return evaluateSimpleExpression(cell);
+        } catch (NumberFormatException e) {
+            // I risultati simbolici restano frazioni esatte (es. "\\frac{23}{2}"): sono comunque numeri
+            SymExpr term = SymExpr.parse(cell);
+            if (term.isNumber()) return term.numericValue().doubleValue();
+            throw e;
+        }
+    }
+
     /**
      * Risolve stringhe come "2 + 4", "10 - 2", "3.5 + 1" restituendo il double.
      */
@@ -66,6 +268,16 @@ public class MatrixData {
         if (isSymbolic && values == null) {
             return "\\begin{bmatrix} \\dots \\end{bmatrix}_{" + rowsStr + " \\times " + colsStr + "}";
         }
+        // Matrici enormi (es. caricate da file o risultati numerici): mostriamo solo le dimensioni
+        if (offHeapValues != null && (long) offHeapValues.getRows() * offHeapValues.getCols() > MAX_LATEX_CELLS
+                || values == null && numericCache != null) {
+            return "\\begin{bmatrix} \\dots \\end{bmatrix}_{" + rowsStr + " \\times " + colsStr + "}";
+        }
+        if (sparseValues != null && (long) sparseValues.getRows() * sparseValues.getCols() > MAX_LATEX_CELLS) {
+            return "\\begin{bmatrix} \\dots \\end{bmatrix}_{" + rowsStr + " \\times " + colsStr
+                    + "}^{\\text{nnz} = " + sparseValues.nonZeros() + "}";
+        }
+        String[][] values = getValues();
         // Se values esiste (anche se simbolico), lo stampiamo
         if (values == null) return "";
 
@@ -81,6 +293,25 @@ public class MatrixData {
         return sb.toString();
     }
 
+    /**
+     * La trasposta ridotta alle sole dimensioni (scambiate) se la matrice non si mostra per intero:
+     * dimensioni simboliche o più di MAX_LATEX_CELLS celle, come in toLatex(). Altrimenti null.
+     */
+    public String toTransposedLatexSummary() {
+        if (isSymbolic && values == null || cells() > MAX_LATEX_CELLS) {
+            return "\\begin{bmatrix} \\dots \\end{bmatrix}_{" + colsStr + " \\times " + rowsStr + "}";
+        }
+        return null;
+    }
+
+    // Senza convertire la memorizzazione
+    private long cells() {
+        if (offHeapValues != null) return (long) offHeapValues.getRows() * offHeapValues.getCols();
+        if (sparseValues != null) return (long) sparseValues.getRows() * sparseValues.getCols();
+        if (values != null) return (long) values.length * values[0].length;
+        return numericCache == null ? 0 : (long) numericCache.rows * numericCache.cols;
+    }
+
     public boolean isVector() {
         return (isOne(rowsStr) && !isOne(colsStr)) || (!isOne(rowsStr) && isOne(colsStr));
     }
@@ -0,0 +1,158 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Formato binario per salvare e caricare matrici numeriche.
+ *
+ * Layout del file (tutto little-endian):
+ *   offset  0: magic "VTMX"            (4 byte)
+ *   offset  4: versione                (2 byte)
+ *   offset  6: tipo dati (1 = float64) (1 byte)
+ *   offset  7: riservato               (1 byte)
+ *   offset  8: righe                   (4 byte)
+ *   offset 12: colonne                 (4 byte)
+ *   offset 16: riservato               (16 byte)
+ *   offset 32: righe * colonne double, row-major
+ *
+ * Il caricamento mappa il file in memoria con FileChannel.map: nessun parsing, i dati
+ * vengono letti dal disco solo quando servono. L'header è di 32 byte così i double
+ * restano allineati a 8.
+ */
+public final class MatrixFile {
+
+    public static final String EXTENSION = "vtm";
+
+    static final int MAGIC = 0x584D5456; // "VTMX" letto come int little-endian
+    static final short VERSION = 1;
+    static final byte DTYPE_FLOAT64 = 1;
+    static final int HEADER_SIZE = 32;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private MatrixFile() {}
+
+    /**
+     * Mappa il file in memoria (sola lettura) e restituisce la matrice che lo usa direttamente.
+     * La mappatura viene rilasciata con close() sulla matrice restituita.
+     */
+    public static OffHeapMatrix load(Path path) throws IOException {
+        return load(path, false);
+    }
+
+    // Con auto la mappatura è rilasciata dal GC (vedi OffHeapMatrix.allocateAuto)
+    private static OffHeapMatrix load(Path path, boolean auto) throws IOException {
+        Arena arena = auto ? Arena.ofAuto() : Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("File troppo corto per essere una matrice: " + path);
+            }
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            if (file.get(INT, 0) != MAGIC) {
+                throw new IOException("Formato non riconosciuto (magic errato): " + path);
+            }
+            short version = file.get(SHORT, 4);
+            if (version != VERSION) {
+                throw new IOException("Versione del formato non supportata: " + version);
+            }
+            byte dtype = file.get(ValueLayout.JAVA_BYTE, 6);
+            if (dtype != DTYPE_FLOAT64) {
+                throw new IOException("Tipo di dati non supportato: " + dtype);
+            }
+            int rows = file.get(INT, 8);
+            int cols = file.get(INT, 12);
+            long dataBytes = (long) rows * cols * Double.BYTES;
+            if (rows <= 0 || cols <= 0 || size < HEADER_SIZE + dataBytes) {
+                throw new IOException("Dimensioni non valide o file troncato: " + rows + "x" + cols);
+            }
+
+            // La matrice diventa proprietaria dell'arena: chiudendola si rilascia la mappatura
+            return new OffHeapMatrix(file.asSlice(HEADER_SIZE, dataBytes), rows, cols, auto ? null : arena);
+        } catch (IOException | RuntimeException e) {
+            if (!auto) arena.close();
+            throw e;
+        }
+    }
+
+    public static void save(Path path, OffHeapMatrix matrix) throws IOException {
+        write(path, matrix.rows, matrix.cols, file ->
+                MemorySegment.copy(matrix.segment, 0, file, HEADER_SIZE, (long) matrix.rows * matrix.cols * Double.BYTES));
+    }
+
+    public static void save(Path path, DenseMatrix matrix) throws IOException {
+        DenseMatrix src = matrix.compact();
+        write(path, src.rows, src.cols, file ->
+                MemorySegment.copy(src.data, src.offset, file, OffHeapMatrix.DOUBLE, HEADER_SIZE, src.rows * src.cols));
+    }
+
+    /**
+     * Scrive in un file temporaneo nella stessa cartella e poi lo sposta su path in un colpo solo.
+     * Troncare direttamente path romperebbe una matrice caricata proprio da lì (che lo mappa
+     * ancora), e un errore a metà lascerebbe un file incompleto.
+     */
+    private static void write(Path path, int rows, int cols, Consumer<MemorySegment> data) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment file = mapForWrite(temp, rows, cols, arena);
+                data.accept(file);
+                file.force();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Salva una variabile. Solo le matrici completamente numeriche hanno una forma binaria.
+     */
+    public static void save(Path path, MatrixData data) throws IOException {
+        OffHeapMatrix offHeap = data.getOffHeapValues();
+        if (offHeap != null) {
+            save(path, offHeap);
+            return;
+        }
+        DenseMatrix dense = data.getDenseValues();
+        if (dense == null) {
+            throw new IllegalArgumentException("Solo le matrici numeriche possono essere salvate in formato binario.");
+        }
+        save(path, dense);
+    }
+
+    /**
+     * Carica il file come variabile pronta per VariableManager. La mappatura resta finché
+     * la variabile è raggiungibile (anche da fotografie vecchie), poi la rilascia il GC.
+     */
+    public static MatrixData loadVariable(Path path) throws IOException {
+        return MatrixData.fromNumeric(load(path, true));
+    }
+
+    private static MemorySegment mapForWrite(Path path, int rows, int cols, Arena arena) throws IOException {
+        long size = HEADER_SIZE + (long) rows * cols * Double.BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            file.set(INT, 0, MAGIC);
+            file.set(SHORT, 4, VERSION);
+            file.set(ValueLayout.JAVA_BYTE, 6, DTYPE_FLOAT64);
+            file.set(INT, 8, rows);
+            file.set(INT, 12, cols);
+            return file;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Esecuzione parallela dei kernel numerici di MatrixUtils.
+ *
+ * Il lavoro viene diviso in blocchi di righe (ogni blocco scrive solo le proprie righe
+ * del risultato, quindi non serve sincronizzazione) ed eseguito su un ForkJoinPool dedicato.
+ * Sotto la soglia SEQUENTIAL_CUTOFF il blocco viene eseguito direttamente dal thread chiamante:
+ * le matrici 2x2/3x3 dei visualizzatori non toccano mai il pool.
+ */
+public final class MatrixParallel {
+
+    // Lavoro minimo (operazioni elementari) che giustifica la creazione di un task
+    static final long SEQUENTIAL_CUTOFF = 1L << 16;
+
+    // Quanti task per thread al massimo: abbastanza per bilanciare il carico, non troppi
+    private static final int TASKS_PER_THREAD = 4;
+
+    private static volatile ForkJoinPool pool = createPool(Runtime.getRuntime().availableProcessors());
+
+    private MatrixParallel() {}
+
+    /**
+     * Corpo di un task: elabora le righe [from, to).
+     */
+    @FunctionalInterface
+    interface RowRange {
+        void run(int from, int to);
+    }
+
+    /**
+     * Imposta il numero di thread usati dai kernel. Con 1 tutto torna sequenziale.
+     * Si può chiamare anche mentre altri thread calcolano: il vecchio pool viene chiuso con
+     * shutdown(), che lascia finire i task già avviati; chi lo aveva appena letto ma non ci
+     * aveva ancora inviato nulla riprova con quello nuovo (vedi forRows).
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelismo non valido: " + threads);
+        }
+        ForkJoinPool old = pool;
+        if (old != null && old.getParallelism() == threads) return;
+        pool = createPool(threads);
+        if (old != null) old.shutdown();
+    }
+
+    public static int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    private static ForkJoinPool createPool(int threads) {
+        return threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    static void forRows(int rows, long workPerRow, RowRange body) {
+        forRows(rows, workPerRow, 1, body);
+    }
+
+    /**
+     * Esegue body su tutte le righe [0, rows), in parallelo se il lavoro totale lo giustifica.
+     *
+     * @param workPerRow stima delle operazioni per riga (es. colonne, o colonne * dim. comune nel prodotto)
+     * @param minRows    numero minimo di righe per task (es. l'altezza di un blocco del GEMM)
+     */
+    static void forRows(int rows, long workPerRow, int minRows, RowRange body) {
+        ForkJoinPool p = pool;
+        long work = rows * Math.max(1, workPerRow);
+        if (p == null || work <= SEQUENTIAL_CUTOFF || rows <= minRows) {
+            body.run(0, rows);
+            return;
+        }
+
+        int grain = (int) Math.min(rows, Math.max(1, SEQUENTIAL_CUTOFF / Math.max(1, workPerRow)));
+        grain = Math.max(grain, minRows);
+        grain = Math.max(grain, rows / (p.getParallelism() * TASKS_PER_THREAD));
+
+        RowTask task = new RowTask(body, 0, rows, grain);
+        if (ForkJoinTask.getPool() == p) {
+            // Già dentro il pool (chiamata annidata): eseguiamo il task nel thread corrente
+            task.invoke();
+            return;
+        }
+        try {
+            p.invoke(task);
+        } catch (RejectedExecutionException e) {
+            // setParallelism ha chiuso p prima dell'invio: nessuna riga è stata elaborata
+            forRows(rows, workPerRow, minRows, body);
+        }
+    }
+
+    private static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowRange body;
+        private final int from, to, grain;
+
+        RowTask(RowRange body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(body, from, mid, grain), new RowTask(body, mid, to, grain));
+        }
+    }
+}
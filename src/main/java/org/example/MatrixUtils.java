@@ -1,19 +1,25 @@
 package org.example;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class MatrixUtils {
 
     // =============================================================
-    // SEZIONE SIMBOLICA (String[][]) - FIX PER FORMULA VIEWER
+    // SEZIONE SIMBOLICA (SymExpr[][] / String[][]) - FIX PER FORMULA VIEWER
     // =============================================================
+    // Le celle sono termini strutturati (SymExpr) e diventano LaTeX solo alla fine.
+    // Le versioni String[][] restano per retro-compatibilità: interpretano le celle,
+    // delegano alle versioni SymExpr[][] e riconvertono il risultato in testo.
 
     /**
-     * Moltiplica due matrici contenenti stringhe (supporta simboli e numeri).
+     * Moltiplica due matrici simboliche.
      * Gestisce:
      * 1. Matrice x Matrice
      * 2. Scalare (1x1) x Matrice
      * 3. Matrice x Scalare (1x1)
      */
-    public static String[][] multiplySymbolic(String[][] A, String[][] B) {
+    public static SymExpr[][] multiplySymbolic(SymExpr[][] A, SymExpr[][] B) {
         // Caso 1: A è scalare (1x1)
         if (A.length == 1 && A[0].length == 1) {
             return multiplyScalarSymbolic(B, A[0][0]);
@@ -31,103 +37,149 @@ public class MatrixUtils {
         int rows = A.length;
         int cols = B[0].length;
         int common = A[0].length;
-        String[][] result = new String[rows][cols];
+        SymExpr[][] result = new SymExpr[rows][cols];
+        List<SymExpr> products = new ArrayList<>(common);
 
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                StringBuilder sum = new StringBuilder();
-                boolean firstTerm = true;
-
+                products.clear();
                 for (int k = 0; k < common; k++) {
-                    String valA = A[i][k];
-                    String valB = B[k][j];
-
-                    // Calcola il prodotto del singolo termine (es. "2" * "x" -> "2x")
-                    String product = multiplyTerms(valA, valB);
-
-                    // Se il prodotto non è 0, lo aggiungiamo alla somma
-                    if (!product.equals("0")) {
-                        // Gestione segno "+" tra i termini
-                        if (!firstTerm && !product.startsWith("-")) {
-                            sum.append(" + ");
-                        }
-                        sum.append(product);
-                        firstTerm = false;
-                    }
+                    products.add(SymExpr.multiply(A[i][k], B[k][j]));
                 }
-                // Se la somma è vuota (tutti 0), il risultato è 0
-                result[i][j] = sum.length() == 0 ? "0" : sum.toString();
+                // Un'unica somma per cella invece di k somme a due termini
+                result[i][j] = SymExpr.sum(products);
             }
         }
         return result;
     }
 
-    private static String[][] multiplyScalarSymbolic(String[][] matrix, String scalar) {
+    public static String[][] multiplySymbolic(String[][] A, String[][] B) {
+        return toStrings(multiplySymbolic(parseSymbolic(A), parseSymbolic(B)));
+    }
+
+    /**
+     * A^n (n >= 0) per quadrati successivi: O(log n) prodotti invece di n - 1. A^0 è l'identità.
+     * Per gli esponenti negativi si passa prima dall'inversa (Bareiss.inverse).
+     */
+    public static SymExpr[][] powerSymbolic(SymExpr[][] A, long n) {
+        if (A.length != A[0].length) {
+            throw new IllegalArgumentException("La potenza richiede una matrice quadrata, non " + A.length + "x" + A[0].length);
+        }
+        SymExpr[][] result = null;
+        SymExpr[][] base = A;
+        for (long e = n; e > 0; e >>= 1) {
+            if ((e & 1) != 0) result = result == null ? base : multiplySymbolic(result, base);
+            if (e > 1) base = multiplySymbolic(base, base);
+        }
+        if (result != null) return result;
+
+        result = new SymExpr[A.length][A.length];
+        for (int i = 0; i < A.length; i++) {
+            for (int j = 0; j < A.length; j++) result[i][j] = i == j ? SymExpr.ONE : SymExpr.ZERO;
+        }
+        return result;
+    }
+
+    private static SymExpr[][] multiplyScalarSymbolic(SymExpr[][] matrix, SymExpr scalar) {
         int rows = matrix.length;
         int cols = matrix[0].length;
-        String[][] result = new String[rows][cols];
+        SymExpr[][] result = new SymExpr[rows][cols];
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                result[i][j] = multiplyTerms(scalar, matrix[i][j]);
+                result[i][j] = SymExpr.multiply(scalar, matrix[i][j]);
             }
         }
         return result;
     }
 
+    public static SymExpr[][] addSymbolic(SymExpr[][] A, SymExpr[][] B) {
+        checkDimensions(A, B);
+        int rows = A.length;
+        int cols = A[0].length;
+        SymExpr[][] result = new SymExpr[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = SymExpr.add(A[i][j], B[i][j]);
+            }
+        }
+        return result;
+    }
+
+    public static String[][] addSymbolic(String[][] A, String[][] B) {
+        return toStrings(addSymbolic(parseSymbolic(A), parseSymbolic(B)));
+    }
+
     /**
-     * Logica intelligente per moltiplicare due termini stringa.
-     * Es: multiplyTerms("2", "x") -> "2x"
-     * Es: multiplyTerms("0", "x") -> "0"
-     * Es: multiplyTerms("1", "y") -> "y"
+     * Esegue la sottrazione simbolica: A - B
      */
-    private static String multiplyTerms(String a, String b) {
-        a = a.trim();
-        b = b.trim();
+    public static SymExpr[][] subtractSymbolic(SymExpr[][] A, SymExpr[][] B) {
+        checkDimensions(A, B);
+        int rows = A.length;
+        int cols = A[0].length;
+        SymExpr[][] result = new SymExpr[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = SymExpr.subtract(A[i][j], B[i][j]);
+            }
+        }
+        return result;
+    }
 
-        if (a.equals("0") || b.equals("0")) return "0";
-        if (a.equals("1")) return b;
-        if (b.equals("1")) return a;
+    public static String[][] subtractSymbolic(String[][] A, String[][] B) {
+        return toStrings(subtractSymbolic(parseSymbolic(A), parseSymbolic(B)));
+    }
 
-        // Se entrambi sono numeri, calcoliamo il vero prodotto numerico
-        if (isNumber(a) && isNumber(b)) {
-            double da = Double.parseDouble(a);
-            double db = Double.parseDouble(b);
-            double res = da * db;
-            return formatDouble(res);
+    /**
+     * Esegue la divisione simbolica: A / B.
+     * Supporta principalmente Matrice / Scalare.
+     */
+    public static SymExpr[][] divideSymbolic(SymExpr[][] A, SymExpr[][] B) {
+        // Supportiamo solo la divisione per uno scalare (o matrice 1x1)
+        if (B.length != 1 || B[0].length != 1) {
+            throw new IllegalArgumentException("Divisione supportata solo per scalari (denominatore deve essere 1x1).");
         }
 
-        // Logica estetica:
-        // Se A è numero e B è lettera (es 2, x) -> "2x"
-        // Se A è lettera e B è numero (es x, 2) -> "2x" (conviene riordinare, ma per ora facciamo semplice "x \cdot 2")
-        // Se entrambi lettere -> "x \cdot y" o "xy"
+        SymExpr denominator = B[0][0];
+        if (denominator.isZero()) throw new ArithmeticException("Divisione per zero");
 
-        // Aggiungi parentesi se necessario (se ci sono + o -)
-        boolean aComplex = a.contains("+") || (a.contains("-") && !a.startsWith("-"));
-        boolean bComplex = b.contains("+") || (b.contains("-") && !b.startsWith("-"));
+        int rows = A.length;
+        int cols = A[0].length;
+        SymExpr[][] result = new SymExpr[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = SymExpr.divide(A[i][j], denominator);
+            }
+        }
+        return result;
+    }
 
-        String termA = aComplex ? "(" + a + ")" : a;
-        String termB = bComplex ? "(" + b + ")" : b;
+    public static String[][] divideSymbolic(String[][] A, String[][] B) {
+        return toStrings(divideSymbolic(parseSymbolic(A), parseSymbolic(B)));
+    }
 
-        if (isNumber(a) && !isNumber(b)) {
-            return termA + termB; // 2x
+    public static SymExpr[][] negateSymbolic(SymExpr[][] matrix) {
+        int rows = matrix.length;
+        int cols = matrix[0].length;
+        SymExpr[][] result = new SymExpr[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = SymExpr.negate(matrix[i][j]);
+            }
         }
+        return result;
+    }
 
-        return termA + " \\cdot " + termB; // x \cdot y
+    public static String[][] negateSymbolic(String[][] matrix) {
+        return toStrings(negateSymbolic(parseSymbolic(matrix)));
     }
 
-    public static String[][] addSymbolic(String[][] A, String[][] B) {
-        checkDimensions(A, B);
+    public static SymExpr[][] transposeSymbolic(SymExpr[][] A) {
         int rows = A.length;
         int cols = A[0].length;
-        String[][] result = new String[rows][cols];
+        SymExpr[][] result = new SymExpr[cols][rows];
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                String valA = A[i][j].trim();
-                String valB = B[i][j].trim();
-
-                if (valA.equals("0")) result[i][j] = valB;
-                else if (valB.equals("0")) result[i][j] = valA;
-                else result[i][j] = valA + " + " + valB;
+                result[j][i] = A[i][j];
             }
         }
         return result;
@@ -160,16 +212,69 @@ public class MatrixUtils {
         return sb.toString();
     }
 
-    private static boolean isNumber(String s) {
-        try {
-            Double.parseDouble(s);
-            return true;
-        } catch(Exception e) {
-            return false;
+    /**
+     * Interpreta ogni cella come termine simbolico (vedi SymExpr.parse).
+     */
+    public static SymExpr[][] parseSymbolic(String[][] matrix) {
+        SymExpr[][] result = new SymExpr[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            result[i] = new SymExpr[matrix[i].length];
+            for (int j = 0; j < matrix[i].length; j++) {
+                result[i][j] = SymExpr.parse(matrix[i][j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forma LaTeX di ogni cella: va chiamata una volta sola, alla fine del calcolo.
+     */
+    public static String[][] toStrings(SymExpr[][] matrix) {
+        String[][] result = new String[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            result[i] = new String[matrix[i].length];
+            for (int j = 0; j < matrix[i].length; j++) {
+                result[i][j] = matrix[i][j].toLatex();
+            }
         }
+        return result;
     }
 
-    private static String formatDouble(double val) {
+    /**
+     * Matrice numerica con gli stessi valori, null se almeno una cella non è un numero.
+     */
+    public static DenseMatrix toNumeric(SymExpr[][] matrix) {
+        DenseMatrix result = new DenseMatrix(matrix.length, matrix[0].length);
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix[i].length; j++) {
+                if (!matrix[i][j].isNumber()) return null;
+                result.set(i, j, matrix[i][j].numericValue().doubleValue());
+            }
+        }
+        return result;
+    }
+
+    public static SymExpr[][] toSymbolic(DenseMatrix matrix) {
+        SymExpr[][] result = new SymExpr[matrix.rows][matrix.cols];
+        for (int i = 0; i < matrix.rows; i++) {
+            for (int j = 0; j < matrix.cols; j++) {
+                result[i][j] = SymExpr.number(matrix.get(i, j));
+            }
+        }
+        return result;
+    }
+
+    public static String[][] toStrings(DenseMatrix matrix) {
+        String[][] result = new String[matrix.rows][matrix.cols];
+        for (int i = 0; i < matrix.rows; i++) {
+            for (int j = 0; j < matrix.cols; j++) {
+                result[i][j] = formatDouble(matrix.get(i, j));
+            }
+        }
+        return result;
+    }
+
+    static String formatDouble(double val) {
         if (val == (long) val) {
             return String.format("%d", (long) val);
         } else {
@@ -177,32 +282,69 @@ public class MatrixUtils {
         }
     }
 
-    // Helper dimensioni per String[][]
-    private static void checkDimensions(String[][] A, String[][] B) {
+    // Helper dimensioni per SymExpr[][]
+    private static void checkDimensions(SymExpr[][] A, SymExpr[][] B) {
         if (A.length != B.length || A[0].length != B[0].length) {
             throw new IllegalArgumentException("Dimensioni diverse: " + size(A) + " vs " + size(B));
         }
     }
-    private static String size(String[][] A) { return "(" + A.length + "x" + A[0].length + ")"; }
+    private static String size(SymExpr[][] A) { return "(" + A.length + "x" + A[0].length + ")"; }
 
 
     // =============================================================
-    // SEZIONE NUMERICA (double[][]) - PER RETRO-COMPATIBILITÀ
+    // SEZIONE NUMERICA (DenseMatrix / double[][])
     // =============================================================
+    // Le versioni double[][] restano per retro-compatibilità. add e subtract lavorano
+    // direttamente sulle righe (l'unica allocazione è il risultato); multiply converte in
+    // DenseMatrix (un unico array contiguo), perché il kernel a blocchi lo richiede.
+
+    // Numero di moltiplicazioni-somme (righe * colonne * dimensione comune) oltre il quale
+    // multiply passa al kernel a blocchi: sotto, il semplice triplo ciclo è più veloce.
+    static final long GEMM_THRESHOLD = 64L * 64 * 64;
 
     public static double[][] getTranspose(double[][] matrix) {
         if (matrix == null || matrix.length == 0) return matrix;
         int rows = matrix.length;
         int cols = matrix[0].length;
         double[][] transposed = new double[cols][rows];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                transposed[j][i] = matrix[i][j];
+        // Ogni task riempie un gruppo di righe della trasposta (= colonne dell'originale)
+        MatrixParallel.forRows(cols, rows, (from, to) -> {
+            for (int i = 0; i < rows; i++) {
+                double[] src = matrix[i];
+                for (int j = from; j < to; j++) {
+                    transposed[j][i] = src[j];
+                }
             }
-        }
+        });
         return transposed;
     }
 
+    /**
+     * Trasposta come vista: non copia i dati, scambia solo gli stride.
+     */
+    public static DenseMatrix getTranspose(DenseMatrix matrix) {
+        return matrix.transpose();
+    }
+
+    /**
+     * Trasposta materializzata in una nuova matrice compatta (utile quando la vista
+     * verrebbe poi letta per colonne molte volte).
+     */
+    public static DenseMatrix transposeCopy(DenseMatrix matrix) {
+        DenseMatrix t = matrix.transpose();
+        DenseMatrix result = new DenseMatrix(t.rows, t.cols);
+        MatrixParallel.forRows(t.rows, t.cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int src = t.offset + i * t.rowStride;
+                int dst = i * result.cols;
+                for (int j = 0; j < t.cols; j++) {
+                    result.data[dst + j] = t.data[src + j * t.colStride];
+                }
+            }
+        });
+        return result;
+    }
+
     public static String toLatex(double[][] matrix) {
         StringBuilder sb = new StringBuilder("\\begin{pmatrix}");
         for (int i = 0; i < matrix.length; i++) {
@@ -216,209 +358,279 @@ public class MatrixUtils {
         return sb.toString();
     }
 
+    public static String toLatex(DenseMatrix matrix) {
+        StringBuilder sb = new StringBuilder("\\begin{pmatrix}");
+        for (int i = 0; i < matrix.rows; i++) {
+            for (int j = 0; j < matrix.cols; j++) {
+                sb.append(formatDouble(matrix.get(i, j)));
+                if (j < matrix.cols - 1) sb.append(" & ");
+            }
+            if (i < matrix.rows - 1) sb.append(" \\\\ ");
+        }
+        sb.append("\\end{pmatrix}");
+        return sb.toString();
+    }
+
     public static double[][] add(double[][] A, double[][] B) {
         checkDimensions(A, B);
-        int rows = A.length;
-        int cols = A[0].length;
-        double[][] result = new double[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = A[i][j] + B[i][j];
+        return combineRows(A, B, false);
+    }
+
+    public static DenseMatrix add(DenseMatrix A, DenseMatrix B) {
+        checkDimensions(A, B);
+        DenseMatrix result = new DenseMatrix(A.rows, A.cols);
+        MatrixParallel.forRows(A.rows, A.cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int a = A.offset + i * A.rowStride;
+                int b = B.offset + i * B.rowStride;
+                int r = i * result.cols;
+                if (SimdSupport.ENABLED && A.colStride == 1 && B.colStride == 1) {
+                    SimdKernels.add(A.data, a, B.data, b, result.data, r, A.cols);
+                    continue;
+                }
+                for (int j = 0; j < A.cols; j++) {
+                    result.data[r + j] = A.data[a + j * A.colStride] + B.data[b + j * B.colStride];
+                }
             }
-        }
+        });
         return result;
     }
 
     public static double[][] subtract(double[][] A, double[][] B) {
         checkDimensions(A, B);
-        int rows = A.length;
+        return combineRows(A, B, true);
+    }
+
+    private static double[][] combineRows(double[][] A, double[][] B, boolean subtract) {
         int cols = A[0].length;
-        double[][] result = new double[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = A[i][j] - B[i][j];
+        double[][] result = new double[A.length][cols];
+        MatrixParallel.forRows(A.length, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double[] a = A[i], b = B[i], r = result[i];
+                if (a.length != cols || b.length != cols) {
+                    throw new IllegalArgumentException("Righe di lunghezza diversa alla riga " + i);
+                }
+                if (SimdSupport.ENABLED) {
+                    if (subtract) SimdKernels.subtract(a, 0, b, 0, r, 0, cols);
+                    else SimdKernels.add(a, 0, b, 0, r, 0, cols);
+                    continue;
+                }
+                for (int j = 0; j < cols; j++) r[j] = subtract ? a[j] - b[j] : a[j] + b[j];
             }
-        }
+        });
+        return result;
+    }
+
+    public static DenseMatrix subtract(DenseMatrix A, DenseMatrix B) {
+        checkDimensions(A, B);
+        DenseMatrix result = new DenseMatrix(A.rows, A.cols);
+        MatrixParallel.forRows(A.rows, A.cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int a = A.offset + i * A.rowStride;
+                int b = B.offset + i * B.rowStride;
+                int r = i * result.cols;
+                if (SimdSupport.ENABLED && A.colStride == 1 && B.colStride == 1) {
+                    SimdKernels.subtract(A.data, a, B.data, b, result.data, r, A.cols);
+                    continue;
+                }
+                for (int j = 0; j < A.cols; j++) {
+                    result.data[r + j] = A.data[a + j * A.colStride] - B.data[b + j * B.colStride];
+                }
+            }
+        });
         return result;
     }
 
     public static double[][] multiply(double[][] A, double[][] B) {
-        if (A.length == 1 && A[0].length == 1) return multiplyScalar(B, A[0][0]);
-        if (B.length == 1 && B[0].length == 1) return multiplyScalar(A, B[0][0]);
+        return multiply(DenseMatrix.of(A), DenseMatrix.of(B)).toArray();
+    }
 
-        if (A[0].length != B.length) {
+    public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B) {
+        if (A.isScalar()) return multiplyScalar(B, A.get(0, 0));
+        if (B.isScalar()) return multiplyScalar(A, B.get(0, 0));
+
+        if (A.cols != B.rows) {
             throw new IllegalArgumentException("Dimensioni incompatibili: " + size(A) + " vs " + size(B));
         }
 
-        int rows = A.length;
-        int cols = B[0].length;
-        int common = A[0].length;
-        double[][] result = new double[rows][cols];
+        int rows = A.rows;
+        int cols = B.cols;
+        int common = A.cols;
+        DenseMatrix result = new DenseMatrix(rows, cols);
+        long workPerRow = (long) cols * common;
+
+        // Sopra la soglia il kernel a blocchi ripaga il costo dell'impacchettamento.
+        // I task lavorano su blocchi di almeno MC righe per non ri-impacchettare B troppe volte.
+        if (rows * workPerRow >= GEMM_THRESHOLD) {
+            MatrixParallel.forRows(rows, workPerRow, GemmKernel.MC,
+                    (from, to) -> GemmKernel.multiply(A, B, result, from, to));
+            return result;
+        }
 
+        // Ordine i-k-j: la riga k di B e la riga i del risultato vengono lette in sequenza
         for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                for (int k = 0; k < common; k++) {
-                    result[i][j] += A[i][k] * B[k][j];
+            int r = i * cols;
+            for (int k = 0; k < common; k++) {
+                double aik = A.data[A.offset + i * A.rowStride + k * A.colStride];
+                int b = B.offset + k * B.rowStride;
+                if (SimdSupport.ENABLED && B.colStride == 1) {
+                    SimdKernels.axpy(aik, B.data, b, result.data, r, cols);
+                    continue;
+                }
+                for (int j = 0; j < cols; j++) {
+                    result.data[r + j] += aik * B.data[b + j * B.colStride];
                 }
             }
         }
         return result;
     }
 
-    private static double[][] multiplyScalar(double[][] M, double s) {
-        int rows = M.length;
-        int cols = M[0].length;
-        double[][] result = new double[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = M[i][j] * s;
-            }
+    /**
+     * A^n (n >= 0) per quadrati successivi: O(log n) prodotti (A^1000 ne richiede 15 invece di 999).
+     * Per gli esponenti negativi vedi LinearAlgebra.power.
+     */
+    public static DenseMatrix power(DenseMatrix A, long n) {
+        if (A.rows != A.cols) {
+            throw new IllegalArgumentException("La potenza richiede una matrice quadrata, non " + A.rows + "x" + A.cols);
         }
-        return result;
-    }
-
-    private static void checkDimensions(double[][] A, double[][] B) {
-        if (A.length != B.length || A[0].length != B[0].length) {
-            throw new IllegalArgumentException("Dimensioni non corrispondenti: " + size(A) + " vs " + size(B));
+        if (A.isScalar()) return DenseMatrix.scalar(Math.pow(A.get(0, 0), n));
+        DenseMatrix result = null;
+        DenseMatrix base = A;
+        for (long e = n; e > 0; e >>= 1) {
+            if ((e & 1) != 0) result = result == null ? base : multiply(result, base);
+            if (e > 1) base = multiply(base, base);
         }
+        return result != null ? result : identity(A.rows);
     }
 
-    private static String size(double[][] A) {
-        return "(" + A.length + "x" + A[0].length + ")";
+    public static DenseMatrix identity(int n) {
+        DenseMatrix I = new DenseMatrix(n, n);
+        for (int i = 0; i < n; i++) I.data[i * n + i] = 1.0;
+        return I;
     }
 
-    /**
-     * Esegue la sottrazione simbolica: A - B
-     */
-    public static String[][] subtractSymbolic(String[][] A, String[][] B) {
-        checkDimensions(A, B);
-        int rows = A.length;
-        int cols = A[0].length;
-        String[][] result = new String[rows][cols];
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                String valA = A[i][j].trim();
-                String valB = B[i][j].trim();
-
-                // 1. Entrambi numeri
-                if (isNumber(valA) && isNumber(valB)) {
-                    double diff = Double.parseDouble(valA) - Double.parseDouble(valB);
-                    result[i][j] = formatDouble(diff);
+    public static DenseMatrix multiplyScalar(DenseMatrix M, double s) {
+        DenseMatrix result = new DenseMatrix(M.rows, M.cols);
+        MatrixParallel.forRows(M.rows, M.cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int m = M.offset + i * M.rowStride;
+                int r = i * result.cols;
+                if (SimdSupport.ENABLED && M.colStride == 1) {
+                    SimdKernels.scale(M.data, m, s, result.data, r, M.cols);
+                    continue;
                 }
-                // 2. Se B è 0, resta A
-                else if (valB.equals("0")) {
-                    result[i][j] = valA;
-                }
-                // 3. Se A è 0, risultato è -B
-                else if (valA.equals("0")) {
-                    result[i][j] = negateTerm(valB);
-                }
-                // 4. Caso generico stringa
-                else {
-                    // Se B contiene operatori (+ o -), va messo tra parentesi per sottrarlo
-                    // Es: A - (B + C)
-                    boolean bComplex = valB.contains("+") || (valB.contains("-") && !valB.startsWith("-"));
-                    String bFinal = bComplex ? "(" + valB + ")" : valB;
-
-                    result[i][j] = valA + " - " + bFinal;
+                for (int j = 0; j < M.cols; j++) {
+                    result.data[r + j] = M.data[m + j * M.colStride] * s;
                 }
             }
-        }
+        });
         return result;
     }
 
-    /**
-     * Esegue la divisione simbolica: A / B.
-     * Supporta principalmente Matrice / Scalare.
-     */
-    public static String[][] divideSymbolic(String[][] A, String[][] B) {
-        // Supportiamo solo la divisione per uno scalare (o matrice 1x1)
-        if (B.length != 1 || B[0].length != 1) {
-            throw new IllegalArgumentException("Divisione supportata solo per scalari (denominatore deve essere 1x1).");
-        }
+    // --- MATRICI OFF-HEAP (OffHeapMatrix) ---
+    // Il prodotto con un fattore fuori heap (LazyMatrix.Product): i dati vengono portati nello
+    // heap un blocco alla volta e passati a GemmKernel, quindi SIMD e parallelismo valgono
+    // anche qui. Il risultato è una nuova OffHeapMatrix che il chiamante deve chiudere.
 
-        String denominator = B[0][0].trim();
-        if (denominator.equals("0")) throw new ArithmeticException("Divisione per zero");
+    // Quanti double di B tenere nello heap per volta (32 MB)
+    private static final int OFF_HEAP_PANEL = 1 << 22;
 
-        int rows = A.length;
-        int cols = A[0].length;
-        String[][] result = new String[rows][cols];
+    public static OffHeapMatrix multiply(OffHeapMatrix A, OffHeapMatrix B) {
+        if (A.rows == 1 && A.cols == 1) return multiplyScalar(B, A.get(0, 0));
+        if (B.rows == 1 && B.cols == 1) return multiplyScalar(A, B.get(0, 0));
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                String numerator = A[i][j].trim();
+        if (A.cols != B.rows) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: " + size(A) + " vs " + size(B));
+        }
 
-                // 1. Numeri
-                if (isNumber(numerator) && isNumber(denominator)) {
-                    double val = Double.parseDouble(numerator) / Double.parseDouble(denominator);
-                    result[i][j] = formatDouble(val);
-                }
-                // 2. Numeratore è 0
-                else if (numerator.equals("0")) {
-                    result[i][j] = "0";
+        int m = A.rows;
+        int n = B.cols;
+        int k = A.cols;
+        OffHeapMatrix result = OffHeapMatrix.allocate(m, n);
+
+        // B viene letta a pannelli di righe [pc, pc + kb) che stanno nello heap;
+        // per ogni pannello ogni task aggiorna il proprio blocco di righe di C.
+        int kb = Math.max(1, Math.min(k, OFF_HEAP_PANEL / n));
+        for (int pc = 0; pc < k; pc += kb) {
+            int panel = Math.min(kb, k - pc);
+            int p0 = pc;
+            DenseMatrix bPanel = B.readBlock(pc, 0, panel, n);
+            MatrixParallel.forRows(m, (long) panel * n, GemmKernel.MC, (from, to) -> {
+                for (int ic = from; ic < to; ic += GemmKernel.MC) {
+                    int mc = Math.min(GemmKernel.MC, to - ic);
+                    DenseMatrix aBlock = A.readBlock(ic, p0, mc, panel);
+                    DenseMatrix cBlock = result.readBlock(ic, 0, mc, n);
+                    GemmKernel.multiply(aBlock, bPanel, cBlock);
+                    result.writeRows(ic, cBlock);
                 }
-                // 3. Denominatore è 1
-                else if (denominator.equals("1")) {
-                    result[i][j] = numerator;
-                }
-                // 4. Caso generico: Frazione LaTeX
-                else {
-                    result[i][j] = "\\frac{" + numerator + "}{" + denominator + "}";
-                }
-            }
+            });
         }
         return result;
     }
 
-    public static String[][] negateSymbolic(String[][] matrix) {
-        int rows = matrix.length;
-        int cols = matrix[0].length;
-        String[][] result = new String[rows][cols];
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = negateTerm(matrix[i][j]);
+    // Un fattore 1x1 è uno scalare, come in multiply(DenseMatrix, DenseMatrix)
+    private static OffHeapMatrix multiplyScalar(OffHeapMatrix M, double s) {
+        OffHeapMatrix result = OffHeapMatrix.allocate(M.rows, M.cols);
+        MatrixParallel.forRows(M.rows, M.cols, (from, to) -> {
+            double[] row = new double[M.cols]; // privato del task
+            for (int i = from; i < to; i++) {
+                M.readRow(i, row, 0);
+                if (SimdSupport.ENABLED) {
+                    SimdKernels.scale(row, 0, s, row, 0, M.cols);
+                } else {
+                    for (int j = 0; j < M.cols; j++) row[j] *= s;
+                }
+                result.writeRow(i, row, 0);
             }
-        }
+        });
         return result;
     }
 
+    private static String size(OffHeapMatrix A) {
+        return "(" + A.rows + "x" + A.cols + ")";
+    }
+
     /**
-     * Logica per negare un singolo termine stringa.
-     * Gestisce parentesi e segni esistenti.
+     * Prodotto scalare tra due vettori (riga o colonna) con lo stesso numero di elementi.
      */
-    private static String negateTerm(String term) {
-        term = term.trim();
-
-        // 1. Zero rimane zero
-        if (term.equals("0")) return "0";
+    public static double dot(DenseMatrix u, DenseMatrix v) {
+        if (u.rows != 1 && u.cols != 1 || v.rows != 1 && v.cols != 1) {
+            throw new IllegalArgumentException("Prodotto scalare definito solo tra vettori: " + size(u) + " vs " + size(v));
+        }
+        int n = u.rows * u.cols;
+        if (n != v.rows * v.cols) {
+            throw new IllegalArgumentException("Vettori di lunghezza diversa: " + size(u) + " vs " + size(v));
+        }
+        // Passo tra elementi consecutivi del vettore, qualunque sia il suo orientamento
+        int us = u.rows == 1 ? u.colStride : u.rowStride;
+        int vs = v.rows == 1 ? v.colStride : v.rowStride;
+        if (SimdSupport.ENABLED && us == 1 && vs == 1) {
+            return SimdKernels.dot(u.data, u.offset, v.data, v.offset, n);
+        }
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += u.data[u.offset + i * us] * v.data[v.offset + i * vs];
+        }
+        return sum;
+    }
 
-        // 2. Gestione Numerica
-        if (isNumber(term)) {
-            double val = Double.parseDouble(term);
-            return formatDouble(-val);
+    private static void checkDimensions(double[][] A, double[][] B) {
+        if (A.length != B.length || A[0].length != B[0].length) {
+            throw new IllegalArgumentException("Dimensioni non corrispondenti: " + size(A) + " vs " + size(B));
         }
+    }
 
-        // 3. Gestione Simbolica
+    private static void checkDimensions(DenseMatrix A, DenseMatrix B) {
+        if (A.rows != B.rows || A.cols != B.cols) {
+            throw new IllegalArgumentException("Dimensioni non corrispondenti: " + size(A) + " vs " + size(B));
+        }
+    }
 
-        // Verifica se il termine è "complesso" (contiene operatori + o - non tra parentesi)
-        // Nota: controlliamo se c'è un + o un - DOPO il primo carattere
-        boolean isComplex = term.contains("+") || term.substring(1).contains("-");
+    private static String size(double[][] A) {
+        return "(" + A.length + "x" + A[0].length + ")";
+    }
 
-        if (isComplex) {
-            // Se è complesso (es. "x+y" o "-x+y"), mettiamo tutto tra parentesi col meno davanti
-            // Es: "x+y" -> "-(x+y)"
-            return "-(" + term + ")";
-        } else {
-            // È un termine semplice (es. "x", "-x", "5y", "-5y")
-            if (term.startsWith("-")) {
-                // Se ha già il meno, lo togliamo: "-x" -> "x"
-                return term.substring(1);
-            } else {
-                // Se non ce l'ha, lo aggiungiamo: "x" -> "-x"
-                return "-" + term;
-            }
-        }
+    private static String size(DenseMatrix A) {
+        return "(" + A.rows + "x" + A.cols + ")";
     }
-}
\ No newline at end of file
+}
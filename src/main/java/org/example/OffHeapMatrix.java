@@ -0,0 +1,162 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Matrice numerica memorizzata fuori dallo heap in un MemorySegment (FFM API).
+ *
+ * Pensata per operandi molto grandi (anche più grandi dello heap): il GC non la vede,
+ * e la memoria viene rilasciata in modo deterministico con close().
+ * Fanno eccezione le matrici "auto" (allocateAuto, autoCopyOf), rilasciate dal GC quando
+ * non sono più raggiungibili: sono quelle conservate in MatrixData, che può restare in una
+ * fotografia vecchia di VariableManager anche dopo che la variabile è stata sostituita.
+ * Layout row-major compatto: l'elemento (i, j) è il double di indice i * cols + j.
+ *
+ * L'arena è "shared" perché i kernel di MatrixUtils leggono e scrivono la matrice
+ * da più thread del pool di MatrixParallel.
+ */
+public final class OffHeapMatrix implements AutoCloseable {
+    // Little-endian come il formato di MatrixFile, così un file mappato si usa così com'è
+    // (sulle piattaforme little-endian coincide con l'ordine nativo: nessuna conversione)
+    static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    final MemorySegment segment;
+    final int rows, cols;
+    private final Arena arena; // null se la memoria appartiene a qualcun altro (o al GC)
+
+    OffHeapMatrix(MemorySegment segment, int rows, int cols, Arena arena) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Dimensioni non valide: " + rows + "x" + cols);
+        }
+        if (segment.byteSize() < (long) rows * cols * Double.BYTES) {
+            throw new IllegalArgumentException("Segmento troppo piccolo per una matrice " + rows + "x" + cols);
+        }
+        this.segment = segment;
+        this.rows = rows;
+        this.cols = cols;
+        this.arena = arena;
+    }
+
+    /**
+     * Alloca una nuova matrice rows x cols azzerata.
+     */
+    public static OffHeapMatrix allocate(int rows, int cols) {
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment segment = arena.allocate((long) rows * cols * Double.BYTES, Double.BYTES);
+            return new OffHeapMatrix(segment, rows, cols, arena);
+        } catch (RuntimeException | Error e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Usa un segmento già esistente (es. un file mappato in memoria) senza copiarlo.
+     * La memoria resta di proprietà di chi ha creato il segmento.
+     */
+    public static OffHeapMatrix wrap(MemorySegment segment, int rows, int cols) {
+        return new OffHeapMatrix(segment, rows, cols, null);
+    }
+
+    /**
+     * Come allocate(), ma la memoria viene rilasciata dal GC (Arena.ofAuto): close() non fa nulla.
+     */
+    static OffHeapMatrix allocateAuto(int rows, int cols) {
+        MemorySegment segment = Arena.ofAuto().allocate((long) rows * cols * Double.BYTES, Double.BYTES);
+        return new OffHeapMatrix(segment, rows, cols, null);
+    }
+
+    public static OffHeapMatrix copyOf(DenseMatrix m) {
+        return copy(m, allocate(m.rows, m.cols));
+    }
+
+    static OffHeapMatrix autoCopyOf(DenseMatrix m) {
+        return copy(m, allocateAuto(m.rows, m.cols));
+    }
+
+    private static OffHeapMatrix copy(DenseMatrix m, OffHeapMatrix result) {
+        DenseMatrix src = m.compact();
+        MemorySegment.copy(src.data, src.offset, result.segment, DOUBLE, 0, m.rows * m.cols);
+        return result;
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    public double get(int i, int j) {
+        return segment.getAtIndex(DOUBLE, index(i, j));
+    }
+
+    public void set(int i, int j, double value) {
+        segment.setAtIndex(DOUBLE, index(i, j), value);
+    }
+
+    private long index(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") fuori da " + rows + "x" + cols);
+        }
+        return (long) i * cols + j;
+    }
+
+    // --- TRASFERIMENTI IN BLOCCO TRA HEAP E SEGMENTO ---
+
+    void readRow(int i, double[] dst, int dstOffset) {
+        MemorySegment.copy(segment, DOUBLE, (long) i * cols * Double.BYTES, dst, dstOffset, cols);
+    }
+
+    void writeRow(int i, double[] src, int srcOffset) {
+        MemorySegment.copy(src, srcOffset, segment, DOUBLE, (long) i * cols * Double.BYTES, cols);
+    }
+
+    /**
+     * Copia nello heap il blocco [row0, row0 + nRows) x [col0, col0 + nCols).
+     */
+    DenseMatrix readBlock(int row0, int col0, int nRows, int nCols) {
+        DenseMatrix block = new DenseMatrix(nRows, nCols);
+        for (int i = 0; i < nRows; i++) {
+            long src = ((long) (row0 + i) * cols + col0) * Double.BYTES;
+            MemorySegment.copy(segment, DOUBLE, src, block.data, i * nCols, nCols);
+        }
+        return block;
+    }
+
+    /**
+     * Scrive il blocco (compatto) a partire dalla riga row0, colonna 0.
+     */
+    void writeRows(int row0, DenseMatrix block) {
+        DenseMatrix src = block.compact();
+        MemorySegment.copy(src.data, src.offset, segment, DOUBLE, (long) row0 * cols * Double.BYTES,
+                src.rows * src.cols);
+    }
+
+    /**
+     * Copia l'intera matrice nello heap. Possibile solo se entra in un array Java.
+     */
+    public DenseMatrix toDense() {
+        if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Matrice " + rows + "x" + cols + " troppo grande per lo heap");
+        }
+        return readBlock(0, 0, rows, cols);
+    }
+
+    public boolean isOwner() {
+        return arena != null;
+    }
+
+    /**
+     * Rilascia subito la memoria nativa. Dopo la chiusura ogni accesso lancia IllegalStateException.
+     */
+    @Override
+    public void close() {
+        if (arena != null) arena.close();
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapMatrix(" + rows + "x" + cols + ")";
+    }
+}
@@ -0,0 +1,304 @@
+package org.example;
+
+/**
+ * Fattorizzazione QR di Householder, A = QR, per matrici m x n qualsiasi.
+ *
+ * Come in LUDecomposition tutto sta in un array row-major: R sopra la diagonale, i vettori di
+ * Householder v (con v_0 = 1 implicito) sotto. L'algoritmo è a blocchi: le BLOCK riflessioni
+ * di un pannello vengono riunite nella forma compatta WY,
+ *     H_1 H_2 ... H_b = I - V T V^T   (T triangolare superiore b x b),
+ * così il resto della matrice si aggiorna con tre prodotti matriciali (MatrixUtils.multiply,
+ * quindi GEMM a blocchi e parallelismo) invece che con una riflessione alla volta.
+ *
+ * Serve soprattutto per i minimi quadrati: min ||A x - b|| si risolve con R x = (Q^T b)[0..n),
+ * senza formare A^T A (che eleverebbe al quadrato il condizionamento).
+ */
+public final class QRDecomposition {
+
+    static final int BLOCK = 32;
+
+    private static final double EPS = Math.ulp(1.0);
+
+    private final int m, n, k;
+    private final double[] qr;
+    private final double[] tau;
+    // Matrice T della forma WY di ogni pannello
+    private final DenseMatrix[] blocks;
+
+    private QRDecomposition(DenseMatrix A) {
+        m = A.rows;
+        n = A.cols;
+        k = Math.min(m, n);
+        qr = A.copy().data;
+        tau = new double[k];
+        blocks = new DenseMatrix[(k + BLOCK - 1) / BLOCK];
+        factor();
+    }
+
+    public static QRDecomposition of(DenseMatrix A) {
+        return new QRDecomposition(A);
+    }
+
+    public int getRows() { return m; }
+    public int getCols() { return n; }
+
+    /**
+     * Il fattore R, min(m, n) x n, triangolare superiore.
+     */
+    public DenseMatrix getR() {
+        DenseMatrix R = new DenseMatrix(k, n);
+        for (int i = 0; i < k; i++) {
+            System.arraycopy(qr, i * n + i, R.data, i * n + i, n - i);
+        }
+        return R;
+    }
+
+    /**
+     * Il fattore Q "sottile", m x min(m, n), con colonne ortonormali.
+     */
+    public DenseMatrix getQ() {
+        DenseMatrix Q = new DenseMatrix(m, k);
+        for (int i = 0; i < k; i++) Q.data[i * k + i] = 1.0;
+        applyQ(Q);
+        return Q;
+    }
+
+    /**
+     * True se nessun elemento della diagonale di R è trascurabile rispetto al più grande.
+     */
+    public boolean isFullRank() {
+        double max = 0.0;
+        for (int i = 0; i < k; i++) max = Math.max(max, Math.abs(qr[i * n + i]));
+        double tolerance = Math.max(m, n) * EPS * max;
+        for (int i = 0; i < k; i++) {
+            if (Math.abs(qr[i * n + i]) <= tolerance) return false;
+        }
+        return max > 0.0;
+    }
+
+    /**
+     * Minimi quadrati: la X che minimizza ||A X - B|| (colonna per colonna). Richiede m >= n
+     * e rango pieno; con m == n è la soluzione esatta del sistema.
+     */
+    public DenseMatrix solve(DenseMatrix B) {
+        if (B.rows != m) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + m + "x" + n + ") vs ("
+                    + B.rows + "x" + B.cols + ")");
+        }
+        if (m < n) {
+            throw new IllegalArgumentException("Minimi quadrati: servono almeno tante righe quante colonne, non "
+                    + m + "x" + n);
+        }
+        checkFullRank();
+
+        int p = B.cols;
+        DenseMatrix Y = B.copy();
+        applyQT(Y);
+        // R X = (Q^T B)[0..n), all'indietro
+        DenseMatrix X = new DenseMatrix(n, p);
+        double[] x = X.data;
+        System.arraycopy(Y.data, 0, x, 0, n * p);
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = i + 1; j < n; j++) {
+                double r = qr[i * n + j];
+                if (r == 0.0) continue;
+                for (int c = 0; c < p; c++) x[i * p + c] -= r * x[j * p + c];
+            }
+            double d = 1.0 / qr[i * n + i];
+            for (int c = 0; c < p; c++) x[i * p + c] *= d;
+        }
+        return X;
+    }
+
+    /**
+     * Soluzione di norma minima di A^T X = B, dove A è la matrice fattorizzata (m >= n):
+     * serve per i sistemi sottodeterminati, fattorizzando la trasposta. X = Q [R^-T B; 0].
+     */
+    public DenseMatrix solveTransposed(DenseMatrix B) {
+        if (B.rows != n) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + n + "x" + m + ") vs ("
+                    + B.rows + "x" + B.cols + ")");
+        }
+        if (m < n) {
+            throw new IllegalArgumentException("Norma minima: servono almeno tante righe quante colonne, non "
+                    + m + "x" + n);
+        }
+        checkFullRank();
+
+        int p = B.cols;
+        DenseMatrix X = new DenseMatrix(m, p);
+        double[] x = X.data;
+        // R^T Y = B, in avanti (R^T è triangolare inferiore)
+        for (int i = 0; i < n; i++) {
+            for (int c = 0; c < p; c++) x[i * p + c] = B.get(i, c);
+            for (int j = 0; j < i; j++) {
+                double r = qr[j * n + i];
+                if (r == 0.0) continue;
+                for (int c = 0; c < p; c++) x[i * p + c] -= r * x[j * p + c];
+            }
+            double d = 1.0 / qr[i * n + i];
+            for (int c = 0; c < p; c++) x[i * p + c] *= d;
+        }
+        applyQ(X);
+        return X;
+    }
+
+    private void checkFullRank() {
+        if (!isFullRank()) {
+            throw new ArithmeticException("Matrice di rango incompleto: la soluzione non è unica");
+        }
+    }
+
+    // --- APPLICAZIONE DI Q ---
+
+    /**
+     * B = Q^T B, sul posto (B m x p compatta): pannello per pannello, B -= V T^T (V^T B).
+     */
+    void applyQT(DenseMatrix B) {
+        for (int b = 0; b < blocks.length; b++) {
+            int j0 = b * BLOCK;
+            applyBlock(j0, blocks[b].transpose(), B);
+        }
+    }
+
+    /**
+     * B = Q B, sul posto: i pannelli in ordine inverso, B -= V T (V^T B).
+     */
+    void applyQ(DenseMatrix B) {
+        for (int b = blocks.length - 1; b >= 0; b--) {
+            int j0 = b * BLOCK;
+            applyBlock(j0, blocks[b], B);
+        }
+    }
+
+    // B[j0..m) -= V * T' * (V^T * B[j0..m))
+    private void applyBlock(int j0, DenseMatrix T, DenseMatrix B) {
+        DenseMatrix V = panelVectors(j0, T.rows);
+        DenseMatrix rows = B.subMatrix(j0, 0, m - j0, B.cols);
+        DenseMatrix W = MatrixUtils.multiply(T, MatrixUtils.multiply(V.transpose(), rows));
+        subtractProduct(rows, V, W);
+    }
+
+    // C -= A * B, con C vista sulla matrice da aggiornare
+    private static void subtractProduct(DenseMatrix C, DenseMatrix A, DenseMatrix B) {
+        DenseMatrix P = MatrixUtils.multiply(A, B);
+        int cols = C.cols;
+        MatrixParallel.forRows(C.rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int dst = C.offset + i * C.rowStride;
+                int src = i * cols;
+                for (int j = 0; j < cols; j++) C.data[dst + j * C.colStride] -= P.data[src + j];
+            }
+        });
+    }
+
+    // I vettori di Householder del pannello in una matrice (m - j0) x nb: 1 in diagonale, 0 sopra
+    private DenseMatrix panelVectors(int j0, int nb) {
+        int rows = m - j0;
+        DenseMatrix V = new DenseMatrix(rows, nb);
+        for (int i = 0; i < rows; i++) {
+            int r = j0 + i;
+            for (int c = 0; c < nb && c <= i; c++) {
+                V.data[i * nb + c] = c == i ? 1.0 : qr[r * n + j0 + c];
+            }
+        }
+        return V;
+    }
+
+    // --- FATTORIZZAZIONE ---
+
+    private void factor() {
+        for (int j0 = 0; j0 < k; j0 += BLOCK) {
+            int nb = Math.min(BLOCK, k - j0);
+            int end = j0 + nb;
+
+            // 1. Pannello: riflessioni una alla volta sulle sue sole colonne
+            for (int j = j0; j < end; j++) {
+                householder(j);
+                applyReflector(j, j + 1, end);
+            }
+
+            // 2. Forma compatta WY del pannello
+            DenseMatrix T = buildT(j0, nb);
+            blocks[j0 / BLOCK] = T;
+
+            // 3. Resto della matrice: A2 = (I - V T V^T)^T A2
+            if (end < n) {
+                DenseMatrix A2 = DenseMatrix.wrap(qr, m, n).subMatrix(j0, end, m - j0, n - end);
+                DenseMatrix V = panelVectors(j0, nb);
+                DenseMatrix W = MatrixUtils.multiply(T.transpose(), MatrixUtils.multiply(V.transpose(), A2));
+                subtractProduct(A2, V, W);
+            }
+        }
+    }
+
+    /**
+     * Riflessione che annulla la colonna j sotto la diagonale (come dlarfg di LAPACK):
+     * H = I - tau v v^T con v_0 = 1, e la diagonale diventa beta = -sign(alpha) ||x||.
+     */
+    private void householder(int j) {
+        double alpha = qr[j * n + j];
+        double sigma = 0.0;
+        for (int i = j + 1; i < m; i++) {
+            double v = qr[i * n + j];
+            sigma += v * v;
+        }
+        if (sigma == 0.0) {
+            tau[j] = 0.0; // già triangolare: H = I
+            return;
+        }
+        double norm = Math.sqrt(alpha * alpha + sigma);
+        double beta = alpha <= 0 ? norm : -norm;
+        tau[j] = (beta - alpha) / beta;
+        double scale = 1.0 / (alpha - beta);
+        for (int i = j + 1; i < m; i++) qr[i * n + j] *= scale;
+        qr[j * n + j] = beta;
+    }
+
+    // Applica H_j alle colonne [from, to), righe [j, m)
+    private void applyReflector(int j, int from, int to) {
+        if (tau[j] == 0.0 || from >= to) return;
+        int width = to - from;
+        double[] w = new double[width];
+        // w = v^T A (riga per riga: accessi contigui)
+        for (int i = j; i < m; i++) {
+            double v = i == j ? 1.0 : qr[i * n + j];
+            int row = i * n + from;
+            for (int c = 0; c < width; c++) w[c] += v * qr[row + c];
+        }
+        for (int i = j; i < m; i++) {
+            double v = (i == j ? 1.0 : qr[i * n + j]) * tau[j];
+            int row = i * n + from;
+            for (int c = 0; c < width; c++) qr[row + c] -= v * w[c];
+        }
+    }
+
+    /**
+     * T tale che H_j0 ... H_(j0+nb-1) = I - V T V^T:
+     * T[0..i, i] = -tau_i T[0..i, 0..i] (V[:, 0..i]^T v_i), T[i][i] = tau_i.
+     */
+    private DenseMatrix buildT(int j0, int nb) {
+        DenseMatrix T = new DenseMatrix(nb, nb);
+        double[] t = T.data;
+        double[] z = new double[nb];
+        for (int i = 0; i < nb; i++) {
+            int col = j0 + i;
+            double ti = tau[col];
+            t[i * nb + i] = ti;
+            if (i == 0 || ti == 0.0) continue;
+            // z = V[:, 0..i]^T v_i (v_i è zero sopra la riga col, 1 su col)
+            for (int c = 0; c < i; c++) {
+                int vc = j0 + c;
+                double s = qr[col * n + vc]; // v_c[col] * 1
+                for (int r = col + 1; r < m; r++) s += qr[r * n + vc] * qr[r * n + col];
+                z[c] = s;
+            }
+            for (int r = 0; r < i; r++) {
+                double s = 0.0;
+                for (int c = r; c < i; c++) s += t[r * nb + c] * z[c];
+                t[r * nb + i] = -ti * s;
+            }
+        }
+        return T;
+    }
+}
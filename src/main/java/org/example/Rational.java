@@ -0,0 +1,257 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Numero razionale esatto, usato per i coefficienti numerici dei termini simbolici (SymExpr).
+ *
+ * Sempre ridotto ai minimi termini con denominatore positivo. Finché numeratore e denominatore
+ * stanno in un long i conti si fanno con i long (Math.*Exact); al primo overflow si passa a
+ * BigInteger, e si torna ai long appena il risultato ci sta di nuovo. Così 1/3 resta 1/3 lungo
+ * tutta una catena di operazioni senza pagare BigInteger/BigDecimal nei casi comuni.
+ */
+public final class Rational implements Comparable<Rational> {
+
+    public static final Rational ZERO = new Rational(0, 1);
+    public static final Rational ONE = new Rational(1, 1);
+    public static final Rational MINUS_ONE = new Rational(-1, 1);
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    // Oltre 2^53 la conversione long -> double non è più esatta
+    private static final long EXACT_DOUBLE = 1L << 53;
+
+    // Rappresentazione compatta: big == null
+    private final long num, den;
+    // Rappresentazione estesa: usata solo se i valori non stanno in un long
+    private final BigInteger bigNum, bigDen;
+
+    private Rational(long num, long den) {
+        this.num = num;
+        this.den = den;
+        this.bigNum = null;
+        this.bigDen = null;
+    }
+
+    private Rational(BigInteger num, BigInteger den) {
+        this.num = 0;
+        this.den = 0;
+        this.bigNum = num;
+        this.bigDen = den;
+    }
+
+    public static Rational of(long value) {
+        if (value == 0) return ZERO;
+        if (value == 1) return ONE;
+        return new Rational(value, 1);
+    }
+
+    public static Rational of(long numerator, long denominator) {
+        if (denominator == 0) throw new ArithmeticException("Divisione per zero");
+        if (denominator == Long.MIN_VALUE || numerator == Long.MIN_VALUE) {
+            return of(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+        }
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        long g = gcd(Math.abs(numerator), denominator);
+        return new Rational(numerator / g, denominator / g);
+    }
+
+    public static Rational of(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) throw new ArithmeticException("Divisione per zero");
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger g = numerator.gcd(denominator);
+        if (!g.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(g);
+            denominator = denominator.divide(g);
+        }
+        if (fitsLong(numerator) && fitsLong(denominator)) {
+            return new Rational(numerator.longValue(), denominator.longValue());
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    /**
+     * Valore esatto di un numero decimale scritto come testo ("2.5" -> 5/2, "0.1" -> 1/10).
+     */
+    public static Rational parse(String text) {
+        BigDecimal d = new BigDecimal(text.trim().replace(',', '.'));
+        return fromDecimal(d);
+    }
+
+    /**
+     * Il razionale corrispondente alla forma decimale più corta del double
+     * (0.1 -> 1/10, non la sua esatta espansione binaria). Solo per valori finiti.
+     */
+    public static Rational valueOf(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("Valore non razionale: " + value);
+        }
+        if (value == (long) value && Math.abs(value) < EXACT_DOUBLE) return of((long) value);
+        return fromDecimal(new BigDecimal(Double.toString(value)));
+    }
+
+    private static Rational fromDecimal(BigDecimal d) {
+        if (d.scale() <= 0) return of(d.toBigIntegerExact(), BigInteger.ONE);
+        return of(d.unscaledValue(), BigInteger.TEN.pow(d.scale()));
+    }
+
+    private static boolean fitsLong(BigInteger b) {
+        return b.compareTo(LONG_MIN) >= 0 && b.compareTo(LONG_MAX) <= 0;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a == 0 ? 1 : a;
+    }
+
+    private boolean isBig() {
+        return bigNum != null;
+    }
+
+    public BigInteger numerator() {
+        return isBig() ? bigNum : BigInteger.valueOf(num);
+    }
+
+    public BigInteger denominator() {
+        return isBig() ? bigDen : BigInteger.valueOf(den);
+    }
+
+    // --- OPERAZIONI ---
+
+    public Rational add(Rational o) {
+        if (!isBig() && !o.isBig()) {
+            try {
+                if (den == o.den) return of(Math.addExact(num, o.num), den);
+                long g = gcd(den, o.den);
+                long d = Math.multiplyExact(den / g, o.den);
+                long n = Math.addExact(Math.multiplyExact(num, o.den / g), Math.multiplyExact(o.num, den / g));
+                return of(n, d);
+            } catch (ArithmeticException overflow) {
+                // si prosegue con BigInteger
+            }
+        }
+        return of(numerator().multiply(o.denominator()).add(o.numerator().multiply(denominator())),
+                denominator().multiply(o.denominator()));
+    }
+
+    public Rational subtract(Rational o) {
+        return add(o.negate());
+    }
+
+    public Rational multiply(Rational o) {
+        if (!isBig() && !o.isBig()) {
+            try {
+                // Semplificazione incrociata prima di moltiplicare: numeri più piccoli, meno overflow
+                long g1 = gcd(Math.abs(num), o.den);
+                long g2 = gcd(Math.abs(o.num), den);
+                return of(Math.multiplyExact(num / g1, o.num / g2), Math.multiplyExact(den / g2, o.den / g1));
+            } catch (ArithmeticException overflow) {
+                // si prosegue con BigInteger
+            }
+        }
+        return of(numerator().multiply(o.numerator()), denominator().multiply(o.denominator()));
+    }
+
+    public Rational divide(Rational o) {
+        if (o.isZero()) throw new ArithmeticException("Divisione per zero");
+        return multiply(o.reciprocal());
+    }
+
+    public Rational negate() {
+        if (!isBig() && num != Long.MIN_VALUE) return new Rational(-num, den);
+        return of(numerator().negate(), denominator());
+    }
+
+    public Rational reciprocal() {
+        if (isZero()) throw new ArithmeticException("Divisione per zero");
+        return isBig() ? of(bigDen, bigNum) : of(den, num);
+    }
+
+    public Rational abs() {
+        return signum() < 0 ? negate() : this;
+    }
+
+    public Rational pow(int exponent) {
+        if (exponent < 0) return reciprocal().pow(-exponent);
+        Rational result = ONE;
+        Rational base = this;
+        // Quadrati successivi
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) result = result.multiply(base);
+            exponent >>= 1;
+            if (exponent > 0) base = base.multiply(base);
+        }
+        return result;
+    }
+
+    public int signum() {
+        return isBig() ? bigNum.signum() : Long.signum(num);
+    }
+
+    public boolean isZero() {
+        return signum() == 0;
+    }
+
+    public boolean isOne() {
+        return !isBig() && num == 1 && den == 1;
+    }
+
+    public boolean isInteger() {
+        return isBig() ? bigDen.equals(BigInteger.ONE) : den == 1;
+    }
+
+    public double doubleValue() {
+        if (!isBig() && Math.abs(num) <= EXACT_DOUBLE && den <= EXACT_DOUBLE) {
+            return (double) num / den;
+        }
+        return new BigDecimal(numerator()).divide(new BigDecimal(denominator()), MathContext.DECIMAL64).doubleValue();
+    }
+
+    @Override
+    public int compareTo(Rational o) {
+        if (!isBig() && !o.isBig()) {
+            try {
+                return Long.compare(Math.multiplyExact(num, o.den), Math.multiplyExact(o.num, den));
+            } catch (ArithmeticException overflow) {
+                // si prosegue con BigInteger
+            }
+        }
+        return numerator().multiply(o.denominator()).compareTo(o.numerator().multiply(denominator()));
+    }
+
+    // La forma è canonica (ridotta, e compatta quando possibile): basta confrontare i campi
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Rational r) || isBig() != r.isBig()) return false;
+        return isBig() ? bigNum.equals(r.bigNum) && bigDen.equals(r.bigDen) : num == r.num && den == r.den;
+    }
+
+    @Override
+    public int hashCode() {
+        return isBig() ? bigNum.hashCode() * 31 + bigDen.hashCode() : Long.hashCode(num) * 31 + Long.hashCode(den);
+    }
+
+    @Override
+    public String toString() {
+        return isInteger() ? numerator().toString() : numerator() + "/" + denominator();
+    }
+
+    public String toLatex() {
+        if (isInteger()) return numerator().toString();
+        String frac = "\\frac{" + numerator().abs() + "}{" + denominator() + "}";
+        return signum() < 0 ? "-" + frac : frac;
+    }
+}
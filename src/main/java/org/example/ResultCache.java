@@ -0,0 +1,78 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Risultati già calcolati di (sotto)formule, riusati finché le variabili che leggono non cambiano.
+ *
+ * La chiave è il sottoalbero stesso (i nodi di ExprNode sono record: "A^T * A" scritto in due
+ * formule diverse, o due volte nella stessa, dà chiavi uguali) più il tipo di valutazione.
+ * Ogni voce ricorda le versioni delle variabili lette (vedi Expression.versions): se una
+ * variabile è stata riassegnata la voce è scaduta e viene ricalcolata.
+ *
+ * Per ogni sottoformula si tiene solo il risultato più recente; oltre MAX_CELLS celle in totale
+ * si scartano le voci usate meno di recente.
+ */
+final class ResultCache {
+
+    // 4M celle: 32 MB di double
+    static final long MAX_CELLS = 1L << 22;
+
+    private record Key(ExprNode node, boolean symbolic) {}
+
+    private record Entry(long[] versions, Object value, long cells) {}
+
+    // In ordine di accesso: la prima voce è quella usata meno di recente
+    private static final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cells;
+
+    private ResultCache() {}
+
+    static synchronized DenseMatrix getNumeric(ExprNode node, long[] versions) {
+        return (DenseMatrix) get(new Key(node, false), versions);
+    }
+
+    static synchronized SymExpr[][] getSymbolic(ExprNode node, long[] versions) {
+        return (SymExpr[][]) get(new Key(node, true), versions);
+    }
+
+    static synchronized void putNumeric(ExprNode node, long[] versions, DenseMatrix value) {
+        put(new Key(node, false), new Entry(versions, value, (long) value.rows * value.cols));
+    }
+
+    static synchronized void putSymbolic(ExprNode node, long[] versions, SymExpr[][] value) {
+        put(new Key(node, true), new Entry(versions, value, (long) value.length * value[0].length));
+    }
+
+    static synchronized void clear() {
+        entries.clear();
+        cells = 0;
+    }
+
+    private static Object get(Key key, long[] versions) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (!Arrays.equals(entry.versions, versions)) {
+            entries.remove(key);
+            cells -= entry.cells;
+            return null;
+        }
+        return entry.value;
+    }
+
+    private static void put(Key key, Entry entry) {
+        // Un solo risultato più grande di metà cache svuoterebbe tutto il resto
+        if (entry.cells > MAX_CELLS / 2) return;
+        Entry old = entries.put(key, entry);
+        if (old != null) cells -= old.cells;
+        cells += entry.cells;
+        Iterator<Entry> lru = entries.values().iterator();
+        while (cells > MAX_CELLS && lru.hasNext()) {
+            cells -= lru.next().cells;
+            lru.remove();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.example;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel vettoriali (SIMD) basati sulla Vector API incubata (jdk.incubator.vector).
+ *
+ * Questa classe viene caricata solo se SimdSupport.ENABLED è true: se il modulo non è
+ * presente a runtime nessuno la referenzia e restano attivi i cicli scalari di MatrixUtils.
+ * Tutti i metodi lavorano su tratti contigui di array (stride 1); le code che non riempiono
+ * un vettore intero sono gestite con una maschera invece che con un ciclo scalare.
+ */
+final class SimdKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // Il micro-kernel del GEMM lavora su tile 4x4: una riga del tile = un vettore da 256 bit
+    private static final VectorSpecies<Double> TILE = DoubleVector.SPECIES_256;
+
+    private SimdKernels() {}
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    // r[rOff..rOff+n) = a[aOff..) + b[bOff..)
+    static void add(double[] a, int aOff, double[] b, int bOff, double[] r, int rOff, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            va.add(vb).intoArray(r, rOff + i);
+        }
+        if (i < n) {
+            VectorMask<Double> m = SPECIES.indexInRange(i, n);
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i, m);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i, m);
+            va.add(vb).intoArray(r, rOff + i, m);
+        }
+    }
+
+    // r[rOff..rOff+n) = a[aOff..) - b[bOff..)
+    static void subtract(double[] a, int aOff, double[] b, int bOff, double[] r, int rOff, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            va.sub(vb).intoArray(r, rOff + i);
+        }
+        if (i < n) {
+            VectorMask<Double> m = SPECIES.indexInRange(i, n);
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i, m);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i, m);
+            va.sub(vb).intoArray(r, rOff + i, m);
+        }
+    }
+
+    // r[rOff..rOff+n) = a[aOff..) * s
+    static void scale(double[] a, int aOff, double s, double[] r, int rOff, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).mul(s).intoArray(r, rOff + i);
+        }
+        if (i < n) {
+            VectorMask<Double> m = SPECIES.indexInRange(i, n);
+            DoubleVector.fromArray(SPECIES, a, aOff + i, m).mul(s).intoArray(r, rOff + i, m);
+        }
+    }
+
+    // y[yOff..yOff+n) += alpha * x[xOff..)
+    static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int n) {
+        DoubleVector va = DoubleVector.broadcast(SPECIES, alpha);
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xOff + i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOff + i);
+            vx.fma(va, vy).intoArray(y, yOff + i);
+        }
+        if (i < n) {
+            VectorMask<Double> m = SPECIES.indexInRange(i, n);
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xOff + i, m);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOff + i, m);
+            vx.fma(va, vy).intoArray(y, yOff + i, m);
+        }
+    }
+
+    // Prodotto scalare di a[aOff..aOff+n) e b[bOff..)
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            acc = va.fma(vb, acc);
+        }
+        if (i < n) {
+            // Le corsie fuori maschera vengono caricate come 0 e non alterano la somma
+            VectorMask<Double> m = SPECIES.indexInRange(i, n);
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i, m);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i, m);
+            acc = va.fma(vb, acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    static boolean supportsGemmTile() {
+        return SPECIES.vectorBitSize() >= TILE.vectorBitSize();
+    }
+
+    /**
+     * Micro-kernel 4x4 del GEMM: c[4 righe x 4 colonne] += panelA * panelB.
+     * I pannelli sono nel formato di GemmKernel (MR = NR = 4 elementi per passo k).
+     */
+    static void gemmMicroKernel4x4(int kc, double[] a, int aBase, double[] b, int bBase,
+                                   double[] c, int cBase, int ldc) {
+        DoubleVector c0 = DoubleVector.zero(TILE);
+        DoubleVector c1 = DoubleVector.zero(TILE);
+        DoubleVector c2 = DoubleVector.zero(TILE);
+        DoubleVector c3 = DoubleVector.zero(TILE);
+
+        int ai = aBase;
+        int bi = bBase;
+        for (int k = 0; k < kc; k++) {
+            DoubleVector vb = DoubleVector.fromArray(TILE, b, bi);
+            c0 = vb.fma(DoubleVector.broadcast(TILE, a[ai]), c0);
+            c1 = vb.fma(DoubleVector.broadcast(TILE, a[ai + 1]), c1);
+            c2 = vb.fma(DoubleVector.broadcast(TILE, a[ai + 2]), c2);
+            c3 = vb.fma(DoubleVector.broadcast(TILE, a[ai + 3]), c3);
+            ai += 4;
+            bi += 4;
+        }
+
+        int r0 = cBase, r1 = r0 + ldc, r2 = r1 + ldc, r3 = r2 + ldc;
+        DoubleVector.fromArray(TILE, c, r0).add(c0).intoArray(c, r0);
+        DoubleVector.fromArray(TILE, c, r1).add(c1).intoArray(c, r1);
+        DoubleVector.fromArray(TILE, c, r2).add(c2).intoArray(c, r2);
+        DoubleVector.fromArray(TILE, c, r3).add(c3).intoArray(c, r3);
+    }
+}
@@ -0,0 +1,29 @@
+package org.example;
+
+/**
+ * Decide a runtime se usare i kernel vettoriali di SimdKernels.
+ *
+ * La Vector API è ancora un modulo incubato: è disponibile solo se la JVM viene avviata con
+ * "--add-modules jdk.incubator.vector". In caso contrario (o con -Dvector.simd=false)
+ * ENABLED resta false e MatrixUtils usa i cicli scalari, senza mai caricare SimdKernels.
+ */
+final class SimdSupport {
+
+    static final boolean ENABLED = detect();
+
+    // Il micro-kernel vettoriale del GEMM serve registri da almeno 256 bit (4 double)
+    static final boolean GEMM_TILE = ENABLED && SimdKernels.supportsGemmTile();
+
+    private SimdSupport() {}
+
+    private static boolean detect() {
+        if ("false".equalsIgnoreCase(System.getProperty("vector.simd"))) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return SimdKernels.lanes() >= 2;
+        } catch (Throwable t) {
+            // Modulo presente ma non utilizzabile (es. piattaforma non supportata)
+            return false;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Decomposizione ai valori singolari A = U S V^T (forma "sottile": k = min(m, n) colonne).
+ *
+ * of(): prima una QR (A = Q R, a blocchi), poi Jacobi "one-sided" sulla piccola R: si ruotano
+ * coppie di colonne finché non sono tutte ortogonali; le norme delle colonne sono i valori
+ * singolari. Jacobi è lento rispetto a Golub-Kahan ma molto preciso anche sui valori piccoli,
+ * e passando da R il suo costo non dipende più dal numero di righe.
+ *
+ * truncated(): solo i primi k valori singolari con il metodo randomizzato di Halko, Martinsson
+ * e Tropp. Si proietta A su un sottospazio casuale di dimensione k + OVERSAMPLING, lo si
+ * raffina con qualche iterazione di potenza e si fa la SVD esatta della piccola matrice
+ * proiettata: tutto il lavoro su A sono prodotti matriciali (GEMM a blocchi, in parallelo).
+ */
+public final class SingularValueDecomposition {
+
+    private static final double EPS = Math.ulp(1.0);
+    private static final int MAX_SWEEPS = 60;
+    // Colonne in più del sottospazio casuale e iterazioni di potenza della versione randomizzata
+    static final int OVERSAMPLING = 10;
+    static final int POWER_ITERATIONS = 2;
+    // Seme fisso: la stessa matrice dà sempre lo stesso risultato
+    private static final long SEED = 0x5EEDL;
+
+    private final DenseMatrix U, V;
+    private final double[] s;
+
+    private SingularValueDecomposition(DenseMatrix U, double[] s, DenseMatrix V) {
+        this.U = U;
+        this.s = s;
+        this.V = V;
+    }
+
+    public static SingularValueDecomposition of(DenseMatrix A) {
+        // Con più colonne che righe si decompone la trasposta e si scambiano U e V
+        if (A.rows < A.cols) {
+            SingularValueDecomposition t = of(A.transpose());
+            return new SingularValueDecomposition(t.V, t.s, t.U);
+        }
+        QRDecomposition qr = QRDecomposition.of(A);
+        SingularValueDecomposition r = jacobi(qr.getR());
+        return new SingularValueDecomposition(MatrixUtils.multiply(qr.getQ(), r.U), r.s, r.V);
+    }
+
+    /**
+     * SVD troncata ai primi k valori singolari (randomizzata). Se k copre quasi tutto il rango
+     * possibile non conviene: si calcola la decomposizione completa e la si tronca.
+     */
+    public static SingularValueDecomposition truncated(DenseMatrix A, int k) {
+        int min = Math.min(A.rows, A.cols);
+        if (k < 1 || k > min) {
+            throw new IllegalArgumentException("Numero di valori singolari non valido: " + k
+                    + " (la matrice " + A.rows + "x" + A.cols + " ne ha " + min + ")");
+        }
+        int l = k + OVERSAMPLING;
+        if (l >= min) return of(A).truncate(k);
+
+        // Y = A Omega, Omega n x l gaussiana; Q base ortonormale dell'immagine di Y
+        DenseMatrix omega = new DenseMatrix(A.cols, l);
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < omega.data.length; i++) omega.data[i] = gaussian(random);
+        DenseMatrix Q = orth(MatrixUtils.multiply(A, omega));
+
+        // Iterazioni di potenza: (A A^T)^q A Omega separa meglio i valori singolari vicini.
+        // Si riortogonalizza a ogni passo, altrimenti le colonne collassano sul primo vettore
+        DenseMatrix At = A.transpose();
+        for (int i = 0; i < POWER_ITERATIONS; i++) {
+            Q = orth(MatrixUtils.multiply(A, orth(MatrixUtils.multiply(At, Q))));
+        }
+
+        // B = Q^T A (l x n): la sua SVD dà quella di A. Si decompone B^T = A^T Q (n x l, alta):
+        // B^T = Ub S Vb^T  =>  B = Vb S Ub^T  =>  A ~ (Q Vb) S Ub^T
+        SingularValueDecomposition small = of(MatrixUtils.multiply(At, Q));
+        return new SingularValueDecomposition(MatrixUtils.multiply(Q, small.V), small.s, small.U).truncate(k);
+    }
+
+    private static DenseMatrix orth(DenseMatrix A) {
+        return QRDecomposition.of(A).getQ();
+    }
+
+    // Box-Muller
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * random.nextDouble());
+    }
+
+    private SingularValueDecomposition truncate(int k) {
+        if (k == s.length) return this;
+        double[] values = new double[k];
+        System.arraycopy(s, 0, values, 0, k);
+        return new SingularValueDecomposition(U.subMatrix(0, 0, U.rows, k).copy(), values,
+                V.subMatrix(0, 0, V.rows, k).copy());
+    }
+
+    /**
+     * Valori singolari in ordine decrescente.
+     */
+    public double[] getSingularValues() {
+        return s.clone();
+    }
+
+    /**
+     * Colonne ortonormali (m x k). Le colonne dei valori singolari nulli sono nulle.
+     */
+    public DenseMatrix getU() {
+        return U.copy();
+    }
+
+    /**
+     * I valori singolari sulla diagonale di una matrice k x k.
+     */
+    public DenseMatrix getS() {
+        DenseMatrix S = new DenseMatrix(s.length, s.length);
+        for (int i = 0; i < s.length; i++) S.data[i * s.length + i] = s[i];
+        return S;
+    }
+
+    /**
+     * Colonne ortonormali (n x k).
+     */
+    public DenseMatrix getV() {
+        return V.copy();
+    }
+
+    /**
+     * Rango numerico: i valori singolari oltre max(m, n) * eps * s_max.
+     */
+    public int rank() {
+        if (s.length == 0) return 0;
+        double tolerance = Math.max(U.rows, V.rows) * EPS * s[0];
+        int r = 0;
+        while (r < s.length && s[r] > tolerance) r++;
+        return r;
+    }
+
+    // --- JACOBI ---
+
+    /**
+     * Jacobi one-sided su R (n x n). Si lavora sulle colonne, quindi sono memorizzate come righe
+     * (w[j] = colonna j): ogni rotazione scorre due array contigui.
+     */
+    private static SingularValueDecomposition jacobi(DenseMatrix R) {
+        int n = R.cols;
+        double[][] w = R.transpose().toArray();
+        double[][] v = new double[n][n];
+        for (int j = 0; j < n; j++) v[j][j] = 1.0;
+
+        // Norme al quadrato delle colonne: dopo una rotazione si aggiornano senza ricalcolarle
+        // (alpha - t gamma, beta + t gamma); a ogni giro si ripartono da capo contro la deriva
+        double[] norms = new double[n];
+        boolean rotated = true;
+        for (int sweep = 0; sweep < MAX_SWEEPS && rotated; sweep++) {
+            rotated = false;
+            double max = 0.0;
+            for (int j = 0; j < n; j++) {
+                norms[j] = dot(w[j], w[j]);
+                max = Math.max(max, norms[j]);
+            }
+            // Colonne sotto n * eps * s_max sono solo arrotondamento (valori singolari nulli):
+            // ruotarle non cambia il risultato e con rango basso costerebbe decine di giri in più
+            double negligible = (double) n * n * EPS * EPS * max;
+            for (int p = 0; p < n - 1; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    double alpha = norms[p];
+                    double beta = norms[q];
+                    if (alpha <= negligible || beta <= negligible) continue;
+                    double gamma = dot(w[p], w[q]);
+                    // Già ortogonali (a meno dell'arrotondamento)
+                    if (Math.abs(gamma) <= EPS * Math.sqrt(alpha * beta)) continue;
+                    rotated = true;
+
+                    // Rotazione che annulla gamma: t = tan(theta), la radice più piccola
+                    double zeta = (beta - alpha) / (2.0 * gamma);
+                    double t = (zeta >= 0 ? 1.0 : -1.0) / (Math.abs(zeta) + Math.sqrt(1.0 + zeta * zeta));
+                    double c = 1.0 / Math.sqrt(1.0 + t * t);
+                    rotate(w[p], w[q], c, c * t);
+                    rotate(v[p], v[q], c, c * t);
+                    norms[p] = alpha - t * gamma;
+                    norms[q] = beta + t * gamma;
+                }
+            }
+        }
+
+        // Valori singolari = norme delle colonne, in ordine decrescente
+        double[] s = new double[n];
+        for (int j = 0; j < n; j++) s[j] = Math.sqrt(dot(w[j], w[j]));
+        Integer[] order = new Integer[n];
+        for (int j = 0; j < n; j++) order[j] = j;
+        Arrays.sort(order, (a, b) -> Double.compare(s[b], s[a]));
+
+        DenseMatrix U = new DenseMatrix(n, n);
+        DenseMatrix V = new DenseMatrix(n, n);
+        double[] values = new double[n];
+        for (int c = 0; c < n; c++) {
+            int j = order[c];
+            values[c] = s[j];
+            double scale = s[j] == 0.0 ? 0.0 : 1.0 / s[j];
+            for (int i = 0; i < n; i++) {
+                U.data[i * n + c] = w[j][i] * scale;
+                V.data[i * n + c] = v[j][i];
+            }
+        }
+        return new SingularValueDecomposition(U, values, V);
+    }
+
+    // (x, y) = (c x - s y, s x + c y)
+    private static void rotate(double[] x, double[] y, double c, double s) {
+        for (int i = 0; i < x.length; i++) {
+            double a = x[i], b = y[i];
+            x[i] = c * a - s * b;
+            y[i] = s * a + c * b;
+        }
+    }
+
+    private static double dot(double[] a, double[] b) {
+        if (SimdSupport.ENABLED) return SimdKernels.dot(a, 0, b, 0, a.length);
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+}
@@ -87,20 +87,23 @@ public class SmartMathParser {
             MatrixData data = VariableManager.get(varName);
 
             if (data != null) {
-                // Tenta di ottenere i valori numerici
-                double[][] numericMatrix = data.getDoubleValues();
-
-                String latexTransposed;
-                if (numericMatrix != null) {
-                    // CASO 1: Matrice Numerica
-                    // Usa la tua classe MatrixUtils esistente
-                    double[][] transposed = MatrixUtils.getTranspose(numericMatrix);
-                    latexTransposed = MatrixUtils.toLatex(transposed);
-                } else {
-                    // CASO 2: Matrice Simbolica (contiene lettere o espressioni)
-                    // Usiamo i valori stringa grezzi
-                    String[][] stringMatrix = data.getValues();
-                    latexTransposed = transposeStringMatrixToLatex(stringMatrix);
+                // Matrici enormi o dalle dimensioni simboliche: solo le dimensioni, senza leggere i valori
+                String latexTransposed = data.toTransposedLatexSummary();
+                if (latexTransposed == null) {
+                    // Tenta di ottenere i valori numerici
+                    // (valori in cache: nessun nuovo parsing, la trasposta è solo una vista)
+                    DenseMatrix numericMatrix = data.getDenseValues();
+
+                    if (numericMatrix != null) {
+                        // CASO 1: Matrice Numerica
+                        // Usa la tua classe MatrixUtils esistente
+                        latexTransposed = MatrixUtils.toLatex(MatrixUtils.getTranspose(numericMatrix));
+                    } else {
+                        // CASO 2: Matrice Simbolica (contiene lettere o espressioni)
+                        // Usiamo i valori stringa grezzi
+                        String[][] stringMatrix = data.getValues();
+                        latexTransposed = transposeStringMatrixToLatex(stringMatrix);
+                    }
                 }
 
                 // Sostituzione nel testo (quoteReplacement è fondamentale per il LaTeX)
@@ -254,7 +257,8 @@ public class SmartMathParser {
         String x = parseAtom();
         for (;;) {
             if (eat('^')) {
-                String exp = parsePower();
+                // A^-1: il meno fa parte dell'esponente
+                String exp = eat('-') ? "-" + parsePower() : parsePower();
                 x = "{" + x + "}^{" + exp + "}";
             } else return x;
         }
@@ -385,6 +389,12 @@ public class SmartMathParser {
                 }
                 nextChar();
             }
+            // Matrici mostrate solo con le dimensioni (es. ..._{n \times m}): il pedice fa parte del blocco
+            if (ch == '_') {
+                sb.append((char)ch);
+                nextChar();
+                appendBraces(sb);
+            }
         }
         // 4. SE è un altro comando (es. \frac, \sqrt), la gestione base qui è semplificata:
         // Assumiamo che se non è \begin, potrebbe essere un comando semplice.
@@ -393,21 +403,27 @@ public class SmartMathParser {
             // Se c'è un blocco graffe subito dopo (es \frac{...}), lo leggiamo.
             // (Implementazione semplificata: legge finché trova caratteri validi o blocchi)
             while (ch == '{') {
-                sb.append((char)ch);
-                nextChar();
-                int openBraces = 1;
-                while (openBraces > 0 && ch != -1) {
-                    if (ch == '{') openBraces++;
-                    if (ch == '}') openBraces--;
-                    sb.append((char)ch);
-                    nextChar();
-                }
+                appendBraces(sb);
             }
         }
 
         return sb.toString();
     }
 
+    // Legge un blocco tra graffe bilanciate, graffe comprese
+    private void appendBraces(StringBuilder sb) {
+        if (ch != '{') return;
+        sb.append((char)ch);
+        nextChar();
+        int openBraces = 1;
+        while (openBraces > 0 && ch != -1) {
+            if (ch == '{') openBraces++;
+            if (ch == '}') openBraces--;
+            sb.append((char)ch);
+            nextChar();
+        }
+    }
+
     private String formatNumber(String rawNumber) {
         try {
             if (rawNumber.equals(".")) return "0";
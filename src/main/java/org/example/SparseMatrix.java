@@ -0,0 +1,378 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Matrice numerica sparsa in formato CSR (Compressed Sparse Row).
+ *
+ * Gli elementi non nulli della riga i sono values[rowPtr[i] .. rowPtr[i + 1]), nelle colonne
+ * colIdx[...] in ordine crescente. Occupa 12 byte per non-zero più 4 per riga, contro gli 8 per
+ * cella della forma densa, e i prodotti costano in proporzione ai non-zero.
+ *
+ * Il formato CSC di A coincide con il CSR di A^T: transpose() lo costruisce in O(nnz), e così
+ * anche A^T x si calcola scorrendo righe contigue.
+ *
+ * MatrixData sceglie da sola questa forma (compress) quando la densità scende sotto
+ * DENSITY_THRESHOLD, all'importazione e all'assegnazione.
+ */
+public final class SparseMatrix {
+
+    // Sotto questa frazione di elementi non nulli conviene la forma sparsa
+    public static final double DENSITY_THRESHOLD = 0.1;
+    // Le matrici piccole restano dense: il guadagno è trascurabile e le celle servono al percorso simbolico
+    static final int MIN_CELLS = 1024;
+    // Righe lette per stimare la densità di una matrice fuori heap prima di contarla tutta
+    private static final int SAMPLE_ROWS = 64;
+
+    final int rows, cols;
+    final int[] rowPtr;
+    final int[] colIdx;
+    final double[] values;
+
+    SparseMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Dimensioni non valide: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    /**
+     * Copia in forma sparsa gli elementi non nulli, qualunque sia la densità.
+     */
+    public static SparseMatrix of(DenseMatrix A) {
+        return compress(A, Long.MAX_VALUE);
+    }
+
+    /**
+     * La forma sparsa se conviene (almeno MIN_CELLS celle, densità sotto DENSITY_THRESHOLD),
+     * altrimenti null. Il conteggio si interrompe appena si supera la soglia.
+     */
+    public static SparseMatrix compress(DenseMatrix A) {
+        long cells = (long) A.rows * A.cols;
+        if (cells < MIN_CELLS) return null;
+        return compress(A, (long) (DENSITY_THRESHOLD * cells));
+    }
+
+    /**
+     * Come compress(DenseMatrix), leggendo la matrice fuori heap una riga alla volta.
+     * Se le righe campionate superano già la soglia restituisce null senza leggere il resto:
+     * qualche matrice sparsa con righe dense può restare densa, mai il contrario.
+     */
+    public static SparseMatrix compress(OffHeapMatrix A) {
+        long cells = (long) A.rows * A.cols;
+        if (cells < MIN_CELLS) return null;
+        long budget = (long) (DENSITY_THRESHOLD * cells);
+        double[] row = new double[A.cols];
+        // Prima una stima su SAMPLE_ROWS righe sparse nella matrice: una matrice densa (il caso
+        // comune per un file caricato) si riconosce senza leggerla tutta
+        int step = Math.max(1, A.rows / SAMPLE_ROWS);
+        long sampled = 0, sampledNonZeros = 0;
+        for (int i = 0; i < A.rows; i += step) {
+            A.readRow(i, row, 0);
+            sampledNonZeros += countNonZeros(row, 0, 1, A.cols);
+            sampled += A.cols;
+        }
+        if (sampledNonZeros > DENSITY_THRESHOLD * sampled) return null;
+        long nnz = 0;
+        for (int i = 0; i < A.rows; i++) {
+            A.readRow(i, row, 0);
+            nnz += countNonZeros(row, 0, 1, A.cols);
+            if (nnz > budget) return null;
+        }
+        SparseMatrix S = allocate(A.rows, A.cols, (int) nnz);
+        for (int i = 0; i < A.rows; i++) {
+            A.readRow(i, row, 0);
+            S.fillRow(i, row, 0, 1);
+        }
+        return S;
+    }
+
+    private static SparseMatrix compress(DenseMatrix A, long budget) {
+        long nnz = 0;
+        for (int i = 0; i < A.rows; i++) {
+            nnz += countNonZeros(A.data, A.offset + i * A.rowStride, A.colStride, A.cols);
+            if (nnz > budget) return null;
+        }
+        if (nnz > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Troppi elementi non nulli per una matrice sparsa: " + nnz);
+        }
+        SparseMatrix S = allocate(A.rows, A.cols, (int) nnz);
+        for (int i = 0; i < A.rows; i++) {
+            S.fillRow(i, A.data, A.offset + i * A.rowStride, A.colStride);
+        }
+        return S;
+    }
+
+    private static int countNonZeros(double[] data, int base, int stride, int n) {
+        int count = 0;
+        for (int j = 0; j < n; j++) {
+            if (data[base + j * stride] != 0.0) count++;
+        }
+        return count;
+    }
+
+    private static SparseMatrix allocate(int rows, int cols, int nnz) {
+        return new SparseMatrix(rows, cols, new int[rows + 1], new int[nnz], new double[nnz]);
+    }
+
+    // Le righe vanno riempite in ordine: rowPtr[i] è già la fine della riga precedente
+    private void fillRow(int i, double[] data, int base, int stride) {
+        int k = rowPtr[i];
+        for (int j = 0; j < cols; j++) {
+            double v = data[base + j * stride];
+            if (v == 0.0) continue;
+            colIdx[k] = j;
+            values[k++] = v;
+        }
+        rowPtr[i + 1] = k;
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    public int nonZeros() {
+        return rowPtr[rows];
+    }
+
+    public double density() {
+        return (double) nonZeros() / ((double) rows * cols);
+    }
+
+    public double get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") fuori da " + rows + "x" + cols);
+        }
+        int k = Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i + 1], j);
+        return k >= 0 ? values[k] : 0.0;
+    }
+
+    /**
+     * Confronto esatto con la trasposta: stessa struttura e stessi valori.
+     */
+    public boolean isSymmetric() {
+        if (rows != cols) return false;
+        SparseMatrix T = transpose();
+        return Arrays.equals(rowPtr, T.rowPtr) && Arrays.equals(colIdx, T.colIdx) && Arrays.equals(values, T.values);
+    }
+
+    public DenseMatrix toDense() {
+        DenseMatrix D = new DenseMatrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) D.data[i * cols + colIdx[k]] = values[k];
+        }
+        return D;
+    }
+
+    /**
+     * A^T in CSR (cioè A in CSC), con un ordinamento per conteggio: O(nnz + righe + colonne).
+     */
+    public SparseMatrix transpose() {
+        int nnz = nonZeros();
+        SparseMatrix T = allocate(cols, rows, nnz);
+        for (int k = 0; k < nnz; k++) T.rowPtr[colIdx[k] + 1]++;
+        for (int j = 0; j < cols; j++) T.rowPtr[j + 1] += T.rowPtr[j];
+        int[] next = Arrays.copyOf(T.rowPtr, cols);
+        // Scorrendo le righe in ordine, gli indici di colonna di T escono già crescenti
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                int dst = next[colIdx[k]]++;
+                T.colIdx[dst] = i;
+                T.values[dst] = values[k];
+            }
+        }
+        return T;
+    }
+
+    public SparseMatrix scale(double s) {
+        if (s == 0.0) return allocate(rows, cols, 0);
+        double[] scaled = new double[nonZeros()];
+        for (int k = 0; k < scaled.length; k++) scaled[k] = values[k] * s;
+        return new SparseMatrix(rows, cols, rowPtr, colIdx, scaled);
+    }
+
+    // --- SOMMA ---
+
+    public SparseMatrix add(SparseMatrix B) {
+        return merge(B, 1.0);
+    }
+
+    public SparseMatrix subtract(SparseMatrix B) {
+        return merge(B, -1.0);
+    }
+
+    // A + sign * B, fondendo le righe ordinate; le cancellazioni esatte non restano come zeri
+    private SparseMatrix merge(SparseMatrix B, double sign) {
+        if (rows != B.rows || cols != B.cols) {
+            throw new IllegalArgumentException("Dimensioni diverse: (" + rows + "x" + cols + ") vs ("
+                    + B.rows + "x" + B.cols + ")");
+        }
+        int capacity = nonZeros() + B.nonZeros();
+        int[] idx = new int[capacity];
+        double[] val = new double[capacity];
+        int[] ptr = new int[rows + 1];
+        int k = 0;
+        for (int i = 0; i < rows; i++) {
+            int a = rowPtr[i], aEnd = rowPtr[i + 1];
+            int b = B.rowPtr[i], bEnd = B.rowPtr[i + 1];
+            while (a < aEnd || b < bEnd) {
+                int ja = a < aEnd ? colIdx[a] : Integer.MAX_VALUE;
+                int jb = b < bEnd ? B.colIdx[b] : Integer.MAX_VALUE;
+                double v;
+                int j;
+                if (ja == jb) {
+                    j = ja;
+                    v = values[a++] + sign * B.values[b++];
+                } else if (ja < jb) {
+                    j = ja;
+                    v = values[a++];
+                } else {
+                    j = jb;
+                    v = sign * B.values[b++];
+                }
+                if (v == 0.0) continue;
+                idx[k] = j;
+                val[k++] = v;
+            }
+            ptr[i + 1] = k;
+        }
+        return new SparseMatrix(rows, cols, ptr, Arrays.copyOf(idx, k), Arrays.copyOf(val, k));
+    }
+
+    // --- PRODOTTI ---
+
+    /**
+     * y = A x (x di lunghezza cols, y di lunghezza rows): il kernel dei metodi iterativi.
+     */
+    public void multiply(double[] x, double[] y) {
+        if (x.length != cols || y.length != rows) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + rows + "x" + cols + ") vs ("
+                    + x.length + "x1)");
+        }
+        MatrixParallel.forRows(rows, averageRowLength(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double sum = 0.0;
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) sum += values[k] * x[colIdx[k]];
+                y[i] = sum;
+            }
+        });
+    }
+
+    /**
+     * Sparsa per densa: la riga i del risultato somma le righe di B pesate dai non-zero della
+     * riga i di A. Costo nnz(A) * colonne(B), in parallelo per righe.
+     */
+    public DenseMatrix multiply(DenseMatrix B) {
+        if (cols != B.rows) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + rows + "x" + cols + ") vs ("
+                    + B.rows + "x" + B.cols + ")");
+        }
+        int n = B.cols;
+        DenseMatrix C = new DenseMatrix(rows, n);
+        MatrixParallel.forRows(rows, averageRowLength() * n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    axpy(values[k], B, colIdx[k], C.data, i * n);
+                }
+            }
+        });
+        return C;
+    }
+
+    /**
+     * Densa per sparsa: A S, la riga i del risultato somma le righe di S pesate dalla riga i di A.
+     */
+    public static DenseMatrix multiply(DenseMatrix A, SparseMatrix S) {
+        if (A.cols != S.rows) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + A.rows + "x" + A.cols + ") vs ("
+                    + S.rows + "x" + S.cols + ")");
+        }
+        int n = S.cols;
+        DenseMatrix C = new DenseMatrix(A.rows, n);
+        MatrixParallel.forRows(A.rows, (long) S.nonZeros() + A.cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int base = A.offset + i * A.rowStride;
+                int row = i * n;
+                for (int k = 0; k < A.cols; k++) {
+                    double a = A.data[base + k * A.colStride];
+                    if (a == 0.0) continue;
+                    for (int p = S.rowPtr[k]; p < S.rowPtr[k + 1]; p++) C.data[row + S.colIdx[p]] += a * S.values[p];
+                }
+            }
+        });
+        return C;
+    }
+
+    /**
+     * Sparsa per sparsa (algoritmo di Gustavson): ogni riga del risultato si accumula in un
+     * vettore denso, segnando le colonne toccate; il costo dipende solo dai prodotti non nulli.
+     */
+    public SparseMatrix multiply(SparseMatrix B) {
+        if (cols != B.rows) {
+            throw new IllegalArgumentException("Dimensioni incompatibili: (" + rows + "x" + cols + ") vs ("
+                    + B.rows + "x" + B.cols + ")");
+        }
+        int n = B.cols;
+        double[] accumulator = new double[n];
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        int[] touched = new int[n];
+
+        int[] ptr = new int[rows + 1];
+        int[] idx = new int[Math.max(16, nonZeros() + B.nonZeros())];
+        double[] val = new double[idx.length];
+        int nnz = 0;
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                double a = values[k];
+                int r = colIdx[k];
+                for (int p = B.rowPtr[r]; p < B.rowPtr[r + 1]; p++) {
+                    int j = B.colIdx[p];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        accumulator[j] = 0.0;
+                        touched[count++] = j;
+                    }
+                    accumulator[j] += a * B.values[p];
+                }
+            }
+            Arrays.sort(touched, 0, count);
+            if (nnz + count > idx.length) {
+                int capacity = Math.max(nnz + count, idx.length * 2);
+                idx = Arrays.copyOf(idx, capacity);
+                val = Arrays.copyOf(val, capacity);
+            }
+            for (int c = 0; c < count; c++) {
+                int j = touched[c];
+                if (accumulator[j] == 0.0) continue;
+                idx[nnz] = j;
+                val[nnz++] = accumulator[j];
+            }
+            ptr[i + 1] = nnz;
+        }
+        return new SparseMatrix(rows, n, ptr, Arrays.copyOf(idx, nnz), Arrays.copyOf(val, nnz));
+    }
+
+    private long averageRowLength() {
+        return Math.max(1, nonZeros() / rows);
+    }
+
+    // y[yOff..yOff+B.cols) += alpha * riga r di B
+    private static void axpy(double alpha, DenseMatrix B, int r, double[] y, int yOff) {
+        int base = B.offset + r * B.rowStride;
+        if (SimdSupport.ENABLED && B.colStride == 1) {
+            SimdKernels.axpy(alpha, B.data, base, y, yOff, B.cols);
+            return;
+        }
+        for (int j = 0; j < B.cols; j++) y[yOff + j] += alpha * B.data[base + j * B.colStride];
+    }
+
+    @Override
+    public String toString() {
+        return "SparseMatrix(" + rows + "x" + cols + ", nnz=" + nonZeros() + ")";
+    }
+}
@@ -0,0 +1,805 @@
+package org.example;
+
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Termine simbolico strutturato (numeri, simboli, potenze, prodotti, somme).
+ *
+ * Sostituisce la vecchia algebra a stringhe della sezione simbolica di MatrixUtils:
+ * i termini restano alberi durante tutto il calcolo e diventano LaTeX solo alla fine (toLatex).
+ *
+ * I nodi sono immutabili e "hash-consed": due termini strutturalmente uguali sono lo stesso
+ * oggetto. Così sottoespressioni ripetute (frequentissime nei prodotti di matrici) occupano
+ * memoria una volta sola e il confronto tra figli è un semplice ==.
+ *
+ * Forma canonica mantenuta dai costruttori (add, multiply, power): un polinomio sparso
+ * i cui "monomi" sono prodotti di atomi (simboli, testo opaco, somme con esponente negativo).
+ * - le somme non contengono somme, hanno al più un termine numerico e nessun monomio
+ *   ripetuto: i termini simili vengono raccolti appena prodotti (2x + 3x -> 5x);
+ * - i numeri sono razionali esatti (Rational): 1/3 resta 1/3 e non 0.333...;
+ * - i prodotti hanno un coefficiente numerico separato e fattori senza numeri né prodotti,
+ *   con le basi uguali già riunite in potenze (x * x -> x^2);
+ * - i prodotti di somme (e le potenze positive di somme) vengono sviluppati;
+ * - fattori ordinati per variabile e termini per grado decrescente, quindi x*y e y*x
+ *   sono lo stesso nodo e due polinomi uguali sono lo stesso oggetto.
+ */
+public abstract sealed class SymExpr implements Comparable<SymExpr> {
+
+    // Ordine dei tipi nei confronti (i numeri vengono prima)
+    private static final int NUM = 0, SYMBOL = 1, POWER = 2, PRODUCT = 3, SUM = 4;
+
+    private static final Map<SymExpr, WeakReference<SymExpr>> TABLE = new WeakHashMap<>();
+
+    public static final SymExpr ZERO = number(Rational.ZERO);
+    public static final SymExpr ONE = number(Rational.ONE);
+    public static final SymExpr MINUS_ONE = number(Rational.MINUS_ONE);
+
+    private final int hash;
+
+    private SymExpr(int hash) {
+        this.hash = hash;
+    }
+
+    abstract int kind();
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    // Figli già condivisi: basta confrontarli per identità
+    @Override
+    public abstract boolean equals(Object o);
+
+    @SuppressWarnings("unchecked")
+    private static <T extends SymExpr> T intern(T e) {
+        synchronized (TABLE) {
+            WeakReference<SymExpr> ref = TABLE.get(e);
+            SymExpr found = ref == null ? null : ref.get();
+            if (found != null) return (T) found;
+            TABLE.put(e, new WeakReference<>(e));
+            return e;
+        }
+    }
+
+    // =============================================================
+    // NODI
+    // =============================================================
+
+    static final class Num extends SymExpr {
+        final Rational value;
+
+        private Num(Rational value) {
+            super(value.hashCode());
+            this.value = value;
+        }
+
+        @Override int kind() { return NUM; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Num n && n.value.equals(value);
+        }
+    }
+
+    static final class Symbol extends SymExpr {
+        final String name;
+        // false per il testo grezzo di celle non interpretabili (es. "\sqrt{x}+1"):
+        // dentro un prodotto o una potenza va messo tra parentesi
+        final boolean atomic;
+
+        private Symbol(String name, boolean atomic) {
+            super(name.hashCode() * 31 + (atomic ? 1 : 0));
+            this.name = name;
+            this.atomic = atomic;
+        }
+
+        @Override int kind() { return SYMBOL; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Symbol s && s.atomic == atomic && s.name.equals(name);
+        }
+    }
+
+    static final class Power extends SymExpr {
+        final SymExpr base;
+        final int exponent;
+
+        private Power(SymExpr base, int exponent) {
+            super(base.hash * 31 + exponent);
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override int kind() { return POWER; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Power p && p.base == base && p.exponent == exponent;
+        }
+    }
+
+    static final class Product extends SymExpr {
+        final Rational coefficient;
+        final List<SymExpr> factors;
+
+        private Product(Rational coefficient, List<SymExpr> factors) {
+            super(coefficient.hashCode() * 31 + identityHash(factors));
+            this.coefficient = coefficient;
+            this.factors = factors;
+        }
+
+        @Override int kind() { return PRODUCT; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Product p && p.coefficient.equals(coefficient)
+                    && sameChildren(p.factors, factors);
+        }
+    }
+
+    static final class Sum extends SymExpr {
+        final List<SymExpr> terms;
+
+        private Sum(List<SymExpr> terms) {
+            super(identityHash(terms) * 17);
+            this.terms = terms;
+        }
+
+        @Override int kind() { return SUM; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Sum s && sameChildren(s.terms, terms);
+        }
+    }
+
+    private static int identityHash(List<SymExpr> children) {
+        int h = 1;
+        for (SymExpr c : children) h = h * 31 + c.hash;
+        return h;
+    }
+
+    private static boolean sameChildren(List<SymExpr> a, List<SymExpr> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) return false;
+        }
+        return true;
+    }
+
+    // =============================================================
+    // COSTRUTTORI
+    // =============================================================
+
+    public static SymExpr number(Rational value) {
+        return intern(new Num(value));
+    }
+
+    /**
+     * Numero da un double (es. celle di una matrice numerica): si usa la sua forma decimale
+     * più corta, quindi 0.1 diventa esattamente 1/10. NaN e infiniti restano testo.
+     */
+    public static SymExpr number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return raw(MatrixUtils.formatDouble(value));
+        return number(Rational.valueOf(value));
+    }
+
+    public static SymExpr symbol(String name) {
+        return intern(new Symbol(name, true));
+    }
+
+    // Testo non interpretabile: resta com'è
+    static SymExpr raw(String text) {
+        return intern(new Symbol(text, false));
+    }
+
+    public boolean isZero() {
+        return this instanceof Num n && n.value.isZero();
+    }
+
+    public boolean isNumber() {
+        return this instanceof Num;
+    }
+
+    public Rational numericValue() {
+        if (this instanceof Num n) return n.value;
+        throw new IllegalStateException("Il termine non è un numero: " + toLatex());
+    }
+
+    public static SymExpr add(SymExpr a, SymExpr b) {
+        return sum(List.of(a, b));
+    }
+
+    public static SymExpr subtract(SymExpr a, SymExpr b) {
+        return sum(List.of(a, negate(b)));
+    }
+
+    public static SymExpr negate(SymExpr a) {
+        return multiply(MINUS_ONE, a);
+    }
+
+    /**
+     * Somma di più termini in un colpo solo (evita di ricostruire la somma a ogni addendo).
+     */
+    public static SymExpr sum(Collection<SymExpr> addends) {
+        // Monomio -> coefficiente: i termini simili si sommano qui
+        Map<SymExpr, Rational> coefficients = new LinkedHashMap<>();
+        Rational constant = Rational.ZERO;
+        for (SymExpr a : addends) {
+            if (a instanceof Sum s) {
+                for (SymExpr t : s.terms) constant = collect(t, constant, coefficients);
+            } else {
+                constant = collect(a, constant, coefficients);
+            }
+        }
+
+        List<SymExpr> terms = new ArrayList<>(coefficients.size() + 1);
+        for (Map.Entry<SymExpr, Rational> e : coefficients.entrySet()) {
+            if (!e.getValue().isZero()) terms.add(scale(e.getKey(), e.getValue()));
+        }
+        if (!constant.isZero()) terms.add(number(constant));
+        if (terms.isEmpty()) return ZERO;
+        if (terms.size() == 1) return terms.get(0);
+        terms.sort(SymExpr::compareTerms);
+        return intern(new Sum(List.copyOf(terms)));
+    }
+
+    private static Rational collect(SymExpr term, Rational constant, Map<SymExpr, Rational> coefficients) {
+        if (term instanceof Num n) return constant.add(n.value);
+        if (term instanceof Product p) {
+            coefficients.merge(monomial(p), p.coefficient, Rational::add);
+        } else {
+            coefficients.merge(term, Rational.ONE, Rational::add);
+        }
+        return constant;
+    }
+
+    // coefficiente * monomio (il monomio ha coefficiente 1)
+    private static SymExpr scale(SymExpr monomial, Rational coefficient) {
+        if (coefficient.isOne()) return monomial;
+        List<SymExpr> factors = monomial instanceof Product p ? new ArrayList<>(p.factors) : new ArrayList<>(List.of(monomial));
+        return buildProduct(coefficient, factors);
+    }
+
+    public static SymExpr multiply(SymExpr a, SymExpr b) {
+        return product(List.of(a, b));
+    }
+
+    /**
+     * Prodotto di più fattori: i numeri diventano un unico coefficiente,
+     * le basi uguali vengono riunite sommando gli esponenti e le somme vengono sviluppate.
+     */
+    public static SymExpr product(Collection<SymExpr> multiplicands) {
+        Rational coefficient = Rational.ONE;
+        Map<SymExpr, Integer> exponents = new LinkedHashMap<>();
+        for (SymExpr m : multiplicands) {
+            if (m instanceof Num n) {
+                coefficient = coefficient.multiply(n.value);
+            } else if (m instanceof Product p) {
+                coefficient = coefficient.multiply(p.coefficient);
+                for (SymExpr f : p.factors) addFactor(f, exponents);
+            } else {
+                addFactor(m, exponents);
+            }
+        }
+        if (coefficient.isZero()) return ZERO;
+
+        List<SymExpr> factors = new ArrayList<>();
+        List<SymExpr> sums = new ArrayList<>();
+        for (Map.Entry<SymExpr, Integer> e : exponents.entrySet()) {
+            int exponent = e.getValue();
+            if (exponent > 0 && e.getKey() instanceof Sum) {
+                for (int i = 0; i < exponent; i++) sums.add(e.getKey());
+            } else if (exponent != 0) {
+                // Le somme al denominatore restano atomi: (x + y)^-1
+                factors.add(power(e.getKey(), exponent));
+            }
+        }
+        SymExpr monomial = buildProduct(coefficient, factors);
+        return sums.isEmpty() ? monomial : expand(monomial, sums);
+    }
+
+    /**
+     * start * sums[0] * sums[1] * ... sviluppato termine per termine.
+     * Dopo ogni fattore i termini simili vengono raccolti, così i risultati intermedi
+     * non crescono oltre il numero di monomi distinti.
+     */
+    private static SymExpr expand(SymExpr start, List<SymExpr> sums) {
+        SymExpr result = start;
+        for (SymExpr s : sums) {
+            List<SymExpr> current = result instanceof Sum rs ? rs.terms : List.of(result);
+            List<SymExpr> other = ((Sum) s).terms;
+            List<SymExpr> products = new ArrayList<>(current.size() * other.size());
+            for (SymExpr t : current) {
+                for (SymExpr u : other) products.add(multiply(t, u));
+            }
+            result = sum(products);
+        }
+        return result;
+    }
+
+    private static void addFactor(SymExpr f, Map<SymExpr, Integer> exponents) {
+        if (f instanceof Power p) {
+            exponents.merge(p.base, p.exponent, Integer::sum);
+        } else {
+            exponents.merge(f, 1, Integer::sum);
+        }
+    }
+
+    private static SymExpr buildProduct(Rational coefficient, List<SymExpr> factors) {
+        if (factors.isEmpty()) return number(coefficient);
+        if (coefficient.isOne() && factors.size() == 1) return factors.get(0);
+        factors.sort(SymExpr::compareFactors);
+        return intern(new Product(coefficient, List.copyOf(factors)));
+    }
+
+    public static SymExpr power(SymExpr base, int exponent) {
+        if (exponent == 0) return ONE;
+        if (exponent == 1) return base;
+        if (base instanceof Num n) {
+            return number(n.value.pow(exponent)); // 0^-n: ArithmeticException
+        }
+        if (base instanceof Power p) {
+            return power(p.base, p.exponent * exponent);
+        }
+        if (base instanceof Sum && exponent > 0) {
+            return expand(ONE, Collections.nCopies(exponent, base));
+        }
+        if (base instanceof Product p) {
+            List<SymExpr> parts = new ArrayList<>();
+            parts.add(number(p.coefficient.pow(exponent)));
+            for (SymExpr f : p.factors) parts.add(power(f, exponent));
+            return product(parts);
+        }
+        return intern(new Power(base, exponent));
+    }
+
+    public static SymExpr divide(SymExpr a, SymExpr b) {
+        if (b.isZero()) throw new ArithmeticException("Divisione per zero");
+        return multiply(a, power(b, -1));
+    }
+
+    /**
+     * Divisione che si sa essere esatta (es. i passi di Bareiss): tra polinomi si fa la
+     * divisione lunga, così il quoziente resta un polinomio invece di (somma)^-1.
+     * Se la divisione non risulta esatta si ricade su divide().
+     */
+    static SymExpr divideExact(SymExpr a, SymExpr b) {
+        if (b.isZero()) throw new ArithmeticException("Divisione per zero");
+        if (!(b instanceof Sum divisor) || a.isZero() || !isPolynomial(a) || !isPolynomial(b)) {
+            return divide(a, b);
+        }
+        // Il primo termine di una somma è il maggiore nell'ordine di compareTerms (grado, poi
+        // lessicografico): ogni passo toglie il termine di testa del resto, quindi termina
+        SymExpr lead = divisor.terms.get(0);
+        List<SymExpr> quotient = new ArrayList<>();
+        SymExpr remainder = a;
+        while (!remainder.isZero()) {
+            SymExpr head = remainder instanceof Sum r ? r.terms.get(0) : remainder;
+            SymExpr t = divide(head, lead);
+            if (!isPolynomial(t)) return divide(a, b);
+            quotient.add(t);
+            remainder = subtract(remainder, multiply(t, b));
+        }
+        return sum(quotient);
+    }
+
+    // Solo numeri, simboli ed esponenti positivi
+    private static boolean isPolynomial(SymExpr e) {
+        return switch (e) {
+            case Num n -> true;
+            case Symbol s -> true;
+            case Power p -> p.exponent > 0 && p.base instanceof Symbol;
+            case Product p -> p.factors.stream().allMatch(SymExpr::isPolynomial);
+            case Sum s -> s.terms.stream().allMatch(SymExpr::isPolynomial);
+        };
+    }
+
+    // =============================================================
+    // ORDINAMENTO
+    // =============================================================
+
+    @Override
+    public int compareTo(SymExpr o) {
+        if (this == o) return 0;
+        if (kind() != o.kind()) return Integer.compare(kind(), o.kind());
+        return switch (this) {
+            case Num n -> n.value.compareTo(((Num) o).value);
+            case Symbol s -> {
+                int c = s.name.compareTo(((Symbol) o).name);
+                yield c != 0 ? c : Boolean.compare(s.atomic, ((Symbol) o).atomic);
+            }
+            case Power p -> {
+                int c = p.base.compareTo(((Power) o).base);
+                yield c != 0 ? c : Integer.compare(p.exponent, ((Power) o).exponent);
+            }
+            case Product p -> {
+                int c = compareLists(p.factors, ((Product) o).factors);
+                yield c != 0 ? c : p.coefficient.compareTo(((Product) o).coefficient);
+            }
+            case Sum s -> compareLists(s.terms, ((Sum) o).terms);
+        };
+    }
+
+    private static int compareLists(List<SymExpr> a, List<SymExpr> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int c = a.get(i).compareTo(b.get(i));
+            if (c != 0) return c;
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    // Nei prodotti: per base, così x^2 y resta vicino a x y
+    private static int compareFactors(SymExpr a, SymExpr b) {
+        int c = baseOf(a).compareTo(baseOf(b));
+        return c != 0 ? c : Integer.compare(exponentOf(a), exponentOf(b));
+    }
+
+    // Nelle somme: grado decrescente, poi ordine lessicografico delle variabili
+    // (x^2 + xy + y^2 + x + 1), la costante in fondo
+    private static int compareTerms(SymExpr a, SymExpr b) {
+        boolean aNum = a instanceof Num, bNum = b instanceof Num;
+        if (aNum || bNum) return Boolean.compare(aNum, bNum);
+        List<SymExpr> fa = factorsOf(a), fb = factorsOf(b);
+        int c = Integer.compare(degree(fb), degree(fa));
+        if (c != 0) return c;
+        for (int i = 0; i < Math.min(fa.size(), fb.size()); i++) {
+            c = baseOf(fa.get(i)).compareTo(baseOf(fb.get(i)));
+            if (c != 0) return c;
+            c = Integer.compare(exponentOf(fb.get(i)), exponentOf(fa.get(i)));
+            if (c != 0) return c;
+        }
+        return Integer.compare(fa.size(), fb.size());
+    }
+
+    private static List<SymExpr> factorsOf(SymExpr term) {
+        return term instanceof Product p ? p.factors : List.of(term);
+    }
+
+    private static int degree(List<SymExpr> factors) {
+        int d = 0;
+        for (SymExpr f : factors) d += exponentOf(f);
+        return d;
+    }
+
+    private static SymExpr baseOf(SymExpr f) {
+        return f instanceof Power p ? p.base : f;
+    }
+
+    private static int exponentOf(SymExpr f) {
+        return f instanceof Power p ? p.exponent : 1;
+    }
+
+    // Il prodotto senza coefficiente
+    private static SymExpr monomial(Product p) {
+        return p.factors.size() == 1 ? p.factors.get(0) : buildProduct(Rational.ONE, new ArrayList<>(p.factors));
+    }
+
+    // =============================================================
+    // LATEX
+    // =============================================================
+
+    public String toLatex() {
+        StringBuilder sb = new StringBuilder();
+        render(this, sb);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toLatex();
+    }
+
+    private static void render(SymExpr e, StringBuilder sb) {
+        switch (e) {
+            case Num n -> sb.append(n.value.toLatex());
+            case Symbol s -> sb.append(s.name);
+            case Power p -> {
+                if (p.exponent < 0) {
+                    sb.append("\\frac{1}{");
+                    render(power(p.base, -p.exponent), sb);
+                    sb.append('}');
+                } else {
+                    renderPower(p, sb);
+                }
+            }
+            case Product p -> renderProduct(p, sb);
+            case Sum s -> {
+                for (int i = 0; i < s.terms.size(); i++) {
+                    SymExpr t = s.terms.get(i);
+                    if (i == 0) {
+                        render(t, sb);
+                    } else if (isNegative(t)) {
+                        // x - (y + z): la parte negata può essere a sua volta una somma
+                        sb.append(" - ").append(renderFactor(negate(t)));
+                    } else {
+                        sb.append(" + ");
+                        render(t, sb);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isNegative(SymExpr t) {
+        return (t instanceof Num n && n.value.signum() < 0) || (t instanceof Product p && p.coefficient.signum() < 0);
+    }
+
+    private static void renderPower(Power p, StringBuilder sb) {
+        if (p.base instanceof Symbol s && s.atomic) {
+            sb.append(s.name);
+        } else {
+            sb.append('(');
+            render(p.base, sb);
+            sb.append(')');
+        }
+        sb.append('^');
+        if (p.exponent < 10) sb.append(p.exponent);
+        else sb.append('{').append(p.exponent).append('}');
+    }
+
+    // Esponenti negativi e denominatore del coefficiente -> \frac{numeratore}{denominatore}
+    // (es. 3/4 x y^-1 -> \frac{3x}{4y})
+    private static void renderProduct(Product p, StringBuilder sb) {
+        List<SymExpr> numerator = new ArrayList<>();
+        List<SymExpr> denominator = new ArrayList<>();
+        for (SymExpr f : p.factors) {
+            if (f instanceof Power pw && pw.exponent < 0) denominator.add(power(pw.base, -pw.exponent));
+            else numerator.add(f);
+        }
+        if (p.coefficient.signum() < 0) sb.append('-');
+        BigInteger num = p.coefficient.numerator().abs();
+        BigInteger den = p.coefficient.denominator();
+        if (denominator.isEmpty() && den.equals(BigInteger.ONE)) {
+            renderFactors(num, numerator, sb);
+            return;
+        }
+        sb.append("\\frac{");
+        renderFractionPart(num, numerator, sb);
+        sb.append("}{");
+        renderFractionPart(den, denominator, sb);
+        sb.append('}');
+    }
+
+    // Dentro \frac{}{} un fattore solo non ha bisogno di parentesi
+    private static void renderFractionPart(BigInteger coefficient, List<SymExpr> factors, StringBuilder sb) {
+        if (coefficient.equals(BigInteger.ONE) && factors.size() == 1) {
+            render(factors.get(0), sb);
+        } else {
+            renderFactors(coefficient, factors, sb);
+        }
+    }
+
+    // "2x", "2(x + 1)", "x \cdot y"
+    private static void renderFactors(BigInteger coefficient, List<SymExpr> factors, StringBuilder sb) {
+        boolean first = true;
+        if (!coefficient.equals(BigInteger.ONE) || factors.isEmpty()) {
+            sb.append(coefficient);
+            first = false;
+        }
+        boolean afterNumber = !first;
+        for (SymExpr f : factors) {
+            String s = renderFactor(f);
+            if (!first) {
+                boolean juxtapose = afterNumber && !Character.isDigit(s.charAt(0)) && s.charAt(0) != '.';
+                sb.append(juxtapose ? "" : " \\cdot ");
+            }
+            sb.append(s);
+            first = false;
+            afterNumber = false;
+        }
+    }
+
+    private static String renderFactor(SymExpr f) {
+        if (f instanceof Sum || (f instanceof Symbol s && !s.atomic)) {
+            return "(" + f.toLatex() + ")";
+        }
+        return f.toLatex();
+    }
+
+    // =============================================================
+    // PARSING DELLE CELLE
+    // =============================================================
+
+    /**
+     * Interpreta il contenuto di una cella ("2x + 3", "x^2", "\frac{a}{2}", "-y", ...).
+     * Se il testo non è riconosciuto resta un simbolo opaco con il testo originale,
+     * come faceva la vecchia algebra a stringhe.
+     */
+    public static SymExpr parse(String text) {
+        if (text == null || text.trim().isEmpty()) return ZERO;
+        try {
+            CellParser parser = new CellParser(text);
+            SymExpr e = parser.parseSum();
+            parser.skipSpaces();
+            if (parser.pos < text.length()) throw new IllegalArgumentException();
+            return e;
+        } catch (RuntimeException e) {
+            return raw(text.trim());
+        }
+    }
+
+    private static final class CellParser {
+        private final String s;
+        private int pos;
+
+        CellParser(String s) {
+            this.s = s;
+        }
+
+        void skipSpaces() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        private int peek() {
+            return pos < s.length() ? s.charAt(pos) : -1;
+        }
+
+        private boolean eatCommand(String name) {
+            if (s.startsWith("\\" + name, pos)) {
+                int end = pos + name.length() + 1;
+                if (end >= s.length() || !Character.isLetter(s.charAt(end))) {
+                    pos = end;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipSpaces();
+            eatCommand("right");
+            skipSpaces();
+            if (peek() != c) throw new IllegalArgumentException();
+            pos++;
+        }
+
+        SymExpr parseSum() {
+            SymExpr x = parseTerm();
+            while (true) {
+                skipSpaces();
+                if (peek() == '+') { pos++; x = add(x, parseTerm()); }
+                else if (peek() == '-') { pos++; x = subtract(x, parseTerm()); }
+                else return x;
+            }
+        }
+
+        private SymExpr parseTerm() {
+            SymExpr x = parseUnary();
+            while (true) {
+                skipSpaces();
+                if (peek() == '*' ) { pos++; x = multiply(x, parseUnary()); }
+                else if (eatCommand("cdot") || eatCommand("times")) { x = multiply(x, parseUnary()); }
+                else if (peek() == '/') { pos++; x = divide(x, parseUnary()); }
+                else if (startsFactor()) { x = multiply(x, parsePower()); }
+                else return x;
+            }
+        }
+
+        // Moltiplicazione implicita: "2x", "x(y + 1)", "2\pi"
+        private boolean startsFactor() {
+            int c = peek();
+            if (c == '\\') return !s.startsWith("\\right", pos) && !s.startsWith("\\cdot", pos) && !s.startsWith("\\times", pos);
+            return Character.isLetterOrDigit(c) || c == '.' || c == '(' || c == '{';
+        }
+
+        private SymExpr parseUnary() {
+            skipSpaces();
+            if (peek() == '-') { pos++; return negate(parseUnary()); }
+            if (peek() == '+') { pos++; return parseUnary(); }
+            return parsePower();
+        }
+
+        private SymExpr parsePower() {
+            SymExpr base = parseAtom();
+            while (true) {
+                skipSpaces();
+                if (peek() != '^') return base;
+                pos++;
+                skipSpaces();
+                base = power(base, parseExponent());
+            }
+        }
+
+        private int parseExponent() {
+            boolean braces = peek() == '{';
+            if (braces) { pos++; skipSpaces(); }
+            boolean negative = peek() == '-';
+            if (negative) pos++;
+            int start = pos;
+            // Senza graffe l'esponente è una sola cifra, come in LaTeX (x^23 = x^2 * 3)
+            while (Character.isDigit(peek()) && (braces || pos == start)) pos++;
+            if (pos == start) throw new IllegalArgumentException();
+            int exponent = Integer.parseInt(s.substring(start, pos));
+            if (braces) expect('}');
+            return negative ? -exponent : exponent;
+        }
+
+        private SymExpr parseAtom() {
+            skipSpaces();
+            int c = peek();
+            if (c == '(') {
+                pos++;
+                SymExpr x = parseSum();
+                expect(')');
+                return x;
+            }
+            if (c == '{') {
+                pos++;
+                SymExpr x = parseSum();
+                expect('}');
+                return x;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                int start = pos;
+                while (Character.isDigit(peek())) pos++;
+                // Separatore decimale: punto o virgola (come MatrixData)
+                if ((peek() == '.' || peek() == ',') && pos + 1 < s.length() && Character.isDigit(s.charAt(pos + 1))) {
+                    pos++;
+                    while (Character.isDigit(peek())) pos++;
+                } else if (peek() == '.') {
+                    pos++;
+                }
+                return number(Rational.parse(s.substring(start, pos)));
+            }
+            if (Character.isLetter(c)) {
+                // "sin(x)": le funzioni non sono gestite, la cella resta testo
+                int end = pos;
+                while (end < s.length() && Character.isLetter(s.charAt(end))) end++;
+                if (end - pos > 1 && end < s.length() && s.charAt(end) == '(') throw new IllegalArgumentException();
+                // Una lettera = un simbolo ("xy" = x * y)
+                int start = pos++;
+                return symbol(s.substring(start, pos) + subscript());
+            }
+            if (c == '\\') {
+                if (eatCommand("frac")) {
+                    skipSpaces();
+                    if (peek() != '{') throw new IllegalArgumentException();
+                    SymExpr num = parseAtom();
+                    skipSpaces();
+                    if (peek() != '{') throw new IllegalArgumentException();
+                    SymExpr den = parseAtom();
+                    return divide(num, den);
+                }
+                if (eatCommand("left")) {
+                    return parseAtom();
+                }
+                int start = pos++;
+                while (Character.isLetter(peek())) pos++;
+                if (pos == start + 1) throw new IllegalArgumentException();
+                String name = s.substring(start, pos);
+                skipSpaces();
+                // Comandi con argomenti (\sqrt{x}, \sin ...) non sono gestiti
+                if (peek() == '{' || peek() == '(') throw new IllegalArgumentException();
+                return symbol(name + subscript());
+            }
+            throw new IllegalArgumentException();
+        }
+
+        // Pedice nel nome del simbolo: x_1, x_{12}
+        private String subscript() {
+            if (peek() != '_') return "";
+            int start = pos++;
+            if (peek() == '{') {
+                int close = s.indexOf('}', pos);
+                if (close < 0) throw new IllegalArgumentException();
+                pos = close + 1;
+            } else if (Character.isLetterOrDigit(peek())) {
+                pos++;
+            } else {
+                throw new IllegalArgumentException();
+            }
+            return s.substring(start, pos);
+        }
+    }
+}
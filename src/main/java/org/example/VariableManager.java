@@ -1,30 +1,98 @@
 package org.example;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 // File: VariableManager.java
+// Le variabili sono una fotografia immutabile (Snapshot) sostituita in blocco a ogni save:
+// chi legge non prende lock e, tenendosi la propria fotografia, vede sempre uno stato coerente
+// anche se nel frattempo un altro thread assegna nuove variabili.
 public class VariableManager {
-    // La mappa che contiene le variabili (es. "A" -> Oggetto MatrixData)
-    private static Map<String, MatrixData> variables = new HashMap<>();
+    // Stato corrente: cambia solo con un compareAndSet in save
+    private static final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(Map.of(), Map.of()));
+    // Versione di ogni variabile: cambia a ogni save, così i risultati in cache che la leggono scadono
+    private static final AtomicLong nextVersion = new AtomicLong(1);
+
+    /**
+     * Le variabili (es. "A" -> Oggetto MatrixData) in un certo istante, con le loro versioni.
+     * Non cambia mai: i save successivi producono una nuova fotografia.
+     */
+    public static final class Snapshot {
+        private final Map<String, MatrixData> variables;
+        private final Map<String, Long> versions;
+
+        private Snapshot(Map<String, MatrixData> variables, Map<String, Long> versions) {
+            this.variables = variables;
+            this.versions = versions;
+        }
+
+        // Copia con alcune variabili in più (o sostituite): O(numero di variabili), che sono poche
+        private Snapshot with(Map<String, MatrixData> assigned, long version) {
+            Map<String, MatrixData> newVariables = new HashMap<>(variables);
+            Map<String, Long> newVersions = new HashMap<>(versions);
+            for (Map.Entry<String, MatrixData> variable : assigned.entrySet()) {
+                newVariables.put(variable.getKey(), variable.getValue());
+                newVersions.put(variable.getKey(), version);
+            }
+            return new Snapshot(Collections.unmodifiableMap(newVariables), Collections.unmodifiableMap(newVersions));
+        }
+
+        public MatrixData get(String name) {
+            return variables.get(name);
+        }
+
+        // 0 se la variabile non esiste
+        public long getVersion(String name) {
+            Long version = versions.get(name);
+            return version == null ? 0 : version;
+        }
+
+        public boolean exists(String name) {
+            return variables.containsKey(name);
+        }
+
+        // In sola lettura
+        public Map<String, MatrixData> getAll() {
+            return variables;
+        }
+    }
+
+    // Le variabili in questo momento: per leggerne più di una in modo coerente
+    public static Snapshot snapshot() {
+        return current.get();
+    }
 
     // Salva una variabile
     public static void save(String name, MatrixData data) {
-        variables.put(name, data);
+        saveAll(Map.of(name, data));
+    }
+
+    // Salva più variabili insieme (es. [U, S, V] = svd(A)): nessuna fotografia ne contiene solo una parte
+    public static void saveAll(Map<String, MatrixData> assigned) {
+        long version = nextVersion.getAndIncrement();
+        current.updateAndGet(snapshot -> snapshot.with(assigned, version));
+    }
+
+    // 0 se la variabile non esiste
+    public static long getVersion(String name) {
+        return snapshot().getVersion(name);
     }
 
     // Recupera l'oggetto MatrixData
     public static MatrixData get(String name) {
-        return variables.get(name);
+        return snapshot().get(name);
     }
 
     // Controlla se esiste
     public static boolean exists(String name) {
-        return variables.containsKey(name);
+        return snapshot().exists(name);
     }
 
-    // Serve a SmartMathParser per sapere quali parole colorare di blu o sostituire
+    // Serve a SmartMathParser per sapere quali parole colorare di blu o sostituire (in sola lettura)
     public static Map<String, MatrixData> getAll() {
-        return variables;
+        return snapshot().getAll();
     }
 }
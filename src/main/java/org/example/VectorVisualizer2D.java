@@ -9,6 +9,7 @@ import java.awt.event.*;
 import java.awt.geom.*;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
 import java.util.Locale;
 
 public class VectorVisualizer2D extends JDialog {
@@ -27,6 +28,8 @@ public class VectorVisualizer2D extends JDialog {
     private double animProgress = 0.0;
     private double animDirection = 0.01;
     private double snapIx, snapIy, snapJx, snapJy;
+    private EigenDecomposition eigenCache;
+    private double[] eigenKey;
 
     private static final int SCALE = 50;
 
@@ -385,6 +388,16 @@ public class VectorVisualizer2D extends JDialog {
         return Double.parseDouble(s.replace(",", "."));
     }
 
+    // Scomposizione della matrice corrente: si ricalcola solo quando i valori cambiano, non a ogni repaint
+    private EigenDecomposition eigen() {
+        double[] key = {ix, jx, iy, jy};
+        if (eigenCache == null || !Arrays.equals(key, eigenKey)) {
+            eigenCache = EigenDecomposition.of(DenseMatrix.of(new double[][]{{ix, jx}, {iy, jy}}));
+            eigenKey = key;
+        }
+        return eigenCache;
+    }
+
     private Point2D.Double getTransformedA() {
         double transX = ax * ix + ay * jx;
         double transY = ax * iy + ay * jy;
@@ -556,10 +569,8 @@ public class VectorVisualizer2D extends JDialog {
         }
 
         private void drawEigenvectors(Graphics2D g2, boolean darkMode) {
-            // Calcolo Autovalori e Autovettori (Pesante, viene saltato durante l'animazione)
-            double tr = ix + jy;
-            double det = ix * jy - iy * jx;
-            double delta = tr * tr - 4 * det;
+            // Autovalori e autovettori (saltato durante l'animazione)
+            EigenDecomposition eigen = eigen();
 
             Color eigenColor = new Color(216, 180, 254);
             Color eigenVecColor = new Color(192, 132, 252);
@@ -568,39 +579,25 @@ public class VectorVisualizer2D extends JDialog {
                 eigenVecColor = new Color(147, 51, 234);
             }
 
-            if (delta < 0) {
+            if (eigen.hasComplexEigenvalues()) {
                 g2.setColor(darkMode ? Color.GRAY : Color.DARK_GRAY);
                 g2.drawString("Autovalori complessi (rotazione)", 20, getHeight() - 50);
                 return;
             }
 
-            double lambda1 = (tr + Math.sqrt(delta)) / 2.0;
-            double lambda2 = (tr - Math.sqrt(delta)) / 2.0;
-
-            drawSingleEigen(g2, lambda1, eigenColor, eigenVecColor, "v1", darkMode);
-            if (Math.abs(lambda1 - lambda2) > 0.0001) {
-                drawSingleEigen(g2, lambda2, eigenColor, eigenVecColor, "v2", darkMode);
+            double[] lambdas = eigen.getRealEigenvalues();
+            double[] first = eigen.getEigenvector(0);
+            drawSingleEigen(g2, first, lambdas[0], eigenColor, eigenVecColor, "v1", darkMode);
+            // Con un autovalore doppio e un solo autovettore (es. taglio) le due colonne coincidono
+            double[] second = eigen.getEigenvector(1);
+            if (Math.abs(first[0] * second[0] + first[1] * second[1]) < 0.9999) {
+                drawSingleEigen(g2, second, lambdas[1], eigenColor, eigenVecColor, "v2", darkMode);
             }
         }
 
-        private void drawSingleEigen(Graphics2D g2, double lambda, Color lineColor, Color vecColor, String label, boolean darkMode) {
-            double a = ix - lambda;
-            double b = jx;
-            double c = iy;
-            double d = jy - lambda;
-
-            double vx, vy;
-            if (Math.abs(b) > 0.0001 || Math.abs(a) > 0.0001) {
-                vx = b; vy = -a;
-            } else if (Math.abs(c) > 0.0001 || Math.abs(d) > 0.0001) {
-                vx = d; vy = -c;
-            } else {
-                vx = 1; vy = 0;
-            }
-
-            double len = Math.hypot(vx, vy);
-            if (len < 0.0001) return;
-            vx /= len; vy /= len;
+        private void drawSingleEigen(Graphics2D g2, double[] v, double lambda, Color lineColor, Color vecColor, String label, boolean darkMode) {
+            double vx = v[0], vy = v[1];
+            if (Math.hypot(vx, vy) < 0.0001) return;
 
             g2.setColor(lineColor);
             g2.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{9}, 0));
@@ -661,6 +658,21 @@ public class VectorVisualizer2D extends JDialog {
         if (canvas != null) canvas.repaint();
     }
 
+    /**
+     * Variante che accetta direttamente una matrice 2x2 e un vettore 2x1 (o 1x2) in formato DenseMatrix.
+     */
+    public void setTransformationData(DenseMatrix matrix, DenseMatrix vector) {
+        if (matrix.getRows() != 2 || matrix.getCols() != 2) {
+            throw new IllegalArgumentException("Serve una matrice 2x2, trovata " + matrix.getRows() + "x" + matrix.getCols());
+        }
+        DenseMatrix v = vector.getRows() == 1 ? vector.transpose() : vector;
+        if (v.getRows() != 2 || v.getCols() != 1) {
+            throw new IllegalArgumentException("Serve un vettore di 2 componenti");
+        }
+        setTransformationData(matrix.get(0, 0), matrix.get(1, 0), matrix.get(0, 1), matrix.get(1, 1),
+                v.get(0, 0), v.get(1, 0));
+    }
+
     class BracketPanel extends JPanel {
         private final JComponent content;
         private final Color bracketColor;
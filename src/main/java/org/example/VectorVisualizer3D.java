@@ -10,6 +10,7 @@ import java.awt.geom.*;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -43,6 +44,8 @@ public class VectorVisualizer3D extends JDialog {
     private double animProgress = 0.0;
     private double animDirection = 0.01;
     private double sIx, sIy, sIz, sJx, sJy, sJz, sKx, sKy, sKz;
+    private EigenDecomposition eigenCache;
+    private double[] eigenKey;
 
     public VectorVisualizer3D(Window owner) {
         super(owner, "VecTor 3D - Visualizzatore Matrici Spaziali",
@@ -409,6 +412,16 @@ public class VectorVisualizer3D extends JDialog {
         return Double.parseDouble(s.replace(",", "."));
     }
 
+    // Scomposizione della matrice corrente: si ricalcola solo quando i valori cambiano, non a ogni repaint
+    private EigenDecomposition eigen() {
+        double[] key = {ix, jx, kx, iy, jy, ky, iz, jz, kz};
+        if (eigenCache == null || !Arrays.equals(key, eigenKey)) {
+            eigenCache = EigenDecomposition.of(DenseMatrix.of(new double[][]{{ix, jx, kx}, {iy, jy, ky}, {iz, jz, kz}}));
+            eigenKey = key;
+        }
+        return eigenCache;
+    }
+
     private Point3D getTransformedA() {
         double tx = ax * ix + ay * jx + az * kx;
         double ty = ax * iy + ay * jy + az * ky;
@@ -416,6 +429,27 @@ public class VectorVisualizer3D extends JDialog {
         return new Point3D(tx, ty, tz);
     }
 
+    /**
+     * Imposta la trasformazione da una matrice 3x3 e un vettore di 3 componenti (DenseMatrix).
+     * Le colonne della matrice sono le immagini dei versori i, j, k.
+     */
+    public void setTransformationData(DenseMatrix matrix, DenseMatrix vector) {
+        if (matrix.getRows() != 3 || matrix.getCols() != 3) {
+            throw new IllegalArgumentException("Serve una matrice 3x3, trovata " + matrix.getRows() + "x" + matrix.getCols());
+        }
+        DenseMatrix v = vector.getRows() == 1 ? vector.transpose() : vector;
+        if (v.getRows() != 3 || v.getCols() != 1) {
+            throw new IllegalArgumentException("Serve un vettore di 3 componenti");
+        }
+        ix = matrix.get(0, 0); iy = matrix.get(1, 0); iz = matrix.get(2, 0);
+        jx = matrix.get(0, 1); jy = matrix.get(1, 1); jz = matrix.get(2, 1);
+        kx = matrix.get(0, 2); ky = matrix.get(1, 2); kz = matrix.get(2, 2);
+        ax = v.get(0, 0); ay = v.get(1, 0); az = v.get(2, 0);
+        updateTextFields();
+        updateInfoLabels();
+        if (canvas != null) canvas.repaint();
+    }
+
     private static class Point3D {
         double x, y, z;
         Point3D(double x, double y, double z) { this.x=x; this.y=y; this.z=z; }
@@ -512,16 +546,9 @@ public class VectorVisualizer3D extends JDialog {
         }
 
         private void drawEigenElements(Graphics2D g2, boolean dark) {
-            // Risoluzione polinomio caratteristico (Pesante!)
-            double a = -(ix + jy + kz);
-            double M11 = jy * kz - jz * ky;
-            double M22 = ix * kz - iz * kx;
-            double M33 = ix * jy - iy * jx;
-            double b = M11 + M22 + M33;
-            double det = ix*(jy*kz - jz*ky) - iy*(jx*kz - jz*kx) + iz*(jx*ky - jy*kx);
-            double c = -det;
-
-            List<Double> eigenValues = solveCubic(a, b, c);
+            EigenDecomposition eigen = eigen();
+            double[] lambdas = eigen.getRealEigenvalues();
+            double[] imag = eigen.getImagEigenvalues();
 
             Color eigenColor = new Color(216, 180, 254);
             Color eigenVecColor = new Color(192, 132, 252);
@@ -530,10 +557,32 @@ public class VectorVisualizer3D extends JDialog {
                 eigenVecColor = new Color(147, 51, 234);
             }
 
-            int idx = 1;
-            for (Double lambda : eigenValues) {
-                List<Point3D> vectors = getEigenvectors(lambda);
-                for (Point3D v : vectors) {
+            // Autovettori reali raggruppati per autovalore: un autovalore multiplo ha un autospazio
+            // di dimensione > 1 (v1-a, v1-b), oppure colonne parallele da mostrare una volta sola
+            List<Double> values = new ArrayList<>();
+            List<List<Point3D>> groups = new ArrayList<>();
+            for (int j = 0; j < lambdas.length; j++) {
+                if (imag[j] != 0.0) continue;
+                double[] e = eigen.getEigenvector(j);
+                Point3D v = new Point3D(e[0], e[1], e[2]);
+                int g = 0;
+                while (g < values.size() && Math.abs(values.get(g) - lambdas[j]) >= 0.001) g++;
+                if (g == values.size()) {
+                    values.add(lambdas[j]);
+                    groups.add(new ArrayList<>());
+                }
+                List<Point3D> group = groups.get(g);
+                boolean parallel = false;
+                for (Point3D u : group) {
+                    if (Math.abs(u.x * v.x + u.y * v.y + u.z * v.z) > 0.9999) parallel = true;
+                }
+                if (!parallel) group.add(v);
+            }
+
+            for (int g = 0; g < groups.size(); g++) {
+                List<Point3D> vectors = groups.get(g);
+                for (int a = 0; a < vectors.size(); a++) {
+                    Point3D v = vectors.get(a);
                     g2.setColor(eigenColor);
                     g2.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{9}, 0));
                     double range = 10.0;
@@ -541,127 +590,17 @@ public class VectorVisualizer3D extends JDialog {
                     Point2D p2 = project(v.x * range, v.y * range, v.z * range);
                     g2.drawLine((int)p1.x, (int)p1.y, (int)p2.x, (int)p2.y);
 
-                    String suffix = (vectors.size() > 1) ? ("-" + (char)('a' + vectors.indexOf(v))) : "";
-                    drawVector3D(g2, 0, 0, 0, v.x, v.y, v.z, eigenVecColor, "v" + idx + suffix + " (λ=" + String.format("%.2f", lambda) + ")");
+                    String suffix = (vectors.size() > 1) ? ("-" + (char)('a' + a)) : "";
+                    drawVector3D(g2, 0, 0, 0, v.x, v.y, v.z, eigenVecColor, "v" + (g + 1) + suffix + " (λ=" + String.format("%.2f", values.get(g)) + ")");
                 }
-                if (!vectors.isEmpty()) idx++;
             }
 
-            if (eigenValues.isEmpty()) {
+            if (eigen.hasComplexEigenvalues()) {
                 g2.setColor(Color.GRAY);
                 g2.drawString("Autovalori complessi", 20, 20);
             }
         }
 
-        private List<Double> solveCubic(double a, double b, double c) {
-            List<Double> roots = new ArrayList<>();
-            double p = b - a*a/3.0;
-            double q = 2.0*a*a*a/27.0 - a*b/3.0 + c;
-            double delta = q*q/4.0 + p*p*p/27.0;
-
-            if (delta > 0) {
-                double u = Math.cbrt(-q/2.0 + Math.sqrt(delta));
-                double v = Math.cbrt(-q/2.0 - Math.sqrt(delta));
-                roots.add(u + v - a/3.0);
-            } else if (delta == 0) {
-                double u = Math.cbrt(-q/2.0);
-                roots.add(2.0*u - a/3.0);
-                roots.add(-u - a/3.0);
-            } else {
-                double phi = Math.acos(-q/2.0 * Math.sqrt(-27.0/(p*p*p)));
-                double t = 2.0 * Math.sqrt(-p/3.0);
-                roots.add(t * Math.cos(phi/3.0) - a/3.0);
-                roots.add(t * Math.cos((phi + 2.0*Math.PI)/3.0) - a/3.0);
-                roots.add(t * Math.cos((phi + 4.0*Math.PI)/3.0) - a/3.0);
-            }
-
-            List<Double> unique = new ArrayList<>();
-            for(Double r : roots) {
-                boolean exists = false;
-                for(Double u : unique) if(Math.abs(u - r) < 0.001) exists = true;
-                if(!exists) unique.add(r);
-            }
-            return unique;
-        }
-
-        private List<Point3D> getEigenvectors(double lambda) {
-            List<Point3D> results = new ArrayList<>();
-            double epsilon = 1e-5;
-            double[][] rows = new double[3][3];
-            rows[0] = new double[]{ ix - lambda, jx, kx };
-            rows[1] = new double[]{ iy, jy - lambda, ky };
-            rows[2] = new double[]{ iz, jz, kz - lambda };
-
-            double[] magSqRow = new double[3];
-            double maxMagSq = 0;
-            int maxRowIdx = 0;
-
-            for(int i=0; i<3; i++) {
-                magSqRow[i] = rows[i][0]*rows[i][0] + rows[i][1]*rows[i][1] + rows[i][2]*rows[i][2];
-                if(magSqRow[i] > maxMagSq) {
-                    maxMagSq = magSqRow[i];
-                    maxRowIdx = i;
-                }
-            }
-
-            if (maxMagSq < epsilon) {
-                results.add(new Point3D(1, 0, 0));
-                results.add(new Point3D(0, 1, 0));
-                results.add(new Point3D(0, 0, 1));
-                return results;
-            }
-
-            Point3D cp1 = crossProductArr(rows[0], rows[1]);
-            Point3D cp2 = crossProductArr(rows[0], rows[2]);
-            Point3D cp3 = crossProductArr(rows[1], rows[2]);
-
-            double m1 = magSq(cp1);
-            double m2 = magSq(cp2);
-            double m3 = magSq(cp3);
-
-            if (m1 > epsilon || m2 > epsilon || m3 > epsilon) {
-                Point3D v = (m1 >= m2 && m1 >= m3) ? cp1 : (m2 >= m3 ? cp2 : cp3);
-                v.normalize();
-                results.add(v);
-                return results;
-            }
-
-            double[] nArr = rows[maxRowIdx];
-            Point3D normal = new Point3D(nArr[0], nArr[1], nArr[2]);
-            normal.normalize();
-
-            Point3D t1;
-            if (Math.abs(normal.x) > 0.9) t1 = crossProductArr(nArr, new double[]{0, 1, 0});
-            else t1 = crossProductArr(nArr, new double[]{1, 0, 0});
-            t1.normalize();
-
-            Point3D t2 = crossProduct(normal.x, normal.y, normal.z, t1.x, t1.y, t1.z);
-            t2.normalize();
-
-            results.add(t1);
-            results.add(t2);
-            return results;
-        }
-
-        private Point3D crossProductArr(double[] a, double[] b) {
-            return new Point3D(
-                    a[1]*b[2] - a[2]*b[1],
-                    a[2]*b[0] - a[0]*b[2],
-                    a[0]*b[1] - a[1]*b[0]
-            );
-        }
-
-        private Point3D crossProduct(double ax, double ay, double az, double bx, double by, double bz) {
-            return new Point3D(
-                    ay * bz - az * by,
-                    az * bx - ax * bz,
-                    ax * by - ay * bx
-            );
-        }
-
-        private double magSq(Point3D p) { return p.x*p.x + p.y*p.y + p.z*p.z; }
-
-
         private void drawTransformedGrid(Graphics2D g2, boolean dark) {
             Color gridCol = dark ? new Color(70, 75, 85, 100) : new Color(200, 200, 200, 150);
             Color axisCol = dark ? new Color(150, 150, 150, 180) : new Color(100, 100, 100, 180);